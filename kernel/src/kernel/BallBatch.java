@@ -0,0 +1,129 @@
+package kernel;
+
+/**
+ * A batch of Balls stored as flat arrays, one array per property.
+ * 
+ * This layout allows the same operation to be applied to many Balls at
+ * once; see BallKernel.
+ * 
+ * @author Dan Bryce
+ */
+public class BallBatch {
+
+	public static final byte GOAL_NONE = 0;
+	public static final byte GOAL_LEFT = 1;
+	public static final byte GOAL_RIGHT = 2;
+
+	/**
+	 * Top-left position of each Ball.
+	 */
+	final double[] x, y;
+
+	/**
+	 * Velocity of each Ball, per tick.
+	 */
+	final double[] vx, vy;
+
+	/**
+	 * Magnitude of each Ball's velocity.
+	 */
+	final double[] speed;
+
+	/**
+	 * Goal scored by each Ball during the last integration step.
+	 */
+	final byte[] goal;
+
+	private int size;
+
+	/**
+	 * Constructs an empty BallBatch.
+	 * @param capacity Maximum number of Balls.
+	 */
+	public BallBatch(int capacity) {
+		x = new double[capacity];
+		y = new double[capacity];
+		vx = new double[capacity];
+		vy = new double[capacity];
+		speed = new double[capacity];
+		goal = new byte[capacity];
+	}
+
+	/**
+	 * Adds a Ball to the batch.
+	 * @param x1 Left edge.
+	 * @param y1 Top edge.
+	 * @param angle Direction of travel, in degrees.
+	 * @param speed
+	 * @return Index of the new Ball.
+	 */
+	public int add(double x1, double y1, double angle, double speed) {
+		int i = size++;
+		set(i, x1, y1, angle, speed);
+		return i;
+	}
+
+	/**
+	 * Resets the Ball at the given index.
+	 * @param i
+	 * @param x1 Left edge.
+	 * @param y1 Top edge.
+	 * @param angle Direction of travel, in degrees.
+	 * @param speed
+	 */
+	public void set(int i, double x1, double y1, double angle, double speed) {
+		double a = Math.toRadians(angle);
+		this.x[i] = x1;
+		this.y[i] = y1;
+		this.vx[i] = Math.cos(a) * speed;
+		this.vy[i] = Math.sin(a) * speed;
+		this.speed[i] = speed;
+		this.goal[i] = GOAL_NONE;
+	}
+
+	/**
+	 * Gets the goal scored by the given Ball during the last step.
+	 * 
+	 * This is cleared by clearGoal() or set().
+	 * @param i
+	 * @return One of the GOAL constants.
+	 */
+	public byte getGoal(int i) {
+		return goal[i];
+	}
+
+	/**
+	 * Clears the goal recorded against the given Ball.
+	 * @param i
+	 */
+	public void clearGoal(int i) {
+		goal[i] = GOAL_NONE;
+	}
+
+	/**
+	 * Getter for the left edge of the given Ball.
+	 * @param i
+	 * @return
+	 */
+	public double getX(int i) {
+		return x[i];
+	}
+
+	/**
+	 * Getter for the top edge of the given Ball.
+	 * @param i
+	 * @return
+	 */
+	public double getY(int i) {
+		return y[i];
+	}
+
+	/**
+	 * Getter for the number of Balls in the batch.
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+}
@@ -0,0 +1,131 @@
+package kernel;
+
+import game.Ball;
+import game.Physics;
+
+import state.GameState;
+
+/**
+ * Moves every Ball in a BallBatch by one tick.
+ * 
+ * This performs the same integration as Ball.translate(): Balls move by
+ * their velocity, are clamped to the game area, bounce off the top and
+ * bottom walls, and record a goal if they reach the left or right edge.
+ * Collisions with Players are left to the caller.
+ * 
+ * This implementation processes one Ball at a time. Use create() to obtain
+ * a vectorized implementation where the platform supports it.
+ * 
+ * The game itself does not use this yet, so this lives in its own source
+ * root (kernel/src), which is only needed to run BallKernelBenchmark.
+ * Compile it against the game's classes with
+ * "--add-modules jdk.incubator.vector".
+ * 
+ * @author Dan Bryce
+ */
+public class BallKernel {
+
+	protected static final double MAX_X = GameState.GAME_WIDTH - Ball.WIDTH;
+	protected static final double MAX_Y = GameState.GAME_HEIGHT - Ball.HEIGHT;
+
+	/**
+	 * Speed beyond which Balls stop accelerating, as in Ball.
+	 */
+	protected static final double MAX_SPEED = 20.0;
+
+	private static final String VECTOR_MODULE = "jdk.incubator.vector";
+	private static final String VECTOR_KERNEL = "kernel.VectorBallKernel";
+
+	/**
+	 * Creates the fastest BallKernel available.
+	 * 
+	 * The vectorized kernel requires the JVM to be started with
+	 * "--add-modules jdk.incubator.vector"; otherwise a scalar kernel is
+	 * returned.
+	 * @return
+	 */
+	public static BallKernel create() {
+
+		if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()){
+			try {
+				// Loaded reflectively so this class never links against it
+				return (BallKernel) Class.forName(VECTOR_KERNEL)
+						.getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | LinkageError e){
+				e.printStackTrace();
+			}
+		}
+
+		return new BallKernel();
+	}
+
+	/**
+	 * Moves all Balls in the batch by one tick.
+	 * @param batch
+	 * @param physics
+	 * @return Number of goals scored, which can be retrieved from the batch.
+	 */
+	public int integrate(BallBatch batch, Physics physics) {
+		return integrate(batch, 0, batch.size(),
+				physics.getBallBounceSpeedMultiplier());
+	}
+
+	/**
+	 * Moves the Balls in the given range by one tick, one at a time.
+	 * @param b
+	 * @param from First index, inclusive.
+	 * @param to Last index, exclusive.
+	 * @param bounceMultiplier
+	 * @return Number of goals scored.
+	 */
+	protected int integrate(BallBatch b, int from, int to,
+			double bounceMultiplier) {
+
+		int goals = 0;
+
+		for (int i = from; i < to; i++){
+
+			// Update position
+			double x = b.x[i] + b.vx[i];
+			double y = b.y[i] + b.vy[i];
+
+			// Check bounds
+			if (x < 0){
+				x = 0;
+				b.goal[i] = BallBatch.GOAL_LEFT;
+				goals++;
+			} else if (x > MAX_X){
+				x = MAX_X;
+				b.goal[i] = BallBatch.GOAL_RIGHT;
+				goals++;
+			}
+
+			if (y < 0 || y > MAX_Y){
+				y = y < 0 ? 0 : MAX_Y;
+
+				// Bounce and accelerate
+				double speed = b.speed[i];
+				double newSpeed = Math.min(speed * bounceMultiplier,
+						MAX_SPEED);
+				double scale = newSpeed / speed;
+				b.vx[i] *= scale;
+				b.vy[i] *= -scale;
+				b.speed[i] = newSpeed;
+			}
+
+			b.x[i] = x;
+			b.y[i] = y;
+		}
+
+		return goals;
+	}
+
+	/**
+	 * Gets a description of this kernel.
+	 * @return
+	 */
+	public String getName() {
+		return "scalar";
+	}
+
+}
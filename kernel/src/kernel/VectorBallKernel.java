@@ -0,0 +1,93 @@
+package kernel;
+
+import game.Physics;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * BallKernel that processes several Balls at once using SIMD instructions.
+ * 
+ * Wall bounces and goals are handled with lane masks, so the common case of
+ * a Ball in open space needs no branches. Any Balls left over after the last
+ * full vector are processed by the scalar kernel.
+ * 
+ * This must be compiled and run with "--add-modules jdk.incubator.vector";
+ * use BallKernel.create() rather than referring to this class directly.
+ * 
+ * @author Dan Bryce
+ */
+class VectorBallKernel extends BallKernel {
+
+	private static final VectorSpecies<Double> SPECIES =
+			DoubleVector.SPECIES_PREFERRED;
+
+	@Override
+	public int integrate(BallBatch b, Physics physics) {
+
+		double bounceMultiplier = physics.getBallBounceSpeedMultiplier();
+		int lanes = SPECIES.length();
+		int bound = SPECIES.loopBound(b.size());
+		int goals = 0;
+		int i;
+
+		// Local copies let the JIT keep these in registers
+		double[] xs = b.x, ys = b.y;
+		double[] vxs = b.vx, vys = b.vy, speeds = b.speed;
+
+		for (i = 0; i < bound; i += lanes){
+
+			// Update position
+			DoubleVector vx = DoubleVector.fromArray(SPECIES, vxs, i);
+			DoubleVector vy = DoubleVector.fromArray(SPECIES, vys, i);
+			DoubleVector x = DoubleVector.fromArray(SPECIES, xs, i).add(vx);
+			DoubleVector y = DoubleVector.fromArray(SPECIES, ys, i).add(vy);
+
+			// Check bounds
+			VectorMask<Double> left = x.lt(0);
+			VectorMask<Double> right = x.compare(VectorOperators.GT, MAX_X);
+			VectorMask<Double> wall = y.lt(0)
+					.or(y.compare(VectorOperators.GT, MAX_Y));
+			x.max(0).min(MAX_X).intoArray(xs, i);
+			y.max(0).min(MAX_Y).intoArray(ys, i);
+
+			// Bounce and accelerate
+			if (wall.anyTrue()){
+				DoubleVector speed =
+						DoubleVector.fromArray(SPECIES, speeds, i);
+				DoubleVector newSpeed = speed.mul(bounceMultiplier)
+						.min(MAX_SPEED);
+				DoubleVector scale = newSpeed.div(speed);
+				vx.blend(vx.mul(scale), wall).intoArray(vxs, i);
+				vy.blend(vy.mul(scale).neg(), wall).intoArray(vys, i);
+				speed.blend(newSpeed, wall).intoArray(speeds, i);
+			}
+
+			// Goals are rare, so record them lane by lane
+			if (left.or(right).anyTrue()){
+				long leftBits = left.toLong();
+				long scoredBits = leftBits | right.toLong();
+				while (scoredBits != 0){
+					int lane = Long.numberOfTrailingZeros(scoredBits);
+					b.goal[i + lane] = (leftBits & (1L << lane)) != 0 ?
+							BallBatch.GOAL_LEFT : BallBatch.GOAL_RIGHT;
+					scoredBits &= scoredBits - 1;
+					goals++;
+				}
+			}
+		}
+
+		// Process any remaining Balls individually
+		goals += integrate(b, i, b.size(), bounceMultiplier);
+
+		return goals;
+	}
+
+	@Override
+	public String getName() {
+		return "vector (" + SPECIES.length() + " lanes)";
+	}
+
+}
@@ -0,0 +1,173 @@
+package tools;
+
+import game.Physics;
+
+import java.util.Random;
+
+import kernel.BallBatch;
+import kernel.BallKernel;
+import state.GameState;
+
+/**
+ * Command-line tool that compares the throughput of the scalar and
+ * vectorized BallKernels.
+ * 
+ * Run with "--add-modules jdk.incubator.vector" to include the vectorized
+ * kernel.
+ * 
+ * Usage: BallKernelBenchmark [seconds per run]
+ * 
+ * @author Dan Bryce
+ */
+public class BallKernelBenchmark {
+
+	private static final int[] BALL_COUNTS = { 10_000, 100_000, 1_000_000 };
+	private static final int CHECK_TICKS = 1000;
+
+	/**
+	 * Entry point for the tool.
+	 * @param args
+	 */
+	public static void main(String[] args) {
+
+		double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+
+		BallKernel scalar = new BallKernel();
+		BallKernel best = BallKernel.create();
+		if (best.getClass() == BallKernel.class){
+			System.out.println("Vector API unavailable; " +
+					"run with --add-modules jdk.incubator.vector");
+		} else {
+			System.out.printf("Max difference after %d ticks: %g%n",
+					CHECK_TICKS, compare(scalar, best));
+		}
+
+		System.out.printf("%-10s %-20s %12s %14s%n",
+				"Balls", "Kernel", "ns/ball", "Mballs/s");
+
+		for (int balls : BALL_COUNTS){
+			double scalarTime = run(scalar, balls, seconds);
+			if (best != scalar){
+				double bestTime = run(best, balls, seconds);
+				System.out.printf("%-10s %-20s %12s %13.2fx%n",
+						"", "speedup", "", scalarTime / bestTime);
+			}
+		}
+	}
+
+	/**
+	 * Repeatedly runs a kernel over a batch, and reports its throughput.
+	 * @param kernel
+	 * @param balls
+	 * @param seconds
+	 * @return Mean time per Ball, in nanoseconds.
+	 */
+	private static double run(BallKernel kernel, int balls, double seconds) {
+
+		BallBatch batch = createBatch(balls, 1);
+		Random random = new Random(2);
+		Physics physics = Physics.DEFAULT;
+
+		// Warm up
+		long endTime = System.nanoTime() + (long) (seconds * 0.5e9);
+		while (System.nanoTime() < endTime){
+			step(kernel, batch, physics, random);
+		}
+
+		// Only the kernel itself is timed, not respawning
+		long ticks = 0;
+		long kernelTime = 0;
+		endTime = System.nanoTime() + (long) (seconds * 1e9);
+		while (System.nanoTime() < endTime){
+			long startTime = System.nanoTime();
+			int goals = kernel.integrate(batch, physics);
+			kernelTime += System.nanoTime() - startTime;
+			respawn(batch, goals, random);
+			ticks++;
+		}
+
+		double nsPerBall = (double) kernelTime / (ticks * balls);
+		System.out.printf("%-10d %-20s %12.3f %14.1f%n",
+				balls, kernel.getName(), nsPerBall, 1000 / nsPerBall);
+		return nsPerBall;
+	}
+
+	/**
+	 * Runs one tick, then respawns any Balls that scored.
+	 * @param kernel
+	 * @param batch
+	 * @param physics
+	 * @param random
+	 */
+	private static void step(BallKernel kernel, BallBatch batch,
+			Physics physics, Random random) {
+		int goals = kernel.integrate(batch, physics);
+		respawn(batch, goals, random);
+	}
+
+	/**
+	 * Runs two kernels over identical batches, and measures how far apart
+	 * the results drift.
+	 * @param a
+	 * @param b
+	 * @return Largest difference in any Ball's position.
+	 */
+	private static double compare(BallKernel a, BallKernel b) {
+
+		BallBatch batchA = createBatch(1027, 3);
+		BallBatch batchB = createBatch(1027, 3);
+		Random randomA = new Random(4);
+		Random randomB = new Random(4);
+
+		for (int tick = 0; tick < CHECK_TICKS; tick++){
+			step(a, batchA, Physics.DEFAULT, randomA);
+			step(b, batchB, Physics.DEFAULT, randomB);
+		}
+
+		double maxDiff = 0;
+		for (int i = 0; i < batchA.size(); i++){
+			maxDiff = Math.max(maxDiff,
+					Math.abs(batchA.getX(i) - batchB.getX(i)));
+			maxDiff = Math.max(maxDiff,
+					Math.abs(batchA.getY(i) - batchB.getY(i)));
+		}
+		return maxDiff;
+	}
+
+	/**
+	 * Creates a batch of Balls scattered across the game area.
+	 * @param balls
+	 * @param seed
+	 * @return
+	 */
+	private static BallBatch createBatch(int balls, long seed) {
+		BallBatch batch = new BallBatch(balls);
+		Random random = new Random(seed);
+		for (int i = 0; i < balls; i++){
+			batch.add(
+					random.nextDouble() * GameState.GAME_WIDTH,
+					random.nextDouble() * GameState.GAME_HEIGHT,
+					random.nextDouble() * 360,
+					5.5 + random.nextDouble() * 10);
+		}
+		return batch;
+	}
+
+	/**
+	 * Moves any Balls that scored back to the centre.
+	 * @param batch
+	 * @param goals Number of goals scored.
+	 * @param random
+	 */
+	private static void respawn(BallBatch batch, int goals, Random random) {
+		for (int i = 0; goals > 0 && i < batch.size(); i++){
+			if (batch.getGoal(i) == BallBatch.GOAL_NONE) continue;
+			double angle = (random.nextDouble() * 180) - 45;
+			if (angle > 45) angle += 90;
+			batch.set(i, GameState.GAME_WIDTH/2, GameState.GAME_HEIGHT/2,
+					angle, 5.5);
+			goals--;
+		}
+	}
+
+}
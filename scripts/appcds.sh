@@ -0,0 +1,43 @@
+#!/bin/sh
+#
+# Builds the game into build/pong.jar, then creates an AppCDS archive of
+# the classes it loads on startup, so that later launches can map them
+# straight from the archive instead of loading and verifying each one.
+#
+# The archive is recorded from a training run of the game, which quits as
+# soon as the menu appears. This needs a display, and the archive only
+# works with the JDK that created it, so re-run this after updating Java.
+#
+# Usage: scripts/appcds.sh
+#
+# Then play with:
+#     java -XX:SharedArchiveFile=build/pong.jsa -jar build/pong.jar
+# or compare startup times with:
+#     java -cp build/pong.jar tools.StartupBenchmark 10 -cp build/pong.jar
+#     java -cp build/pong.jar tools.StartupBenchmark 10 \
+#         -XX:SharedArchiveFile=build/pong.jsa -cp build/pong.jar
+
+set -e
+cd "$(dirname "$0")/.."
+
+BUILD=build
+CLASSES=$BUILD/classes
+JAR=$BUILD/pong.jar
+ARCHIVE=$BUILD/pong.jsa
+
+# Compile
+rm -rf "$CLASSES"
+mkdir -p "$CLASSES"
+javac -d "$CLASSES" $(find src -name '*.java')
+cp -r res/* "$CLASSES"
+
+# AppCDS can only archive classes loaded from JARs, not directories
+rm -f "$JAR" "$ARCHIVE" "$ARCHIVE.tmp"
+jar --create --file "$JAR" --main-class game.Pong -C "$CLASSES" .
+
+# Training run; the archive is written when the JVM exits, even if the
+# game failed to start, so only keep it if the run succeeded
+java -XX:ArchiveClassesAtExit="$ARCHIVE.tmp" -jar "$JAR" -exit-after-startup
+mv "$ARCHIVE.tmp" "$ARCHIVE"
+
+echo "Created $ARCHIVE"
@@ -0,0 +1,259 @@
+package bot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The bot's side of a BotServer's shared file.
+ *
+ * Actions are written with setAction() and sent with step(), which blocks
+ * until every environment has been stepped. Observations can then be read
+ * with the getters, or in bulk from getBuffer(); see BotLayout.
+ *
+ * A BotClient must only be used by one Thread.
+ *
+ * @author Dan Bryce
+ */
+public class BotClient {
+
+	/**
+	 * Number of empty polls before the client starts to yield.
+	 */
+	private static final int SPIN_LIMIT = 1 << 20;
+
+	private final MappedByteBuffer map;
+	private final BotLayout layout;
+	private long request;
+
+	/**
+	 * Connects to the shared file of a BotServer, waiting for the server to
+	 * be ready.
+	 * @param file
+	 * @throws IOException If the file is not a bot file, or the server has
+	 * closed.
+	 * @throws InterruptedException
+	 */
+	public BotClient(Path file) throws IOException, InterruptedException {
+
+		// The server creates the file, so it may not be there yet
+		while (!Files.exists(file) ||
+				Files.size(file) < BotLayout.HEADER_SIZE){
+			Thread.sleep(10);
+		}
+
+		MappedByteBuffer header;
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)){
+			header = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					BotLayout.HEADER_SIZE);
+			while (BotLayout.getStatus(header) == BotLayout.STATUS_STARTING){
+				Thread.sleep(10);
+			}
+			layout = BotLayout.read(header);
+			map = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					layout.getFileSize());
+		}
+		BotLayout.read(map);
+
+		if (BotLayout.getStatus(map) == BotLayout.STATUS_CLOSED){
+			throw new IOException("Bot server has closed");
+		}
+		request = BotLayout.getResponse(map);
+	}
+
+	/**
+	 * Sets the action of a controlled Player, to be sent by the next step.
+	 * @param env Environment number.
+	 * @param player Index among the controlled Players.
+	 * @param dir Direction constant from GameState.
+	 */
+	public void setAction(int env, int player, int dir) {
+		map.put(layout.getActionOffset() + env * layout.getNumControlled() +
+				player, (byte) dir);
+	}
+
+	/**
+	 * Steps every environment, using the actions set so far.
+	 */
+	public void step() {
+		send(BotLayout.COMMAND_STEP);
+	}
+
+	/**
+	 * Starts a new episode in every environment.
+	 */
+	public void reset() {
+		send(BotLayout.COMMAND_RESET);
+	}
+
+	/**
+	 * Stops the server.
+	 */
+	public void close() {
+		BotLayout.setCommand(map, BotLayout.COMMAND_CLOSE);
+		BotLayout.setRequest(map, ++request);
+	}
+
+	/**
+	 * Sends a command and waits for the server to carry it out.
+	 * @param command
+	 * @throws IllegalStateException If the server has closed.
+	 */
+	private void send(int command) {
+		BotLayout.setCommand(map, command);
+		BotLayout.setRequest(map, ++request);
+
+		int idle = 0;
+		while (BotLayout.getResponse(map) != request){
+			if (BotLayout.getStatus(map) == BotLayout.STATUS_CLOSED){
+				throw new IllegalStateException("Bot server has closed");
+			}
+			idle = BotLayout.backOff(idle, SPIN_LIMIT);
+		}
+	}
+
+	/**
+	 * Gets the number of ticks since an environment's episode started.
+	 * @param env
+	 * @return
+	 */
+	public int getTick(int env) {
+		return map.getInt(layout.getObservationOffset(env));
+	}
+
+	/**
+	 * Determines if an environment's episode ended on the last step.
+	 *
+	 * The environment will be reset by the next step.
+	 * @param env
+	 * @return
+	 */
+	public boolean isDone(int env) {
+		return map.getInt(layout.getObservationOffset(env) + 4) != 0;
+	}
+
+	/**
+	 * Gets the position of a Player's centre along its wall.
+	 * @param env
+	 * @param player Player number.
+	 * @return
+	 */
+	public float getPlayerPosition(int env, int player) {
+		return map.getFloat(getPlayerOffset(env, player));
+	}
+
+	/**
+	 * Gets the speed of a Player along its wall.
+	 * @param env
+	 * @param player Player number.
+	 * @return
+	 */
+	public float getPlayerSpeed(int env, int player) {
+		return map.getFloat(getPlayerOffset(env, player) + 4);
+	}
+
+	/**
+	 * Gets a Player's score.
+	 * @param env
+	 * @param player Player number.
+	 * @return
+	 */
+	public int getScore(int env, int player) {
+		return map.getInt(getPlayerOffset(env, player) + 8);
+	}
+
+	/**
+	 * Gets the number of points a Player scored on the last step.
+	 * @param env
+	 * @param player Player number.
+	 * @return
+	 */
+	public int getReward(int env, int player) {
+		return map.getInt(getPlayerOffset(env, player) + 12);
+	}
+
+	/**
+	 * Gets the x-co-ordinate of a Ball's centre.
+	 * @param env
+	 * @param ball
+	 * @return
+	 */
+	public float getBallX(int env, int ball) {
+		return map.getFloat(getBallOffset(env, ball));
+	}
+
+	/**
+	 * Gets the y-co-ordinate of a Ball's centre.
+	 * @param env
+	 * @param ball
+	 * @return
+	 */
+	public float getBallY(int env, int ball) {
+		return map.getFloat(getBallOffset(env, ball) + 4);
+	}
+
+	/**
+	 * Gets the speed of a Ball in the x-direction.
+	 * @param env
+	 * @param ball
+	 * @return
+	 */
+	public float getBallSpeedX(int env, int ball) {
+		return map.getFloat(getBallOffset(env, ball) + 8);
+	}
+
+	/**
+	 * Gets the speed of a Ball in the y-direction.
+	 * @param env
+	 * @param ball
+	 * @return
+	 */
+	public float getBallSpeedY(int env, int ball) {
+		return map.getFloat(getBallOffset(env, ball) + 12);
+	}
+
+	/**
+	 * Gets the offset of a Player's observation.
+	 * @param env
+	 * @param player
+	 * @return
+	 */
+	private int getPlayerOffset(int env, int player) {
+		return layout.getObservationOffset(env) + BotLayout.ENV_HEADER_SIZE +
+				player * BotLayout.PLAYER_SIZE;
+	}
+
+	/**
+	 * Gets the offset of a Ball's observation.
+	 * @param env
+	 * @param ball
+	 * @return
+	 */
+	private int getBallOffset(int env, int ball) {
+		return layout.getObservationOffset(env) + BotLayout.ENV_HEADER_SIZE +
+				layout.getNumPlayers() * BotLayout.PLAYER_SIZE +
+				ball * BotLayout.BALL_SIZE;
+	}
+
+	/**
+	 * Gets the whole shared file, for reading observations in bulk.
+	 * @return
+	 */
+	public ByteBuffer getBuffer() {
+		return map.duplicate().order(map.order());
+	}
+
+	/**
+	 * Gets the layout of the shared file.
+	 * @return
+	 */
+	public BotLayout getLayout() {
+		return layout;
+	}
+
+}
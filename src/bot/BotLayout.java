@@ -0,0 +1,310 @@
+package bot;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Layout of the file shared between a BotServer and a bot.
+ *
+ * All values are little-endian, so the file can be used directly from
+ * other languages, e.g. as a numpy memmap. The file consists of:
+ *
+ *     Header (192 bytes):
+ *       0   int magic, int version
+ *       8   int environments, int players, int controlled players,
+ *           int balls
+ *       24  int action offset, int observation offset,
+ *           int observation stride
+ *       36  int server status (0 = starting, 1 = ready, 2 = closed)
+ *       40  int command (0 = step, 1 = reset, 2 = close)
+ *       64  long request number, written by the bot
+ *       128 long response number, written by the server
+ *
+ *     Actions: one signed byte per controlled Player per environment, in
+ *     Player order: -1 (up / left), 0 (none) or 1 (down / right).
+ *
+ *     Observations: one block per environment, each "observation stride"
+ *     bytes long:
+ *       int tick within the episode, int done (1 if the episode just ended)
+ *       per Player: float centre along its wall, float speed, int score,
+ *           int points scored this step
+ *       per Ball: float centre x, float centre y, float speed x,
+ *           float speed y
+ *
+ * To step, the bot writes its actions and the command, then writes a new
+ * request number with release semantics. The server replies by writing
+ * the same number as its response once the observations are ready. The
+ * request and response numbers are on separate cache lines, so polling
+ * one does not slow down writes to the other.
+ *
+ * @author Dan Bryce
+ */
+public class BotLayout {
+
+	public static final int MAGIC = 0x50424F54;
+	public static final int VERSION = 1;
+
+	public static final int STATUS_STARTING = 0;
+	public static final int STATUS_READY = 1;
+	public static final int STATUS_CLOSED = 2;
+
+	public static final int COMMAND_STEP = 0;
+	public static final int COMMAND_RESET = 1;
+	public static final int COMMAND_CLOSE = 2;
+
+	public static final int HEADER_SIZE = 192;
+	public static final int ENV_HEADER_SIZE = 8;
+	public static final int PLAYER_SIZE = 16;
+	public static final int BALL_SIZE = 16;
+
+	private static final int STATUS = 36;
+	private static final int COMMAND = 40;
+	private static final int REQUEST = 64;
+	private static final int RESPONSE = 128;
+	private static final int ALIGNMENT = 64;
+
+	// Spinning only helps if the peer has a core of its own
+	private static final boolean CAN_SPIN =
+			Runtime.getRuntime().availableProcessors() > 1;
+
+	private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(
+			int[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(
+			long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private final int numEnvs;
+	private final int numPlayers;
+	private final int numControlled;
+	private final int numBalls;
+	private final int actionOffset;
+	private final int observationOffset;
+	private final int observationStride;
+
+	/**
+	 * Calculates the layout for the given batch of environments.
+	 * @param numEnvs
+	 * @param numPlayers
+	 * @param numControlled
+	 * @param numBalls
+	 */
+	public BotLayout(int numEnvs, int numPlayers, int numControlled,
+			int numBalls) {
+		this.numEnvs = numEnvs;
+		this.numPlayers = numPlayers;
+		this.numControlled = numControlled;
+		this.numBalls = numBalls;
+		actionOffset = HEADER_SIZE;
+		observationOffset = align(actionOffset + numEnvs * numControlled);
+		observationStride = ENV_HEADER_SIZE + numPlayers * PLAYER_SIZE +
+				numBalls * BALL_SIZE;
+	}
+
+	/**
+	 * Reads the layout from the header of a shared file.
+	 * @param buffer
+	 * @return
+	 * @throws IOException If the file is not a bot file.
+	 */
+	public static BotLayout read(ByteBuffer buffer) throws IOException {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION){
+			throw new IOException("Not a bot file");
+		}
+		return new BotLayout(buffer.getInt(8), buffer.getInt(12),
+				buffer.getInt(16), buffer.getInt(20));
+	}
+
+	/**
+	 * Writes the header of a new shared file.
+	 * @param buffer
+	 */
+	void writeHeader(ByteBuffer buffer) {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(8, numEnvs);
+		buffer.putInt(12, numPlayers);
+		buffer.putInt(16, numControlled);
+		buffer.putInt(20, numBalls);
+		buffer.putInt(24, actionOffset);
+		buffer.putInt(28, observationOffset);
+		buffer.putInt(32, observationStride);
+		setStatus(buffer, STATUS_STARTING);
+	}
+
+	/**
+	 * Rounds an offset up to the next cache line.
+	 * @param offset
+	 * @return
+	 */
+	private static int align(int offset) {
+		return (offset + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+
+	/**
+	 * Gets the server status.
+	 * @param buffer
+	 * @return
+	 */
+	public static int getStatus(ByteBuffer buffer) {
+		return (int) INT.getAcquire(buffer, STATUS);
+	}
+
+	/**
+	 * Sets the server status.
+	 * @param buffer
+	 * @param status
+	 */
+	static void setStatus(ByteBuffer buffer, int status) {
+		INT.setRelease(buffer, STATUS, status);
+	}
+
+	/**
+	 * Gets the command that goes with the latest request.
+	 * @param buffer
+	 * @return
+	 */
+	static int getCommand(ByteBuffer buffer) {
+		return buffer.getInt(COMMAND);
+	}
+
+	/**
+	 * Sets the command for the next request.
+	 * @param buffer
+	 * @param command
+	 */
+	static void setCommand(ByteBuffer buffer, int command) {
+		buffer.putInt(COMMAND, command);
+	}
+
+	/**
+	 * Gets the latest request number.
+	 * @param buffer
+	 * @return
+	 */
+	static long getRequest(ByteBuffer buffer) {
+		return (long) LONG.getAcquire(buffer, REQUEST);
+	}
+
+	/**
+	 * Publishes a request, after its actions and command have been written.
+	 * @param buffer
+	 * @param request
+	 */
+	static void setRequest(ByteBuffer buffer, long request) {
+		LONG.setRelease(buffer, REQUEST, request);
+	}
+
+	/**
+	 * Gets the number of the latest request to be completed.
+	 * @param buffer
+	 * @return
+	 */
+	static long getResponse(ByteBuffer buffer) {
+		return (long) LONG.getAcquire(buffer, RESPONSE);
+	}
+
+	/**
+	 * Publishes a response, after its observations have been written.
+	 * @param buffer
+	 * @param response
+	 */
+	static void setResponse(ByteBuffer buffer, long response) {
+		LONG.setRelease(buffer, RESPONSE, response);
+	}
+
+	/**
+	 * Waits a little while polling shared memory: spinning at first, then
+	 * yielding, then sleeping, so that an idle peer does not burn a core.
+	 *
+	 * On a single core, spinning would only delay the peer, so this yields
+	 * straight away.
+	 * @param idle Number of polls so far that found nothing to do.
+	 * @param spinLimit Number of polls to spin for before yielding.
+	 * @return The new number of idle polls.
+	 */
+	static int backOff(int idle, int spinLimit) {
+		if (!CAN_SPIN && idle < spinLimit){
+			idle = spinLimit;
+		}
+		if (idle < spinLimit){
+			Thread.onSpinWait();
+		} else if (idle < spinLimit * 2){
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(50000);
+			return idle;
+		}
+		return idle + 1;
+	}
+
+	/**
+	 * Gets the size of the shared file.
+	 * @return
+	 */
+	public long getFileSize() {
+		return (long) observationOffset + (long) numEnvs * observationStride;
+	}
+
+	/**
+	 * Gets the number of environments.
+	 * @return
+	 */
+	public int getNumEnvs() {
+		return numEnvs;
+	}
+
+	/**
+	 * Gets the number of Players in each environment.
+	 * @return
+	 */
+	public int getNumPlayers() {
+		return numPlayers;
+	}
+
+	/**
+	 * Gets the number of Players in each environment that the bot controls.
+	 * @return
+	 */
+	public int getNumControlled() {
+		return numControlled;
+	}
+
+	/**
+	 * Gets the number of Balls in each environment.
+	 * @return
+	 */
+	public int getNumBalls() {
+		return numBalls;
+	}
+
+	/**
+	 * Gets the offset of the first action.
+	 * @return
+	 */
+	public int getActionOffset() {
+		return actionOffset;
+	}
+
+	/**
+	 * Gets the offset of an environment's observation.
+	 * @param env
+	 * @return
+	 */
+	public int getObservationOffset(int env) {
+		return observationOffset + env * observationStride;
+	}
+
+	/**
+	 * Gets the number of bytes in each environment's observation.
+	 * @return
+	 */
+	public int getObservationStride() {
+		return observationStride;
+	}
+
+}
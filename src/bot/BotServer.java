@@ -0,0 +1,328 @@
+package bot;
+
+import game.AISettings;
+import game.Ball;
+import game.Entity;
+import game.Physics;
+import game.Player;
+import game.Side;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import state.GameState;
+
+/**
+ * Runs a batch of headless games for external bots, communicating through
+ * a shared memory-mapped file; see BotLayout.
+ *
+ * Each step, the bot writes an action for every controlled Player in every
+ * environment, then bumps the request number. The server steps all
+ * environments in lockstep, writes their observations, and publishes the
+ * request number as its response. Nothing is copied or serialized beyond
+ * reading and writing the shared memory, so throughput is limited only by
+ * the cost of the ticks themselves.
+ *
+ * Players whose AISettings are null are controlled by the bot; the rest
+ * are ordinary AIPlayers. An environment ends when a Player reaches the
+ * target score or the tick limit is reached; the next step then resets it
+ * instead of ticking it, in the same way as Gym's vector environments.
+ *
+ * Large batches are split across all cores.
+ *
+ * @author Dan Bryce
+ */
+public class BotServer {
+
+	/**
+	 * Batches smaller than this are stepped on a single Thread.
+	 */
+	private static final int MIN_PARALLEL_ENVS = 256;
+
+	/**
+	 * Number of empty polls before the server starts to yield.
+	 */
+	private static final int SPIN_LIMIT = 1 << 16;
+
+	private final MappedByteBuffer map;
+	private final BotLayout layout;
+	private final int balls;
+	private final Physics physics;
+	private final Side[] sides;
+	private final AISettings[] ai;
+	private final int[] controlled;
+	private final int targetScore;
+	private final int maxTicks;
+	private final long seed;
+
+	private final GameState[] games;
+	private final int[] episodeTicks;
+	private final boolean[] done;
+	private final long[] episodes;
+	private final int[][] lastScores;
+	private final int chunks;
+
+	private volatile boolean stopped;
+
+	/**
+	 * Creates the shared file and the environments.
+	 * @param file File to share with the bot, which is replaced if it exists.
+	 * @param numEnvs Number of environments.
+	 * @param balls Number of Balls in each environment.
+	 * @param physics
+	 * @param sides Wall of each Player.
+	 * @param ai Settings for each Player, or null for a Player controlled by
+	 * the bot.
+	 * @param targetScore Score that ends an environment's episode.
+	 * @param maxTicks Number of ticks that ends an environment's episode.
+	 * @param seed Seed from which every episode's seed is derived.
+	 * @throws IOException
+	 */
+	public BotServer(Path file, int numEnvs, int balls, Physics physics,
+			Side[] sides, AISettings[] ai, int targetScore, int maxTicks,
+			long seed) throws IOException {
+
+		this.balls = balls;
+		this.physics = physics;
+		this.sides = sides;
+		this.ai = ai;
+		this.targetScore = targetScore;
+		this.maxTicks = maxTicks;
+		this.seed = seed;
+
+		int numControlled = 0;
+		for (AISettings settings : ai){
+			if (settings == null) numControlled++;
+		}
+		controlled = new int[numControlled];
+		for (int i = 0, c = 0; i < ai.length; i++){
+			if (ai[i] == null) controlled[c++] = i;
+		}
+
+		layout = new BotLayout(numEnvs, sides.length, numControlled, balls);
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE)){
+			map = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					layout.getFileSize());
+		}
+		layout.writeHeader(map);
+
+		games = new GameState[numEnvs];
+		episodeTicks = new int[numEnvs];
+		done = new boolean[numEnvs];
+		episodes = new long[numEnvs];
+		lastScores = new int[numEnvs][sides.length];
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		chunks = numEnvs < MIN_PARALLEL_ENVS ? 1 : Math.min(cores, numEnvs);
+
+		resetAll();
+		BotLayout.setStatus(map, BotLayout.STATUS_READY);
+	}
+
+	/**
+	 * Serves requests from the bot until it closes the connection, or
+	 * close() is called.
+	 */
+	public void run() {
+
+		long handled = BotLayout.getResponse(map);
+		int idle = 0;
+
+		while (!stopped){
+
+			long request = BotLayout.getRequest(map);
+			if (request == handled){
+				idle = BotLayout.backOff(idle, SPIN_LIMIT);
+				continue;
+			}
+			idle = 0;
+
+			int command = BotLayout.getCommand(map);
+			if (command == BotLayout.COMMAND_CLOSE){
+				break;
+			} else if (command == BotLayout.COMMAND_RESET){
+				resetAll();
+			} else {
+				stepAll();
+			}
+
+			handled = request;
+			BotLayout.setResponse(map, handled);
+		}
+
+		BotLayout.setStatus(map, BotLayout.STATUS_CLOSED);
+	}
+
+	/**
+	 * Stops the server after the current request.
+	 */
+	public void close() {
+		stopped = true;
+	}
+
+	/**
+	 * Starts a new episode in every environment.
+	 */
+	private void resetAll() {
+		forEachChunk(this::resetRange);
+	}
+
+	/**
+	 * Steps every environment once.
+	 */
+	private void stepAll() {
+		forEachChunk(this::stepRange);
+	}
+
+	/**
+	 * Calls the given function for each chunk of environments, in parallel
+	 * if there is more than one chunk.
+	 * @param function
+	 */
+	private void forEachChunk(RangeFunction function) {
+		int numEnvs = games.length;
+		if (chunks == 1){
+			function.apply(0, numEnvs);
+			return;
+		}
+		IntStream.range(0, chunks).parallel().forEach(chunk ->
+				function.apply(
+						(int) ((long) numEnvs * chunk / chunks),
+						(int) ((long) numEnvs * (chunk + 1) / chunks)));
+	}
+
+	/**
+	 * Function applied to a range of environments.
+	 */
+	private interface RangeFunction {
+
+		/**
+		 * @param start First environment (inclusive).
+		 * @param end Last environment (exclusive).
+		 */
+		void apply(int start, int end);
+	}
+
+	/**
+	 * Resets a range of environments.
+	 * @param start
+	 * @param end
+	 */
+	private void resetRange(int start, int end) {
+		for (int env = start; env < end; env++){
+			reset(env);
+			writeObservation(env, 0);
+		}
+	}
+
+	/**
+	 * Steps a range of environments, resetting any that finished on the
+	 * previous step.
+	 * @param start
+	 * @param end
+	 */
+	private void stepRange(int start, int end) {
+
+		int actionBase = layout.getActionOffset();
+
+		for (int env = start; env < end; env++){
+
+			if (done[env]){
+				reset(env);
+				writeObservation(env, 0);
+				continue;
+			}
+
+			GameState game = games[env];
+			int actions = actionBase + env * controlled.length;
+			for (int c = 0; c < controlled.length; c++){
+				int dir = Integer.signum(map.get(actions + c));
+				game.getPlayer(controlled[c]).setDir(dir);
+			}
+
+			game.tick();
+			episodeTicks[env]++;
+
+			boolean finished = episodeTicks[env] >= maxTicks;
+			for (int p = 0; p < sides.length; p++){
+				if (game.getPlayer(p).getScore() >= targetScore){
+					finished = true;
+				}
+			}
+			done[env] = finished;
+			writeObservation(env, finished ? 1 : 0);
+		}
+	}
+
+	/**
+	 * Starts a new episode in an environment.
+	 * @param env
+	 */
+	private void reset(int env) {
+		long episodeSeed = seed + env * 0x9E3779B97F4A7C15L + episodes[env];
+		games[env] = new GameState(null, balls, physics, sides, ai,
+				episodeSeed);
+		episodes[env]++;
+		episodeTicks[env] = 0;
+		done[env] = false;
+		Arrays.fill(lastScores[env], 0);
+	}
+
+	/**
+	 * Writes the current state of an environment to the shared file.
+	 * @param env
+	 * @param finished 1 if the episode has just ended, otherwise 0.
+	 */
+	private void writeObservation(int env, int finished) {
+
+		GameState game = games[env];
+		int pos = layout.getObservationOffset(env);
+
+		map.putInt(pos, episodeTicks[env]);
+		map.putInt(pos + 4, finished);
+		pos += BotLayout.ENV_HEADER_SIZE;
+
+		int[] scores = lastScores[env];
+		for (int p = 0; p < sides.length; p++){
+			Player player = game.getPlayer(p);
+			double along = player.getSide().isVertical() ?
+					player.getY() : player.getX();
+			int score = player.getScore();
+			map.putFloat(pos, (float) (along + Player.HEIGHT / 2));
+			map.putFloat(pos + 4, (float) player.getSpeed());
+			map.putInt(pos + 8, score);
+			map.putInt(pos + 12, score - scores[p]);
+			scores[p] = score;
+			pos += BotLayout.PLAYER_SIZE;
+		}
+
+		ArrayList<Entity> entities = game.getEntities();
+		for (int i = sides.length; i < entities.size(); i++){
+			Ball ball = (Ball) entities.get(i);
+			map.putFloat(pos, (float) (ball.getX() + Ball.WIDTH / 2));
+			map.putFloat(pos + 4, (float) (ball.getY() + Ball.HEIGHT / 2));
+			map.putFloat(pos + 8, (float) ball.getSpeedX());
+			map.putFloat(pos + 12, (float) ball.getSpeedY());
+			pos += BotLayout.BALL_SIZE;
+		}
+	}
+
+	/**
+	 * Gets the layout of the shared file.
+	 * @return
+	 */
+	public BotLayout getLayout() {
+		return layout;
+	}
+
+}
@@ -12,36 +12,52 @@ import state.GameState;
 public class AIPlayer extends Player {
 
 	private ArrayList<Entity> entities;
+	private AISettings settings;
 
 	/**
 	 * Constructs an AIPlayer.
-	 * @param id Player number (0 or 1), determines x-position.
+	 * @param id Player number.
+	 * @param side Wall on which the paddle sits.
+	 * @param physics
+	 * @param settings
 	 * @param entities The list of Entities in the game.
 	 */
-	public AIPlayer(int id, ArrayList<Entity> entities) {
-		super(id);
+	public AIPlayer(int id, Side side, Physics physics, AISettings settings,
+			ArrayList<Entity> entities) {
+		super(id, side, physics);
+		this.settings = settings;
 		this.entities = entities;
 	}
 	
 	/**
-	 * Processes the AI.
+	 * Chooses a new direction.
+	 * 
+	 * The paddle moves every tick, like any Player, but this is only called 
+	 * at the AI's decision rate; see AISettings.getDecisionRate().
 	 */
-	@Override
-	public void tick() {
-		super.tick();
+	public void decide() {
 		
+		boolean vertical = side.isVertical();
 		Entity nearestBall = null;
 		int shortestDist = Integer.MAX_VALUE;
-		int px = (int) (x1 + WIDTH/2);
-		int py = (int) (y1 + HEIGHT/2);
+		int px = (int) (x1 + x2) / 2;
+		int py = (int) (y1 + y2) / 2;
 		
 		// Find nearest Ball
 		for (Entity entity : entities){
 			if (!(entity instanceof Ball)) continue;
 			
 			// Calculate Entity centre
-			int bx = (int) (entity.x1 + Ball.WIDTH/2);
-			int by = (int) (entity.y1 + Ball.HEIGHT/2);
+			int bx = (int) (entity.getX() + Ball.WIDTH/2);
+			int by = (int) (entity.getY() + Ball.HEIGHT/2);
+			
+			// Ignore Balls we are not interested in
+			int distFromWall = vertical ? px - bx : py - by;
+			if (Math.abs(distFromWall) > settings.getReactionDistance()){
+				continue;
+			}
+			if (settings.isApproachingOnly() && 
+					!isApproaching((Ball) entity)) continue;
 			
 			// Calculate distance
 			int dx = px - bx;
@@ -55,14 +71,60 @@ public class AIPlayer extends Player {
 			}
 		}
 		
+		// Return to the centre if there is nothing to chase
+		if (nearestBall == null){
+			int centre = (vertical ? 
+					GameState.GAME_HEIGHT : GameState.GAME_WIDTH) / 2;
+			int pos = vertical ? py : px;
+			if (pos < centre - HEIGHT/4){
+				dir = GameState.DIR_DOWN;
+			} else if (pos > centre + HEIGHT/4){
+				dir = GameState.DIR_UP;
+			} else {
+				dir = GameState.DIR_NONE;
+			}
+			return;
+		}
+		
 		// Move towards nearest Ball
-		if (nearestBall.y1 < y1){
+		double margin = settings.getMargin();
+		double ballStart = vertical ? nearestBall.getY() : nearestBall.getX();
+		double ballEnd = ballStart + (vertical ? Ball.HEIGHT : Ball.WIDTH);
+		double start = vertical ? y1 : x1;
+		double end = vertical ? y2 : x2;
+		if (ballStart < start + margin){
 			dir = GameState.DIR_UP;
-		} else if (nearestBall.y2 > y2) {
+		} else if (ballEnd > end - margin) {
 			dir = GameState.DIR_DOWN;
 		} else {
 			dir = GameState.DIR_NONE;
 		}
 	}
 	
+	/**
+	 * Getter for the settings of this AI.
+	 * @return
+	 */
+	public AISettings getSettings() {
+		return settings;
+	}
+	
+	/**
+	 * Determines if the given Ball is moving towards this AIPlayer.
+	 * @param ball
+	 * @return
+	 */
+	private boolean isApproaching(Ball ball) {
+		switch (side){
+		case LEFT:
+			return ball.getSpeedX() < 0;
+		case RIGHT:
+			return ball.getSpeedX() > 0;
+		case TOP:
+			return ball.getSpeedY() < 0;
+		default:
+			return ball.getSpeedY() > 0;
+		}
+	}
+	
 }
@@ -0,0 +1,105 @@
+package game;
+
+/**
+ * Settings that control the behaviour of an AIPlayer.
+ * 
+ * @author Dan Bryce
+ */
+public class AISettings {
+
+	/**
+	 * The standard AI, which always chases the nearest Ball.
+	 */
+	public static final AISettings DEFAULT =
+			new AISettings(0, Double.MAX_VALUE, false);
+
+	private final double margin;
+	private final double reactionDistance;
+	private final boolean approachingOnly;
+	private final int decisionRate;
+
+	/**
+	 * Constructs a set of AISettings.
+	 * @param margin How far inside the paddle the Ball must be before the AI
+	 * stops moving; negative values let the Ball overhang the paddle.
+	 * @param reactionDistance Horizontal distance within which the AI reacts
+	 * to a Ball; if no Ball is this close, the AI returns to the centre.
+	 * @param approachingOnly Whether to ignore Balls moving away.
+	 */
+	public AISettings(double margin, double reactionDistance,
+			boolean approachingOnly) {
+		this(margin, reactionDistance, approachingOnly, 60);
+	}
+
+	/**
+	 * Constructs a set of AISettings with the given decision rate.
+	 * @param margin
+	 * @param reactionDistance
+	 * @param approachingOnly
+	 * @param decisionRate Number of times per second the AI chooses a new 
+	 * direction; rates that do not divide the tick rate are rounded up to 
+	 * the next rate that does.
+	 * @throws IllegalArgumentException If the rate is less than 1.
+	 */
+	public AISettings(double margin, double reactionDistance,
+			boolean approachingOnly, int decisionRate) {
+		if (decisionRate < 1){
+			throw new IllegalArgumentException(
+					"Expected a decision rate of at least 1");
+		}
+		this.margin = margin;
+		this.reactionDistance = reactionDistance;
+		this.approachingOnly = approachingOnly;
+		this.decisionRate = decisionRate;
+	}
+
+	/**
+	 * Creates a copy of these AISettings with the given decision rate.
+	 * @param decisionRate
+	 * @return
+	 */
+	public AISettings withDecisionRate(int decisionRate) {
+		return new AISettings(margin, reactionDistance, approachingOnly, 
+				decisionRate);
+	}
+
+	/**
+	 * Getter for margin.
+	 * @return
+	 */
+	public double getMargin() {
+		return margin;
+	}
+
+	/**
+	 * Getter for reaction distance.
+	 * @return
+	 */
+	public double getReactionDistance() {
+		return reactionDistance;
+	}
+
+	/**
+	 * Whether the AI ignores Balls moving away from it.
+	 * @return
+	 */
+	public boolean isApproachingOnly() {
+		return approachingOnly;
+	}
+
+	/**
+	 * Gets the number of times per second the AI chooses a new direction.
+	 * @return
+	 */
+	public int getDecisionRate() {
+		return decisionRate;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("margin=%.1f reaction=%.0f approachingOnly=%b%s",
+				margin, reactionDistance, approachingOnly, 
+				decisionRate != 60 ? " rate=" + decisionRate : "");
+	}
+
+}
@@ -0,0 +1,219 @@
+package game;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Loads the game's resources in parallel on background Threads.
+ *
+ * Images are decoded, optionally coloured, and converted to the format of
+ * the screen so that they can be drawn as quickly as possible. Nothing is
+ * done on the calling Thread, so the window can be created while loading;
+ * even ImageIO and the graphics environment are initialised by the loader
+ * Threads.
+ *
+ * @author Dan Bryce
+ */
+public class Assets {
+
+	private Map<String, Color> requested;
+	private Map<String, BufferedImage> images;
+	private AtomicInteger numLoaded;
+	private volatile GraphicsConfiguration gc;
+
+	/**
+	 * Constructs an empty set of Assets.
+	 */
+	public Assets() {
+		requested = new LinkedHashMap<String, Color>();
+		images = new ConcurrentHashMap<String, BufferedImage>();
+		numLoaded = new AtomicInteger();
+	}
+
+	/**
+	 * Adds an image to be loaded by the next call to loadAll().
+	 *
+	 * Note that this assumes the image has a PNG extension.
+	 * @param name
+	 * @param colour Colour to apply to all visible pixels, or null.
+	 */
+	public void addImage(String name, Color colour) {
+		requested.put(name, colour);
+	}
+
+	/**
+	 * Starts loading all requested images.
+	 *
+	 * Each image is loaded by a separate task, so the time taken depends on
+	 * the largest image rather than the number of images.
+	 * @return Future that completes once all images have loaded.
+	 */
+	public CompletableFuture<Void> loadAll() {
+
+		int numThreads = Math.min(requested.size(),
+				Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.max(numThreads, 1), runnable -> {
+					Thread thread = new Thread(runnable, "AssetLoader");
+					thread.setDaemon(true);
+					return thread;
+				});
+
+		// Decode straight from memory rather than through a temporary file.
+		// This is a global setting, so is made once before any image is
+		// read; it is queued first, since initialising ImageIO is slow.
+		CompletableFuture<Void> imageIO = CompletableFuture.runAsync(
+				() -> ImageIO.setUseCache(false), executor);
+
+		List<CompletableFuture<Void>> tasks =
+				new ArrayList<CompletableFuture<Void>>();
+		for (Map.Entry<String, Color> entry : requested.entrySet()){
+			String name = entry.getKey();
+			Color colour = entry.getValue();
+			tasks.add(CompletableFuture.runAsync(() -> {
+				imageIO.join();
+				load(name, colour);
+			}, executor));
+		}
+
+		// Threads will exit once the queued tasks are complete
+		executor.shutdown();
+
+		return CompletableFuture.allOf(
+				tasks.toArray(new CompletableFuture<?>[tasks.size()]));
+	}
+
+	/**
+	 * Loads, colours and converts a single image.
+	 * @param name
+	 * @param colour
+	 */
+	private void load(String name, Color colour) {
+		try {
+			BufferedImage image = readImage(name);
+			if (colour != null){
+				image = colourImage(image, colour);
+			}
+			images.put(name, toCompatibleImage(image));
+		} catch (IOException e){
+			e.printStackTrace();
+		} finally {
+			numLoaded.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Decodes the image with the given name.
+	 * @param name
+	 * @return
+	 * @throws IOException
+	 */
+	private BufferedImage readImage(String name) throws IOException {
+		ClassLoader cl = this.getClass().getClassLoader();
+		URL url = cl.getResource("gfx/" + name + ".png");
+		if (url == null){
+			throw new IOException("Missing image: " + name);
+		}
+		return ImageIO.read(url);
+	}
+
+	/**
+	 * Copies an image into the format best suited to the screen.
+	 *
+	 * Images in this format can be drawn without any conversion.
+	 * @param img
+	 * @return
+	 */
+	private BufferedImage toCompatibleImage(BufferedImage img) {
+
+		GraphicsConfiguration gc = getGraphicsConfiguration();
+		if (gc == null) return img;
+
+		int transparency = img.getTransparency();
+		if (img.getColorModel().equals(gc.getColorModel(transparency))){
+			return img;
+		}
+
+		BufferedImage compatibleImg = gc.createCompatibleImage(
+				img.getWidth(), img.getHeight(), transparency);
+		Graphics2D g = compatibleImg.createGraphics();
+		g.drawImage(img, 0, 0, null);
+		g.dispose();
+		return compatibleImg;
+	}
+
+	/**
+	 * Gets the configuration of the screen, looking it up on first use.
+	 * @return The configuration, or null if there is no screen.
+	 */
+	private GraphicsConfiguration getGraphicsConfiguration() {
+		if (gc == null && !GraphicsEnvironment.isHeadless()){
+			gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+					.getDefaultScreenDevice().getDefaultConfiguration();
+		}
+		return gc;
+	}
+
+	/**
+	 * Changes all visible pixels in an image to the given Color.
+	 * @param img
+	 * @param color
+	 * @return
+	 */
+	private static BufferedImage colourImage(BufferedImage img, Color color) {
+
+		int width = img.getWidth();
+		int height = img.getHeight();
+		BufferedImage colouredImg = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+
+		// Strip alpha value from desired colour
+		int newRGB = color.getRGB() & 0x00ffffff;
+
+		// Convert the whole image at once, rather than pixel by pixel
+		int[] pixels = img.getRGB(0, 0, width, height, null, 0, width);
+		for (int i = 0; i < pixels.length; i++){
+
+			// Apply new colour to existing alpha values
+			pixels[i] = (pixels[i] & 0xff000000) | newRGB;
+		}
+		colouredImg.setRGB(0, 0, width, height, pixels, 0, width);
+
+		return colouredImg;
+	}
+
+	/**
+	 * Gets the fraction of requested images that have finished loading.
+	 * @return Progress from 0 to 1.
+	 */
+	public float getProgress() {
+		if (requested.isEmpty()) return 1;
+		return (float) numLoaded.get() / requested.size();
+	}
+
+	/**
+	 * Gets the image with the given name.
+	 * @param name
+	 * @return The image, or null if it has not loaded.
+	 */
+	public BufferedImage getImage(String name) {
+		return images.get(name);
+	}
+
+}
@@ -1,167 +1,127 @@
 package game;
 
 import java.awt.Color;
-import java.awt.Graphics2D;
 
+import render.Renderer;
 import state.GameState;
 
 /**
  * Class representing the ball!
  * 
+ * The movement of the Ball is implemented by FloatBall, or by FixedBall
+ * when the game uses fixed-point Physics. Balls are ticked once per 
+ * substep, moving by a fraction of their speed each time; see 
+ * Physics.getBallSubsteps().
+ * 
  * @author Dan Bryce
  */
-public class Ball extends Entity {
+public abstract class Ball extends Entity {
 
 	public static final int WIDTH = 32;
 	public static final int HEIGHT = 32;
-	
-	private static final double INITIAL_SPEED = 5.5;
-	private static final double MAX_SPEED = 20.0;
-	private static final double BOUNCE_SPEED_MULTIPLIER = 1.1;
-	
-	private double angle, speed, speedX, speedY;
-	private GameState state;
-	private Player p1, p2;
+
+	static final double INITIAL_SPEED = 5.5;
+	protected static final double MAX_SPEED = 20.0;
+
+	protected int hits;
+	protected GameState state;
+	protected Physics physics;
+	protected EventBus events;
+	protected Player[] paddles;
+	protected Player lastHitBy;
+	protected final int substeps;
+
+	/**
+	 * Constructs a Ball belonging to the given GameState.
+	 * @param state
+	 */
+	protected Ball(GameState state) {
+		this.state = state;
+		this.physics = state.getPhysics();
+		this.events = state.getEvents();
+		this.paddles = state.getPaddles();
+		this.substeps = physics.getBallSubsteps();
+	}
 
 	/**
-	 * Constructs a Ball at the given point.
+	 * Creates a Ball at the given point, using the kind of physics chosen
+	 * for the GameState.
 	 * @param state
 	 * @param centreX
 	 * @param centreY
+	 * @return
 	 */
-	public Ball(GameState state, int centreX, int centreY) {
-		
-		this.state = state;
-		this.p1 = state.getPlayer(0);
-		this.p2 = state.getPlayer(1);
-		
-		x1 = centreX - WIDTH/2;
-		y1 = centreY - HEIGHT/2;
-		x2 = x1 + WIDTH;
-		y2 = y1 + HEIGHT;
-		speed = INITIAL_SPEED;
-		
-		/*
-		 * Randomize initial angle but point towards a Player
-		 * Angles between -45..45 go to the right
-		 * Angles between 135..225 go to the left
-		 */
-		angle = (Math.random() * 180) - 45;
-		if (angle > 45) angle += 90;
+	public static Ball create(GameState state, int centreX, int centreY) {
+		if (state.getPhysics().isFixedPoint()){
+			return new FixedBall(state, centreX, centreY);
+		}
+		return new FloatBall(state, centreX, centreY);
 	}
 
 	/**
 	 * Draws the Ball in place.
 	 */
 	@Override
-	public void draw(Graphics2D g) {
-		g.setColor(Color.WHITE);
-		g.fillRect((int) x1, (int) y1, WIDTH, HEIGHT);
+	public void draw(Renderer renderer) {
+		renderer.setColour(Color.WHITE);
+		renderer.fillRect(getX(), getY(), WIDTH, HEIGHT);
 	}
 
 	/**
-	 * Updates the Ball's position.
+	 * Processes the Ball reaching the edge of the game area.
+	 * 
+	 * If there is a paddle on that wall, a point is scored; otherwise the
+	 * Ball bounces.
+	 * @param side
+	 * @return True if a point was scored.
 	 */
-	@Override
-	public void tick() {
-		
-		double a = Math.toRadians(angle);
-		
-		speedX = Math.cos(a) * speed;
-		speedY = Math.sin(a) * speed;
-		
-		translate(speedX, speedY);
-		
+	protected boolean hitWall(Side side) {
+		if (paddles[side.ordinal()] != null){
+			state.pointScored(side, this);
+			return true;
+		}
+		bounceOffWall(side);
+		return false;
 	}
 
 	/**
-	 * Moves the Ball according to its speed, and handles collision.
-	 * @param dx
-	 * @param dy
+	 * Processes a bounce after hitting a wall.
+	 * @param side
+	 */
+	protected abstract void bounceOffWall(Side side);
+
+	/**
+	 * Getter for speed.
+	 * @return
 	 */
-	private void translate(double dx, double dy) {
-		
-		// Update position
-		x1 += dx;
-		y1 += dy;
-		x2 = x1 + WIDTH;
-		y2 = y1 + HEIGHT;
-
-		// Check bounds
-		if (x1 < 0){
-			x1 = 0;
-			x2 = x1 + WIDTH;
-			state.pointScored(1, this);
-		} else if (x2 > GameState.GAME_WIDTH){
-			x1 = GameState.GAME_WIDTH - WIDTH;
-			x2 = x1 + WIDTH;
-			state.pointScored(0, this);
-		}
-		
-		if (y1 < 0){
-			y1 = 0;
-			y2 = y1 + HEIGHT;
-			bounceOffWall();
-		} else if (y2 > GameState.GAME_HEIGHT){
-			y1 = GameState.GAME_HEIGHT - HEIGHT;
-			y2 = y1 + HEIGHT;
-			bounceOffWall();
-		}
+	public abstract double getSpeed();
 
-		// Check for player collision
-		if (x1 < p1.x2){
-			if (p1.y1 < y2 && p1.y2 > y1){
-				setPos(p1.x2, y1);
-				bounceOffPlayer(p1.getSpeed());
-			}
-		} else if (x2 > p2.x1){
-			if (p2.y1 < y2 && p2.y2 > y1){
-				setPos(p2.x1 - WIDTH - 1, y1);
-				bounceOffPlayer(p2.getSpeed());
-			}
-		}
-	}
+	/**
+	 * Getter for speed in the x-direction.
+	 * @return Speed, where negative means left and positive means right.
+	 */
+	public abstract double getSpeedX();
 
 	/**
-	 * Sets the Ball's position according to its top-left co-ordinate.
-	 * @param x1
-	 * @param y1
+	 * Getter for speed in the y-direction.
+	 * @return Speed, where negative means up and positive means down.
 	 */
-	private void setPos(double x1, double y1) {
-		this.x1 = x1;
-		this.y1 = y1;
-		this.x2 = x1 + WIDTH;
-		this.y2 = y1 + HEIGHT;
-	}
+	public abstract double getSpeedY();
 
 	/**
-	 * Processes a bounce after hitting a Player.
-	 * @param playerSpeed
+	 * Gets the Player that last hit this Ball.
+	 * @return Player, or null if the Ball has not been hit.
 	 */
-	private void bounceOffPlayer(double playerSpeed) {
-		angle = 180 - angle;
-		
-		// Change the angle by slicing the ball
-		angle += Player.BALL_ANGLE_MULTIPLIER * playerSpeed;
-		
-		// Accelerate
-		if (speed < MAX_SPEED){
-			speed *= BOUNCE_SPEED_MULTIPLIER;
-			if (speed > MAX_SPEED) speed = MAX_SPEED;
-		}
+	public Player getLastHitBy() {
+		return lastHitBy;
 	}
 
 	/**
-	 * Processes a bounce after hitting a wall.
+	 * Gets the number of times this Ball has been hit by a Player.
+	 * @return
 	 */
-	private void bounceOffWall() {
-		angle = -angle;
-
-		// Accelerate
-		if (speed < MAX_SPEED){
-			speed *= BOUNCE_SPEED_MULTIPLIER;
-			if (speed > MAX_SPEED) speed = MAX_SPEED;
-		}
+	public int getHits() {
+		return hits;
 	}
 
 }
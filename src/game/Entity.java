@@ -1,6 +1,6 @@
 package game;
 
-import java.awt.Graphics2D;
+import render.Renderer;
 
 /**
  * Class representing an Entity, i.e. an object in the game.
@@ -9,17 +9,27 @@ import java.awt.Graphics2D;
  */
 public abstract class Entity {
 
-	protected double x1, y1, x2, y2;
-
 	/**
 	 * Draws this Entity in place.
-	 * @param g
+	 * @param renderer
 	 */
-	public abstract void draw(Graphics2D g);
+	public abstract void draw(Renderer renderer);
 	
 	/**
 	 * Updates the Entity.
 	 */
 	public abstract void tick();
 	
+	/**
+	 * Gets the left edge of this Entity.
+	 * @return
+	 */
+	public abstract double getX();
+	
+	/**
+	 * Gets the top edge of this Entity.
+	 * @return
+	 */
+	public abstract double getY();
+	
 }
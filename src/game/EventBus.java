@@ -0,0 +1,223 @@
+package game;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Distributes GameEvents from the game to any number of Subscriptions.
+ * 
+ * Events are written into a fixed ring of re-usable GameEvent slots, so
+ * publishing never allocates or blocks. Each Subscription reads the ring at
+ * its own pace, either on the game Thread or on a Thread of its own.
+ * 
+ * There must only be one publishing Thread. If the slowest Subscription
+ * falls a full ring behind, new events are dropped rather than overwriting
+ * events it has not yet read.
+ * 
+ * The ring is only allocated when the first Subscription is made, so games 
+ * that nobody is listening to do not pay for it.
+ * 
+ * @author Dan Bryce
+ */
+public class EventBus {
+
+	/**
+	 * Callback used to process events.
+	 */
+	public interface Handler {
+
+		/**
+		 * Processes a single GameEvent.
+		 * 
+		 * The event is only valid until this method returns.
+		 * @param event
+		 */
+		void onEvent(GameEvent event);
+	}
+
+	/**
+	 * A consumer's position in the ring.
+	 */
+	public class Subscription {
+
+		private final AtomicLong sequence;
+
+		/**
+		 * Constructs a Subscription that starts after the latest event.
+		 * @param sequence
+		 */
+		private Subscription(long sequence) {
+			this.sequence = new AtomicLong(sequence);
+		}
+
+		/**
+		 * Passes all events published since the last call to the Handler.
+		 * @param handler
+		 * @return Number of events handled.
+		 */
+		public int poll(Handler handler) {
+
+			long available = cursor.get();
+			long seq = sequence.get();
+			GameEvent[] ring = EventBus.this.ring;
+			int count = 0;
+
+			while (seq < available){
+				seq++;
+				handler.onEvent(ring[(int) (seq & mask)]);
+				count++;
+			}
+
+			// Release the slots we have read back to the publisher
+			sequence.lazySet(seq);
+			return count;
+		}
+
+		/**
+		 * Stops receiving events.
+		 */
+		public void close() {
+			unsubscribe(this);
+		}
+	}
+
+	private final int size;
+	private final int mask;
+	
+	/**
+	 * Ring of event slots, or null until the first Subscription is made.
+	 */
+	private volatile GameEvent[] ring;
+
+	/**
+	 * Sequence number of the latest published event.
+	 */
+	private final AtomicLong cursor;
+
+	// Publisher state, only used on the publishing Thread
+	private long tick;
+	private long minConsumed;
+	private long dropped;
+
+	private volatile Subscription[] subscriptions;
+
+	/**
+	 * Constructs an EventBus.
+	 * @param capacity Number of events that can be waiting to be read; this
+	 * is rounded up to a power of two.
+	 */
+	public EventBus(int capacity) {
+		size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		mask = size - 1;
+		cursor = new AtomicLong(-1);
+		minConsumed = -1;
+		subscriptions = new Subscription[0];
+	}
+
+	/**
+	 * Sets the tick number that will be attached to subsequent events.
+	 * @param tick
+	 */
+	public void setTick(long tick) {
+		this.tick = tick;
+	}
+
+	/**
+	 * Publishes an event to all Subscriptions.
+	 * 
+	 * If there are no Subscriptions, this does nothing.
+	 * @param type
+	 * @param player Player number, or -1 if not applicable.
+	 * @param x
+	 * @param y
+	 * @param ballSpeed
+	 * @param paddleSpeed
+	 * @param hits
+	 */
+	public void publish(GameEvent.Type type, int player, double x, double y,
+			double ballSpeed, double paddleSpeed, int hits) {
+
+		Subscription[] subs = subscriptions;
+		if (subs.length == 0) return;
+
+		GameEvent[] ring = this.ring;
+		long seq = cursor.get() + 1;
+
+		// Make sure every Subscription has finished with this slot
+		if (seq - size > minConsumed){
+			minConsumed = getMinConsumed(subs);
+			if (seq - size > minConsumed){
+				dropped++;
+				return;
+			}
+		}
+
+		ring[(int) (seq & mask)].set(type, tick, player, x, y,
+				ballSpeed, paddleSpeed, hits);
+
+		// Ordered write makes the slot contents visible before the cursor
+		cursor.lazySet(seq);
+	}
+
+	/**
+	 * Finds the sequence number of the oldest event not yet read by all
+	 * Subscriptions.
+	 * @param subs
+	 * @return
+	 */
+	private long getMinConsumed(Subscription[] subs) {
+		long min = Long.MAX_VALUE;
+		for (Subscription sub : subs){
+			min = Math.min(min, sub.sequence.get());
+		}
+		return min;
+	}
+
+	/**
+	 * Creates a Subscription that receives all events published from now on.
+	 * @return
+	 */
+	public synchronized Subscription subscribe() {
+		if (ring == null){
+			GameEvent[] slots = new GameEvent[size];
+			for (int i = 0; i < size; i++){
+				slots[i] = new GameEvent();
+			}
+			ring = slots;
+		}
+		Subscription sub = new Subscription(cursor.get());
+		Subscription[] subs = Arrays.copyOf(subscriptions,
+				subscriptions.length + 1);
+		subs[subs.length - 1] = sub;
+		subscriptions = subs;
+		return sub;
+	}
+
+	/**
+	 * Removes a Subscription.
+	 * @param sub
+	 */
+	private synchronized void unsubscribe(Subscription sub) {
+		Subscription[] subs = subscriptions;
+		for (int i = 0; i < subs.length; i++){
+			if (subs[i] != sub) continue;
+			Subscription[] remaining = new Subscription[subs.length - 1];
+			System.arraycopy(subs, 0, remaining, 0, i);
+			System.arraycopy(subs, i + 1, remaining, i, subs.length - i - 1);
+			subscriptions = remaining;
+			return;
+		}
+	}
+
+	/**
+	 * Gets the number of events dropped because a Subscription fell too far
+	 * behind.
+	 * 
+	 * This should only be called from the publishing Thread.
+	 * @return
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+}
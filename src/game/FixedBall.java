@@ -0,0 +1,209 @@
+package game;
+
+import state.GameState;
+
+/**
+ * A Ball whose position, speed and direction are stored as fixed-point
+ * ints; see FixedPoint.
+ * 
+ * The Ball's extent is always WIDTH by HEIGHT, so only its top-left corner
+ * is stored. Its velocity is only recalculated when its speed or direction
+ * changes, using the sine table rather than Math.sin and Math.cos.
+ * 
+ * Every calculation is exact, so given the same seed, a game plays out
+ * identically on any JVM and any Thread.
+ * 
+ * @author Dan Bryce
+ */
+public class FixedBall extends Ball {
+
+	private static final int FIXED_WIDTH = WIDTH << FixedPoint.SHIFT;
+	private static final int FIXED_HEIGHT = HEIGHT << FixedPoint.SHIFT;
+	private static final int FIXED_GAME_WIDTH =
+			GameState.GAME_WIDTH << FixedPoint.SHIFT;
+	private static final int FIXED_GAME_HEIGHT =
+			GameState.GAME_HEIGHT << FixedPoint.SHIFT;
+	private static final int FIXED_INITIAL_SPEED =
+			FixedPoint.toFixed(INITIAL_SPEED);
+	private static final int FIXED_MAX_SPEED = FixedPoint.toFixed(MAX_SPEED);
+
+	private int x, y;
+	private int vx, vy;
+	private int stepX, stepY;
+	private int speed;
+	private int angle;
+
+	/**
+	 * Constructs a FixedBall at the given point.
+	 * @param state
+	 * @param centreX
+	 * @param centreY
+	 */
+	public FixedBall(GameState state, int centreX, int centreY) {
+		super(state);
+
+		x = (centreX - WIDTH/2) << FixedPoint.SHIFT;
+		y = (centreY - HEIGHT/2) << FixedPoint.SHIFT;
+		speed = FIXED_INITIAL_SPEED;
+
+		/*
+		 * Randomize initial angle but point towards a Player, as FloatBall
+		 * does: within 45 degrees either side of right or left.
+		 */
+		int eighth = FixedPoint.ANGLES / 8;
+		angle = state.getRandom().nextInt(FixedPoint.ANGLES / 2) - eighth;
+		if (angle > eighth) angle += FixedPoint.ANGLES / 4;
+		aim();
+	}
+
+	/**
+	 * Recalculates the velocity after the speed or direction changes.
+	 */
+	private void aim() {
+		angle &= FixedPoint.ANGLE_MASK;
+		vx = FixedPoint.mulCos(speed, angle);
+		vy = FixedPoint.mulSin(speed, angle);
+		stepX = vx / substeps;
+		stepY = vy / substeps;
+	}
+
+	/**
+	 * Moves the Ball by one substep according to its velocity, and handles 
+	 * collision.
+	 */
+	@Override
+	public void tick() {
+
+		// Velocity may change during a bounce
+		int dx = stepX;
+		int dy = stepY;
+
+		x += dx;
+		y += dy;
+
+		// Check bounds
+		if (x < 0){
+			x = 0;
+			if (hitWall(Side.LEFT)) return;
+		} else if (x + FIXED_WIDTH > FIXED_GAME_WIDTH){
+			x = FIXED_GAME_WIDTH - FIXED_WIDTH;
+			if (hitWall(Side.RIGHT)) return;
+		}
+
+		if (y < 0){
+			y = 0;
+			if (hitWall(Side.TOP)) return;
+		} else if (y + FIXED_HEIGHT > FIXED_GAME_HEIGHT){
+			y = FIXED_GAME_HEIGHT - FIXED_HEIGHT;
+			if (hitWall(Side.BOTTOM)) return;
+		}
+
+		// Check for player collision, as FloatBall does
+		Player p = paddles[(dx < 0 ? Side.LEFT : Side.RIGHT).ordinal()];
+		if (p != null && FixedPoint.toFixed(p.y1) < y + FIXED_HEIGHT &&
+				FixedPoint.toFixed(p.y2) > y){
+			int px1 = FixedPoint.toFixed(p.x1);
+			int px2 = FixedPoint.toFixed(p.x2);
+			if (p.side == Side.LEFT && x < px2){
+				x = px2;
+				bounceOffPlayer(p);
+			} else if (p.side == Side.RIGHT && x + FIXED_WIDTH > px1){
+				x = px1 - FIXED_WIDTH - FixedPoint.ONE;
+				bounceOffPlayer(p);
+			}
+		}
+
+		p = paddles[(dy < 0 ? Side.TOP : Side.BOTTOM).ordinal()];
+		if (p != null && FixedPoint.toFixed(p.x1) < x + FIXED_WIDTH &&
+				FixedPoint.toFixed(p.x2) > x){
+			int py1 = FixedPoint.toFixed(p.y1);
+			int py2 = FixedPoint.toFixed(p.y2);
+			if (p.side == Side.TOP && y < py2){
+				y = py2;
+				bounceOffPlayer(p);
+			} else if (p.side == Side.BOTTOM && y + FIXED_HEIGHT > py1){
+				y = py1 - FIXED_HEIGHT - FixedPoint.ONE;
+				bounceOffPlayer(p);
+			}
+		}
+	}
+
+	/**
+	 * Processes a bounce after hitting a Player.
+	 * @param player
+	 */
+	private void bounceOffPlayer(Player player) {
+		double playerSpeed = player.getSpeed();
+		events.publish(GameEvent.Type.PADDLE_HIT, player.getId(), getX(),
+				getY(), getSpeed(), playerSpeed, hits + 1);
+
+		reflect(player.getSide());
+		lastHitBy = player;
+
+		// Change the angle by slicing the ball
+		angle += FixedPoint.toAngle(
+				physics.getBallAngleMultiplier() * playerSpeed);
+		hits++;
+
+		accelerate();
+		aim();
+	}
+
+	/**
+	 * Processes a bounce after hitting a wall.
+	 * @param side
+	 */
+	@Override
+	protected void bounceOffWall(Side side) {
+		events.publish(GameEvent.Type.WALL_BOUNCE, -1, getX(), getY(),
+				getSpeed(), 0, hits);
+
+		reflect(side);
+		accelerate();
+		aim();
+	}
+
+	/**
+	 * Reverses the direction of travel towards the given wall.
+	 * @param side
+	 */
+	private void reflect(Side side) {
+		angle = side.isVertical() ? FixedPoint.ANGLES / 2 - angle : -angle;
+	}
+
+	/**
+	 * Increases the speed after a bounce, up to the maximum.
+	 */
+	private void accelerate() {
+		if (speed < FIXED_MAX_SPEED){
+			speed = (int) (speed * physics.getBallBounceSpeedMultiplier());
+			if (speed > FIXED_MAX_SPEED) speed = FIXED_MAX_SPEED;
+		}
+	}
+
+	@Override
+	public double getX() {
+		return FixedPoint.toPixels(x);
+	}
+
+	@Override
+	public double getY() {
+		return FixedPoint.toPixels(y);
+	}
+
+	@Override
+	public double getSpeed() {
+		return FixedPoint.toPixels(speed);
+	}
+
+	@Override
+	public double getSpeedX() {
+		return FixedPoint.toPixels(vx);
+	}
+
+	@Override
+	public double getSpeedY() {
+		return FixedPoint.toPixels(vy);
+	}
+
+}
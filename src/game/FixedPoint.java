@@ -0,0 +1,104 @@
+package game;
+
+/**
+ * Helpers for fixed-point arithmetic, as used by FixedBall.
+ * 
+ * Positions and speeds are stored as ints in units of 1/256 of a pixel.
+ * Angles are binary angles, where a full turn is ANGLES units, so that
+ * they wrap with a simple mask and can index a lookup table.
+ * 
+ * The sine table is built with StrictMath, so every JVM builds the same
+ * table, and games played in fixed-point are bit-exact everywhere.
+ * 
+ * @author Dan Bryce
+ */
+public class FixedPoint {
+
+	/**
+	 * Number of fractional bits in a position or speed.
+	 */
+	public static final int SHIFT = 8;
+
+	/**
+	 * The fixed-point value of 1 pixel.
+	 */
+	public static final int ONE = 1 << SHIFT;
+
+	/**
+	 * Number of angle units in a full turn.
+	 */
+	public static final int ANGLES = 4096;
+
+	/**
+	 * Mask that wraps an angle into the range 0 to ANGLES - 1.
+	 */
+	public static final int ANGLE_MASK = ANGLES - 1;
+
+	/**
+	 * Number of fractional bits in a sine table entry.
+	 */
+	private static final int TRIG_SHIFT = 14;
+
+	private static final int[] SIN = new int[ANGLES];
+
+	static {
+		for (int i = 0; i < ANGLES; i++){
+			SIN[i] = (int) StrictMath.round(
+					StrictMath.sin(2 * StrictMath.PI * i / ANGLES)
+					* (1 << TRIG_SHIFT));
+		}
+	}
+
+	private FixedPoint() {}
+
+	/**
+	 * Converts a number of pixels to fixed-point, rounding down.
+	 * @param pixels
+	 * @return
+	 */
+	public static int toFixed(double pixels) {
+		return (int) StrictMath.floor(pixels * ONE);
+	}
+
+	/**
+	 * Converts a fixed-point value to pixels.
+	 * 
+	 * This is exact, as every fixed-point value can be represented as a
+	 * double.
+	 * @param fixed
+	 * @return
+	 */
+	public static double toPixels(int fixed) {
+		return (double) fixed / ONE;
+	}
+
+	/**
+	 * Converts an angle in degrees to the nearest binary angle.
+	 * @param degrees
+	 * @return Angle, which may be outside the range 0 to ANGLES - 1.
+	 */
+	public static int toAngle(double degrees) {
+		return (int) StrictMath.round(degrees * ANGLES / 360);
+	}
+
+	/**
+	 * Multiplies a fixed-point value by the cosine of an angle.
+	 * @param value
+	 * @param angle Binary angle, which is wrapped if necessary.
+	 * @return
+	 */
+	public static int mulCos(int value, int angle) {
+		return mulSin(value, angle + ANGLES / 4);
+	}
+
+	/**
+	 * Multiplies a fixed-point value by the sine of an angle.
+	 * @param value
+	 * @param angle Binary angle, which is wrapped if necessary.
+	 * @return
+	 */
+	public static int mulSin(int value, int angle) {
+		return (int) (((long) value * SIN[angle & ANGLE_MASK]) >> TRIG_SHIFT);
+	}
+
+}
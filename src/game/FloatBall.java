@@ -0,0 +1,192 @@
+package game;
+
+import state.GameState;
+
+/**
+ * A Ball whose position, speed and direction are stored as doubles.
+ * 
+ * This is the standard Ball.
+ * 
+ * @author Dan Bryce
+ */
+public class FloatBall extends Ball {
+
+	protected double x1, y1, x2, y2;
+	private double angle, speed, speedX, speedY;
+
+	/**
+	 * Constructs a FloatBall at the given point.
+	 * @param state
+	 * @param centreX
+	 * @param centreY
+	 */
+	public FloatBall(GameState state, int centreX, int centreY) {
+		super(state);
+
+		x1 = centreX - WIDTH/2;
+		y1 = centreY - HEIGHT/2;
+		x2 = x1 + WIDTH;
+		y2 = y1 + HEIGHT;
+		speed = INITIAL_SPEED;
+
+		/*
+		 * Randomize initial angle but point towards a Player
+		 * Angles between -45..45 go to the right
+		 * Angles between 135..225 go to the left
+		 */
+		angle = (state.getRandom().nextDouble() * 180) - 45;
+		if (angle > 45) angle += 90;
+	}
+
+	/**
+	 * Updates the Ball's position by one substep.
+	 */
+	@Override
+	public void tick() {
+
+		double a = Math.toRadians(angle);
+
+		speedX = Math.cos(a) * speed;
+		speedY = Math.sin(a) * speed;
+
+		translate(speedX / substeps, speedY / substeps);
+
+	}
+
+	/**
+	 * Moves the Ball according to its speed, and handles collision.
+	 * @param dx
+	 * @param dy
+	 */
+	private void translate(double dx, double dy) {
+
+		// Update position
+		x1 += dx;
+		y1 += dy;
+		x2 = x1 + WIDTH;
+		y2 = y1 + HEIGHT;
+
+		// Check bounds
+		if (x1 < 0){
+			setPos(0, y1);
+			if (hitWall(Side.LEFT)) return;
+		} else if (x2 > GameState.GAME_WIDTH){
+			setPos(GameState.GAME_WIDTH - WIDTH, y1);
+			if (hitWall(Side.RIGHT)) return;
+		}
+
+		if (y1 < 0){
+			setPos(x1, 0);
+			if (hitWall(Side.TOP)) return;
+		} else if (y2 > GameState.GAME_HEIGHT){
+			setPos(x1, GameState.GAME_HEIGHT - HEIGHT);
+			if (hitWall(Side.BOTTOM)) return;
+		}
+
+		/*
+		 * Check for player collision.
+		 * Only the paddles on the walls we are moving towards can be hit, so
+		 * at most 2 paddles are checked however many Players there are.
+		 */
+		Player p = paddles[(dx < 0 ? Side.LEFT : Side.RIGHT).ordinal()];
+		if (p != null && p.y1 < y2 && p.y2 > y1){
+			if (p.side == Side.LEFT && x1 < p.x2){
+				setPos(p.x2, y1);
+				bounceOffPlayer(p);
+			} else if (p.side == Side.RIGHT && x2 > p.x1){
+				setPos(p.x1 - WIDTH - 1, y1);
+				bounceOffPlayer(p);
+			}
+		}
+
+		p = paddles[(dy < 0 ? Side.TOP : Side.BOTTOM).ordinal()];
+		if (p != null && p.x1 < x2 && p.x2 > x1){
+			if (p.side == Side.TOP && y1 < p.y2){
+				setPos(x1, p.y2);
+				bounceOffPlayer(p);
+			} else if (p.side == Side.BOTTOM && y2 > p.y1){
+				setPos(x1, p.y1 - HEIGHT - 1);
+				bounceOffPlayer(p);
+			}
+		}
+	}
+
+	/**
+	 * Sets the Ball's position according to its top-left co-ordinate.
+	 * @param x1
+	 * @param y1
+	 */
+	private void setPos(double x1, double y1) {
+		this.x1 = x1;
+		this.y1 = y1;
+		this.x2 = x1 + WIDTH;
+		this.y2 = y1 + HEIGHT;
+	}
+
+	/**
+	 * Processes a bounce after hitting a Player.
+	 * @param player
+	 */
+	private void bounceOffPlayer(Player player) {
+		double playerSpeed = player.getSpeed();
+		events.publish(GameEvent.Type.PADDLE_HIT, player.getId(), x1, y1,
+				speed, playerSpeed, hits + 1);
+
+		angle = player.getSide().isVertical() ? 180 - angle : -angle;
+		lastHitBy = player;
+
+		// Change the angle by slicing the ball
+		angle += physics.getBallAngleMultiplier() * playerSpeed;
+		hits++;
+
+		// Accelerate
+		if (speed < MAX_SPEED){
+			speed *= physics.getBallBounceSpeedMultiplier();
+			if (speed > MAX_SPEED) speed = MAX_SPEED;
+		}
+	}
+
+	/**
+	 * Processes a bounce after hitting a wall.
+	 * @param side
+	 */
+	@Override
+	protected void bounceOffWall(Side side) {
+		events.publish(GameEvent.Type.WALL_BOUNCE, -1, x1, y1,
+				speed, 0, hits);
+
+		angle = side.isVertical() ? 180 - angle : -angle;
+
+		// Accelerate
+		if (speed < MAX_SPEED){
+			speed *= physics.getBallBounceSpeedMultiplier();
+			if (speed > MAX_SPEED) speed = MAX_SPEED;
+		}
+	}
+
+	@Override
+	public double getX() {
+		return x1;
+	}
+
+	@Override
+	public double getY() {
+		return y1;
+	}
+
+	@Override
+	public double getSpeed() {
+		return speed;
+	}
+
+	@Override
+	public double getSpeedX() {
+		return speedX;
+	}
+
+	@Override
+	public double getSpeedY() {
+		return speedY;
+	}
+
+}
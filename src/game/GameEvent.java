@@ -0,0 +1,136 @@
+package game;
+
+/**
+ * Something that happened during a game.
+ * 
+ * GameEvents are owned by an EventBus and re-used, so they should not be
+ * kept after they have been handled.
+ * 
+ * @author Dan Bryce
+ */
+public class GameEvent {
+
+	/**
+	 * The different types of GameEvent.
+	 */
+	public enum Type {
+
+		/**
+		 * A Ball left the game area, and a point was awarded.
+		 */
+		SCORE,
+
+		/**
+		 * A Ball bounced off a wall that has no paddle.
+		 */
+		WALL_BOUNCE,
+
+		/**
+		 * A Ball was hit by a Player.
+		 */
+		PADDLE_HIT,
+
+		/**
+		 * A new Ball was placed in the centre after a point.
+		 */
+		RESPAWN
+	}
+
+	private Type type;
+	private long tick;
+	private int player;
+	private double x, y;
+	private double ballSpeed, paddleSpeed;
+	private int hits;
+
+	/**
+	 * Fills in this GameEvent.
+	 * @param type
+	 * @param tick
+	 * @param player
+	 * @param x
+	 * @param y
+	 * @param ballSpeed
+	 * @param paddleSpeed
+	 * @param hits
+	 */
+	void set(Type type, long tick, int player, double x, double y,
+			double ballSpeed, double paddleSpeed, int hits) {
+		this.type = type;
+		this.tick = tick;
+		this.player = player;
+		this.x = x;
+		this.y = y;
+		this.ballSpeed = ballSpeed;
+		this.paddleSpeed = paddleSpeed;
+		this.hits = hits;
+	}
+
+	/**
+	 * Getter for type.
+	 * @return
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the tick during which this GameEvent happened.
+	 * @return
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Gets the Player involved.
+	 * @return Player number for SCORE (the scorer, if any) and PADDLE_HIT 
+	 * events, otherwise -1.
+	 */
+	public int getPlayer() {
+		return player;
+	}
+
+	/**
+	 * Gets the left edge of the Ball.
+	 * @return
+	 */
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 * Gets the top edge of the Ball.
+	 * @return
+	 */
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * Gets the speed of the Ball at the time of the GameEvent.
+	 * @return
+	 */
+	public double getBallSpeed() {
+		return ballSpeed;
+	}
+
+	/**
+	 * Gets the speed of the Player's paddle, for PADDLE_HIT events.
+	 * @return
+	 */
+	public double getPaddleSpeed() {
+		return paddleSpeed;
+	}
+
+	/**
+	 * Gets the number of times the Ball had been hit by a Player.
+	 * 
+	 * For a SCORE event, this is the length of the rally.
+	 * @return
+	 */
+	public int getHits() {
+		return hits;
+	}
+
+}
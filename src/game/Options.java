@@ -0,0 +1,244 @@
+package game;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Options chosen when the game is launched, usually from the command line.
+ * 
+ * These are applied by the Pong constructor before anything else starts,
+ * so that the window, the GameThread and the WarmUp all see them from the
+ * beginning; see Pong.main() for the command-line options.
+ * 
+ * @author Dan Bryce
+ */
+public class Options {
+
+	private boolean fullscreen;
+	private Path telemetryDirectory;
+	private boolean pixelRendering;
+	private Physics physics = Physics.DEFAULT;
+	private Side[] playerSides = { Side.LEFT, Side.RIGHT };
+	private AISettings[] playerAI = { null, AISettings.DEFAULT };
+	private int particleCapacity = 4096;
+	private int particleBudget = 256;
+	private int gridMatches = 64;
+	private int detailThreshold = 5000;
+	private double timeScale = 1;
+	private int spectatePort = -1;
+	private Path historyFile;
+	private boolean exitAfterStartup;
+
+	/**
+	 * Constructs a set of Options with the default for everything.
+	 */
+	public Options() {
+	}
+
+	/**
+	 * Parses a set of Options from the command line.
+	 * 
+	 * Unrecognised arguments are ignored.
+	 * @param args Arguments, as described by Pong.main().
+	 * @return
+	 * @throws IllegalArgumentException If an option has an invalid value.
+	 */
+	public static Options parse(String[] args) {
+		Options options = new Options();
+		int aiRate = -1;
+		for (int i = 0; i < args.length; i++){
+			if (args[i].equals("-fullscreen")){
+				options.fullscreen = true;
+			} else if (args[i].equals("-telemetry") && i + 1 < args.length){
+				options.telemetryDirectory = Paths.get(args[++i]);
+			} else if (args[i].equals("-pixels")){
+				options.pixelRendering = true;
+			} else if (args[i].equals("-players") && i + 1 < args.length){
+				options.parsePlayers(args[++i].split(","));
+			} else if (args[i].equals("-spectate") && i + 1 < args.length){
+				options.spectatePort = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-history") && i + 1 < args.length){
+				options.historyFile = Paths.get(args[++i]);
+			} else if (args[i].equals("-fixed")){
+				options.physics = options.physics.withFixedPoint(true);
+			} else if (args[i].equals("-particles") && i + 1 < args.length){
+				options.parseParticles(args[++i]);
+			} else if (args[i].equals("-grid") && i + 1 < args.length){
+				int gridMatches = Integer.parseInt(args[++i]);
+				if (gridMatches > 0) options.gridMatches = gridMatches;
+			} else if (args[i].equals("-substeps") && i + 1 < args.length){
+				options.physics = options.physics.withBallSubsteps(
+						Integer.parseInt(args[++i]));
+			} else if (args[i].equals("-ai-rate") && i + 1 < args.length){
+				aiRate = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-exit-after-startup")){
+				options.exitAfterStartup = true;
+			} else if (args[i].equals("-lod") && i + 1 < args.length){
+				int detailThreshold = Integer.parseInt(args[++i]);
+				if (detailThreshold > 0){
+					options.detailThreshold = detailThreshold;
+				}
+			} else if (args[i].equals("-speed") && i + 1 < args.length){
+				String speed = args[++i];
+				options.timeScale = speed.equals("turbo") ?
+						Pong.TURBO : Double.parseDouble(speed);
+			}
+		}
+
+		// The rate applies to the AI Players, wherever they were listed
+		if (aiRate > 0){
+			for (int i = 0; i < options.playerAI.length; i++){
+				if (options.playerAI[i] != null){
+					options.playerAI[i] =
+							options.playerAI[i].withDecisionRate(aiRate);
+				}
+			}
+		}
+		return options;
+	}
+
+	/**
+	 * Parses the Players, e.g. "left,right:ai" for a human on the left and
+	 * an AI Player on the right.
+	 * @param players
+	 */
+	private void parsePlayers(String[] players) {
+		playerSides = new Side[players.length];
+		playerAI = new AISettings[players.length];
+		for (int i = 0; i < players.length; i++){
+			String[] parts = players[i].split(":");
+			playerSides[i] = Side.valueOf(parts[0].trim().toUpperCase());
+			if (parts.length > 1 && parts[1].trim().equals("ai")){
+				playerAI[i] = AISettings.DEFAULT;
+			}
+		}
+	}
+
+	/**
+	 * Parses the particle limits, given as "capacity[:budget]"; the budget
+	 * defaults to a sixteenth of the capacity.
+	 * @param particles
+	 */
+	private void parseParticles(String particles) {
+		String[] parts = particles.split(":");
+		particleCapacity = Integer.parseInt(parts[0].trim());
+		particleBudget = parts.length > 1 ?
+				Integer.parseInt(parts[1].trim()) : particleCapacity / 16;
+	}
+
+	/**
+	 * Whether to take over the whole screen, rather than use a resizable
+	 * window.
+	 * @return
+	 */
+	public boolean isFullscreen() {
+		return fullscreen;
+	}
+
+	/**
+	 * Gets the directory in which telemetry files are written.
+	 * @return Directory, or null to disable telemetry.
+	 */
+	public Path getTelemetryDirectory() {
+		return telemetryDirectory;
+	}
+
+	/**
+	 * Whether games are drawn by writing pixels directly.
+	 * @return
+	 */
+	public boolean isPixelRendering() {
+		return pixelRendering;
+	}
+
+	/**
+	 * Gets the Physics used by new games.
+	 * @return
+	 */
+	public Physics getPhysics() {
+		return physics;
+	}
+
+	/**
+	 * Gets the wall of each Player.
+	 * @return
+	 */
+	public Side[] getPlayerSides() {
+		return playerSides;
+	}
+
+	/**
+	 * Gets the AI settings of each Player.
+	 * @return Settings for each Player, or null for a human Player.
+	 */
+	public AISettings[] getPlayerAI() {
+		return playerAI;
+	}
+
+	/**
+	 * Gets the maximum number of live particles.
+	 * @return
+	 */
+	public int getParticleCapacity() {
+		return particleCapacity;
+	}
+
+	/**
+	 * Gets the maximum number of particles created per tick.
+	 * @return
+	 */
+	public int getParticleBudget() {
+		return particleBudget;
+	}
+
+	/**
+	 * Gets the number of matches shown by the grid view.
+	 * @return
+	 */
+	public int getGridMatches() {
+		return gridMatches;
+	}
+
+	/**
+	 * Gets the number of Balls from which games are drawn at a lower level
+	 * of detail.
+	 * @return
+	 */
+	public int getDetailThreshold() {
+		return detailThreshold;
+	}
+
+	/**
+	 * Gets how fast the game runs relative to real time.
+	 * @return Ticks per frame, or Pong.TURBO.
+	 */
+	public double getTimeScale() {
+		return timeScale;
+	}
+
+	/**
+	 * Gets the port on which spectators can watch.
+	 * @return Port, or -1 to disable spectating.
+	 */
+	public int getSpectatePort() {
+		return spectatePort;
+	}
+
+	/**
+	 * Gets the file in which finished matches are stored.
+	 * @return File, or null to disable the match history.
+	 */
+	public Path getHistoryFile() {
+		return historyFile;
+	}
+
+	/**
+	 * Whether to quit as soon as the menu has first been drawn, after
+	 * reporting how long startup took; see StartupBenchmark.
+	 * @return
+	 */
+	public boolean isExitAfterStartup() {
+		return exitAfterStartup;
+	}
+
+}
@@ -0,0 +1,330 @@
+package game;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import render.Renderer;
+
+/**
+ * A fixed-size pool of short-lived square particles, used for visual
+ * effects such as Ball trails and sparks.
+ * 
+ * Particles are stored in parallel primitive arrays, which are allocated
+ * up-front, so spawning and expiring particles never creates garbage. An
+ * expired particle is replaced by the last live one, so live particles are
+ * always packed at the start of the arrays.
+ * 
+ * Two limits keep the cost bounded however busy the game is: the capacity,
+ * beyond which new particles are dropped, and the spawn budget, which is
+ * the number of particles that can be created per tick.
+ * 
+ * Particles fade as they age. They are drawn grouped by brightness, so
+ * each frame needs only one colour change per brightness level.
+ * 
+ * The particles are ticked on the game Thread but drawn on the event
+ * dispatch thread, so drawing never reads the live arrays. Instead, the
+ * game Thread publishes a Snapshot at the end of each tick, which is passed
+ * to the drawing Thread through three buffers, as in GridState.
+ * 
+ * @author Dan Bryce
+ */
+public class Particles {
+
+	private static final int LEVELS = 8;
+	private static final Color[] COLOURS = new Color[LEVELS];
+
+	static {
+		for (int i = 0; i < LEVELS; i++){
+			int v = 255 * (i + 1) / LEVELS;
+			COLOURS[i] = new Color(v, v, v);
+		}
+	}
+
+	/**
+	 * The particles at the end of a tick, as needed for drawing.
+	 */
+	private static class Snapshot {
+
+		private final float[] x, y, size;
+		private final byte[] level;
+		private int count;
+		private long sequence;
+
+		/**
+		 * Constructs an empty Snapshot.
+		 * @param capacity
+		 */
+		private Snapshot(int capacity) {
+			x = new float[capacity];
+			y = new float[capacity];
+			size = new float[capacity];
+			level = new byte[capacity];
+		}
+	}
+
+	private final int capacity;
+	private final int spawnBudget;
+
+	private final float[] x, y, vx, vy, size;
+	private final short[] life, maxLife;
+	private int count;
+
+	// Snapshots for drawing; see publish()
+	private final AtomicReference<Snapshot> shared;
+	private Snapshot back, front;
+	private volatile long published;
+	private long sequence;
+
+	// Scratch space for grouping particles by brightness
+	private final int[] levelStart;
+	private final int[] byLevel;
+
+	private int spawnedThisTick;
+	private long dropped;
+	private int seed = 0x2545F491;
+
+	private long tickNanos, drawNanos;
+
+	/**
+	 * Constructs an empty set of Particles.
+	 * @param capacity Maximum number of live particles.
+	 * @param spawnBudget Maximum number of particles created per tick.
+	 */
+	public Particles(int capacity, int spawnBudget) {
+		this.capacity = capacity;
+		this.spawnBudget = spawnBudget;
+		x = new float[capacity];
+		y = new float[capacity];
+		vx = new float[capacity];
+		vy = new float[capacity];
+		size = new float[capacity];
+		life = new short[capacity];
+		maxLife = new short[capacity];
+		levelStart = new int[LEVELS + 1];
+		byLevel = new int[capacity];
+		back = new Snapshot(capacity);
+		front = new Snapshot(capacity);
+		shared = new AtomicReference<Snapshot>(new Snapshot(capacity));
+	}
+
+	/**
+	 * Creates a single particle, if the budget and capacity allow.
+	 * @param centreX
+	 * @param centreY
+	 * @param speedX
+	 * @param speedY
+	 * @param size Width and height.
+	 * @param ticks Lifetime.
+	 * @return True if the particle was created.
+	 */
+	public boolean spawn(double centreX, double centreY, double speedX,
+			double speedY, double size, int ticks) {
+
+		if (spawnedThisTick >= spawnBudget || count >= capacity){
+			dropped++;
+			return false;
+		}
+		spawnedThisTick++;
+
+		int i = count++;
+		x[i] = (float) (centreX - size / 2);
+		y[i] = (float) (centreY - size / 2);
+		vx[i] = (float) speedX;
+		vy[i] = (float) speedY;
+		this.size[i] = (float) size;
+		life[i] = (short) ticks;
+		maxLife[i] = (short) ticks;
+		return true;
+	}
+
+	/**
+	 * Creates particles flying outwards from a point in random directions.
+	 * @param centreX
+	 * @param centreY
+	 * @param number Number of particles; fewer are created if the budget
+	 * runs out.
+	 * @param maxSpeed
+	 * @param size
+	 * @param ticks Maximum lifetime.
+	 */
+	public void burst(double centreX, double centreY, int number,
+			double maxSpeed, double size, int ticks) {
+		for (int n = 0; n < number; n++){
+			double angle = nextFloat() * 2 * Math.PI;
+			double speed = maxSpeed * (0.25 + 0.75 * nextFloat());
+			int life = ticks / 2 + (int) (nextFloat() * (ticks / 2));
+			if (!spawn(centreX, centreY, Math.cos(angle) * speed,
+					Math.sin(angle) * speed, size, Math.max(life, 1))){
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Gets a cheap pseudo-random number, without touching the game's Random
+	 * (which would change how the game plays out).
+	 * @return Value between 0 (inclusive) and 1 (exclusive).
+	 */
+	private float nextFloat() {
+		// Xorshift
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		return (seed >>> 8) / (float) (1 << 24);
+	}
+
+	/**
+	 * Moves and ages all particles, removing any that have expired, and
+	 * renews the spawn budget.
+	 */
+	public void tick() {
+
+		long startTime = System.nanoTime();
+
+		int i = 0;
+		while (i < count){
+			if (--life[i] <= 0){
+				remove(i);
+				continue;
+			}
+			x[i] += vx[i];
+			y[i] += vy[i];
+			i++;
+		}
+
+		spawnedThisTick = 0;
+		tickNanos = System.nanoTime() - startTime;
+	}
+
+	/**
+	 * Makes the particles as they are now available to draw().
+	 * 
+	 * This should be called on the game Thread once each tick's particles
+	 * have been spawned.
+	 */
+	public void publish() {
+
+		long startTime = System.nanoTime();
+
+		Snapshot snapshot = back;
+		System.arraycopy(x, 0, snapshot.x, 0, count);
+		System.arraycopy(y, 0, snapshot.y, 0, count);
+		System.arraycopy(size, 0, snapshot.size, 0, count);
+		for (int i = 0; i < count; i++){
+			snapshot.level[i] = (byte) ((life[i] * LEVELS - 1) / maxLife[i]);
+		}
+		snapshot.count = count;
+		snapshot.sequence = ++sequence;
+
+		back = shared.getAndSet(snapshot);
+		published = sequence;
+
+		tickNanos += System.nanoTime() - startTime;
+	}
+
+	/**
+	 * Removes a particle by moving the last live particle into its place.
+	 * @param i
+	 */
+	private void remove(int i) {
+		int last = --count;
+		x[i] = x[last];
+		y[i] = y[last];
+		vx[i] = vx[last];
+		vy[i] = vy[last];
+		size[i] = size[last];
+		life[i] = life[last];
+		maxLife[i] = maxLife[last];
+	}
+
+	/**
+	 * Draws the particles as they were last published, dimmest first.
+	 * @param renderer
+	 */
+	public void draw(Renderer renderer) {
+
+		long startTime = System.nanoTime();
+
+		// Take the latest Snapshot, if there is a new one
+		if (published != front.sequence){
+			front = shared.getAndSet(front);
+		}
+		Snapshot snapshot = front;
+		int count = snapshot.count;
+		byte[] levels = snapshot.level;
+		float[] x = snapshot.x, y = snapshot.y, size = snapshot.size;
+
+		// Count the particles at each brightness level
+		Arrays.fill(levelStart, 0);
+		for (int i = 0; i < count; i++){
+			levelStart[levels[i] + 1]++;
+		}
+		for (int level = 0; level < LEVELS; level++){
+			levelStart[level + 1] += levelStart[level];
+		}
+
+		// Group particle indices by level
+		for (int i = 0; i < count; i++){
+			byLevel[levelStart[levels[i]]++] = i;
+		}
+
+		// Each level now starts where the previous one ended
+		int start = 0;
+		for (int level = 0; level < LEVELS; level++){
+			int end = levelStart[level];
+			if (end > start){
+				renderer.setColour(COLOURS[level]);
+				for (int n = start; n < end; n++){
+					int i = byLevel[n];
+					renderer.fillRect(x[i], y[i], size[i], size[i]);
+				}
+			}
+			start = end;
+		}
+
+		drawNanos = System.nanoTime() - startTime;
+	}
+
+	/**
+	 * Gets the number of live particles.
+	 * @return
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the maximum number of live particles.
+	 * @return
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the number of particles that could not be created because the
+	 * budget or capacity was exceeded.
+	 * @return
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Gets the time taken by the last call to tick() and publish().
+	 * @return
+	 */
+	public long getTickNanos() {
+		return tickNanos;
+	}
+
+	/**
+	 * Gets the time taken by the last call to draw().
+	 * @return
+	 */
+	public long getDrawNanos() {
+		return drawNanos;
+	}
+
+}
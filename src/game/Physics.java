@@ -0,0 +1,187 @@
+package game;
+
+/**
+ * Physical constants that govern how the Ball and Players move.
+ * 
+ * These are fixed for the duration of a game, but can be varied between
+ * games, e.g. when tuning.
+ * 
+ * Physics can also choose fixed-point arithmetic for the Balls, which
+ * makes games bit-exact across JVMs; see FixedBall. Balls can also be 
+ * moved in several smaller substeps per tick, which makes fast Balls less 
+ * likely to skip past a paddle.
+ * 
+ * @author Dan Bryce
+ */
+public class Physics {
+
+	/**
+	 * The standard game physics.
+	 */
+	public static final Physics DEFAULT = new Physics(0.75, 0.95, 0.9, 1.1, 3.0);
+
+	private final double playerAcceleration;
+	private final double playerDeceleration;
+	private final double playerBounceSpeedMultiplier;
+	private final double ballBounceSpeedMultiplier;
+	private final double ballAngleMultiplier;
+	private final boolean fixedPoint;
+	private final int ballSubsteps;
+
+	/**
+	 * Constructs a set of Physics constants.
+	 * @param playerAcceleration Speed gained per tick while a key is held.
+	 * @param playerDeceleration Speed multiplier per tick when no key is held.
+	 * @param playerBounceSpeedMultiplier Speed multiplier when a paddle
+	 * bounces off a wall.
+	 * @param ballBounceSpeedMultiplier Speed multiplier when the Ball bounces.
+	 * @param ballAngleMultiplier Degrees of spin added to the Ball per unit of
+	 * paddle speed.
+	 */
+	public Physics(double playerAcceleration, double playerDeceleration,
+			double playerBounceSpeedMultiplier,
+			double ballBounceSpeedMultiplier, double ballAngleMultiplier) {
+		this(playerAcceleration, playerDeceleration,
+				playerBounceSpeedMultiplier, ballBounceSpeedMultiplier,
+				ballAngleMultiplier, false);
+	}
+
+	/**
+	 * Constructs a set of Physics constants, optionally using fixed-point
+	 * arithmetic.
+	 * @param playerAcceleration
+	 * @param playerDeceleration
+	 * @param playerBounceSpeedMultiplier
+	 * @param ballBounceSpeedMultiplier
+	 * @param ballAngleMultiplier
+	 * @param fixedPoint True to use FixedBalls.
+	 */
+	public Physics(double playerAcceleration, double playerDeceleration,
+			double playerBounceSpeedMultiplier,
+			double ballBounceSpeedMultiplier, double ballAngleMultiplier,
+			boolean fixedPoint) {
+		this(playerAcceleration, playerDeceleration,
+				playerBounceSpeedMultiplier, ballBounceSpeedMultiplier,
+				ballAngleMultiplier, fixedPoint, 1);
+	}
+
+	/**
+	 * Constructs a set of Physics constants, with the given number of Ball 
+	 * substeps per tick.
+	 * @param playerAcceleration
+	 * @param playerDeceleration
+	 * @param playerBounceSpeedMultiplier
+	 * @param ballBounceSpeedMultiplier
+	 * @param ballAngleMultiplier
+	 * @param fixedPoint True to use FixedBalls.
+	 * @param ballSubsteps Number of times the Balls move per tick, each 
+	 * time by a fraction of their speed.
+	 */
+	public Physics(double playerAcceleration, double playerDeceleration,
+			double playerBounceSpeedMultiplier,
+			double ballBounceSpeedMultiplier, double ballAngleMultiplier,
+			boolean fixedPoint, int ballSubsteps) {
+		if (ballSubsteps < 1){
+			throw new IllegalArgumentException(
+					"Expected at least 1 Ball substep");
+		}
+		this.playerAcceleration = playerAcceleration;
+		this.playerDeceleration = playerDeceleration;
+		this.playerBounceSpeedMultiplier = playerBounceSpeedMultiplier;
+		this.ballBounceSpeedMultiplier = ballBounceSpeedMultiplier;
+		this.ballAngleMultiplier = ballAngleMultiplier;
+		this.fixedPoint = fixedPoint;
+		this.ballSubsteps = ballSubsteps;
+	}
+
+	/**
+	 * Creates a copy of these Physics with fixed-point arithmetic turned on
+	 * or off.
+	 * @param fixedPoint
+	 * @return
+	 */
+	public Physics withFixedPoint(boolean fixedPoint) {
+		return new Physics(playerAcceleration, playerDeceleration,
+				playerBounceSpeedMultiplier, ballBounceSpeedMultiplier,
+				ballAngleMultiplier, fixedPoint, ballSubsteps);
+	}
+
+	/**
+	 * Creates a copy of these Physics with the given number of Ball 
+	 * substeps per tick.
+	 * @param ballSubsteps
+	 * @return
+	 */
+	public Physics withBallSubsteps(int ballSubsteps) {
+		return new Physics(playerAcceleration, playerDeceleration,
+				playerBounceSpeedMultiplier, ballBounceSpeedMultiplier,
+				ballAngleMultiplier, fixedPoint, ballSubsteps);
+	}
+
+	/**
+	 * Getter for player acceleration.
+	 * @return
+	 */
+	public double getPlayerAcceleration() {
+		return playerAcceleration;
+	}
+
+	/**
+	 * Getter for player deceleration.
+	 * @return
+	 */
+	public double getPlayerDeceleration() {
+		return playerDeceleration;
+	}
+
+	/**
+	 * Getter for the player's wall bounce speed multiplier.
+	 * @return
+	 */
+	public double getPlayerBounceSpeedMultiplier() {
+		return playerBounceSpeedMultiplier;
+	}
+
+	/**
+	 * Getter for the Ball's bounce speed multiplier.
+	 * @return
+	 */
+	public double getBallBounceSpeedMultiplier() {
+		return ballBounceSpeedMultiplier;
+	}
+
+	/**
+	 * Getter for the Ball angle multiplier.
+	 * @return
+	 */
+	public double getBallAngleMultiplier() {
+		return ballAngleMultiplier;
+	}
+
+	/**
+	 * Whether Balls use fixed-point arithmetic.
+	 * @return
+	 */
+	public boolean isFixedPoint() {
+		return fixedPoint;
+	}
+
+	/**
+	 * Gets the number of times the Balls move per tick.
+	 * @return
+	 */
+	public int getBallSubsteps() {
+		return ballSubsteps;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("acceleration=%.3f deceleration=%.3f " +
+				"playerBounce=%.3f ballBounce=%.3f angle=%.3f%s%s",
+				playerAcceleration, playerDeceleration,
+				playerBounceSpeedMultiplier, ballBounceSpeedMultiplier,
+				ballAngleMultiplier, fixedPoint ? " fixed" : "",
+				ballSubsteps > 1 ? " substeps=" + ballSubsteps : "");
+	}
+
+}
@@ -1,53 +1,82 @@
 package game;
 
 import java.awt.Color;
-import java.awt.Graphics2D;
 
+import render.Renderer;
 import state.GameState;
 
 /**
  * Class representing a Player's paddle.
  * 
+ * A paddle sits against one wall of the game area, and moves along it.
+ * 
  * @author Dan Bryce
  */
 public class Player extends Entity {
 
+	/**
+	 * Thickness of the paddle, away from its wall.
+	 */
 	public static final int WIDTH = 32;
+	
+	/**
+	 * Length of the paddle, along its wall.
+	 */
 	public static final int HEIGHT = 128;
-	public static final double BALL_ANGLE_MULTIPLIER = 3.0;
 	
-	private static final double ACCELERATION = 0.75;
-	private static final double DECELERATION = 0.95;
-	private static final double BOUNCE_SPEED_MULTIPLIER = 0.9;
 	private static final double MIN_SPEED = 0.001;
 	private static final double MAX_SPEED = 7.5;
 	
+	protected double x1, y1, x2, y2;
+	protected int id;
+	protected Side side;
+	protected double min, max;
 	protected int dir;
 	protected int score;
 	protected double speed;
+	protected Physics physics;
 
 	/**
-	 * Constructs a Player with the given number.
-	 * @param id Player number (0 or 1), determines x-position.
+	 * Constructs a Player with the given number, in the middle of the given
+	 * wall.
+	 * @param id Player number.
+	 * @param side Wall on which the paddle sits.
+	 * @param physics
 	 */
-	public Player(int id) {
-		this.x1 = id * (GameState.GAME_WIDTH - WIDTH);
-		this.y1 = GameState.GAME_HEIGHT/2 - HEIGHT/2;
-		this.x2 = x1 + WIDTH;
-		this.y2 = y1 + HEIGHT;
+	public Player(int id, Side side, Physics physics) {
+		this.id = id;
+		this.side = side;
+		this.physics = physics;
+		
+		if (side.isVertical()){
+			x1 = side == Side.LEFT ? 0 : GameState.GAME_WIDTH - WIDTH;
+			y1 = GameState.GAME_HEIGHT/2 - HEIGHT/2;
+			x2 = x1 + WIDTH;
+			y2 = y1 + HEIGHT;
+			max = GameState.GAME_HEIGHT;
+		} else {
+			x1 = GameState.GAME_WIDTH/2 - HEIGHT/2;
+			y1 = side == Side.TOP ? 0 : GameState.GAME_HEIGHT - WIDTH;
+			x2 = x1 + HEIGHT;
+			y2 = y1 + WIDTH;
+			max = GameState.GAME_WIDTH;
+		}
 	}
 
 	/**
 	 * Draws this Player.
 	 */
 	@Override
-	public void draw(Graphics2D g) {
-		g.setColor(Color.WHITE);
-		g.fillRect((int) x1, (int) y1, WIDTH, HEIGHT);
+	public void draw(Renderer renderer) {
+		renderer.setColour(Color.WHITE);
+		renderer.fillRect(x1, y1, x2 - x1, y2 - y1);
 	}
 
 	/**
 	 * Setter for direction.
+	 * 
+	 * For paddles on the top or bottom wall, "up" means left and "down"
+	 * means right.
 	 * @param dir Constant from GameState.
 	 */
 	public void setDir(int dir) {
@@ -61,7 +90,7 @@ public class Player extends Entity {
 	public void tick() {
 		
 		// Accelerate according to key pressed
-		speed += (ACCELERATION * dir);
+		speed += (physics.getPlayerAcceleration() * dir);
 		
 		// Cap speed
 		if (speed > MAX_SPEED){
@@ -72,7 +101,7 @@ public class Player extends Entity {
 		
 		// Decelerate if no direction pressed
 		if (dir == GameState.DIR_NONE){
-			speed *= DECELERATION;
+			speed *= physics.getPlayerDeceleration();
 			if (Math.abs(speed) < MIN_SPEED) speed = 0;
 		}
 
@@ -80,32 +109,51 @@ public class Player extends Entity {
 	}
 
 	/**
-	 * Moves the Player according to his speed, and handles collision.
-	 * @param dy
+	 * Moves the Player along its wall according to his speed, and handles 
+	 * collision.
+	 * @param d
 	 */
-	private void translate(double dy) {
+	private void translate(double d) {
 		
 		// Update position
-		y1 += dy;
-		y2 = y1 + HEIGHT;
+		double pos = (side.isVertical() ? y1 : x1) + d;
 
 		// Check bounds
-		if (y1 < 0){
-			y1 = 0;
-			y2 = y1 + HEIGHT;
+		if (pos < min){
+			pos = min;
 			bounce();
-		} else if (y2 > GameState.GAME_HEIGHT){
-			y1 = GameState.GAME_HEIGHT - HEIGHT;
-			y2 = y1 + HEIGHT;
+		} else if (pos + HEIGHT > max){
+			pos = max - HEIGHT;
 			bounce();
 		}
+		
+		if (side.isVertical()){
+			y1 = pos;
+			y2 = y1 + HEIGHT;
+		} else {
+			x1 = pos;
+			x2 = x1 + HEIGHT;
+		}
+	}
+	
+	/**
+	 * Sets the part of the wall within which the paddle can move.
+	 * 
+	 * This is used to keep paddles out of corners that are shared with
+	 * another paddle.
+	 * @param min
+	 * @param max
+	 */
+	public void setRange(double min, double max) {
+		this.min = min;
+		this.max = max;
 	}
 
 	/**
 	 * Processes a bounce after the paddle collides with a wall.
 	 */
 	private void bounce() {
-		speed = -speed * BOUNCE_SPEED_MULTIPLIER;
+		speed = -speed * physics.getPlayerBounceSpeedMultiplier();
 	}
 
 	/**
@@ -116,6 +164,14 @@ public class Player extends Entity {
 		return String.valueOf(score);
 	}
 
+	/**
+	 * Getter for score.
+	 * @return
+	 */
+	public int getScore() {
+		return score;
+	}
+
 	/**
 	 * Modifies the Player's score by the given amount.
 	 * @param i
@@ -125,8 +181,35 @@ public class Player extends Entity {
 	}
 
 	/**
-	 * Getter for speed (in the y-direction).
-	 * @return Speed, where negative means up and positive means down.
+	 * Getter for the Player number.
+	 * @return
+	 */
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public double getX() {
+		return x1;
+	}
+
+	@Override
+	public double getY() {
+		return y1;
+	}
+
+	/**
+	 * Getter for the wall on which the paddle sits.
+	 * @return
+	 */
+	public Side getSide() {
+		return side;
+	}
+
+	/**
+	 * Getter for speed along the paddle's wall.
+	 * @return Speed, where negative means up (or left) and positive means 
+	 * down (or right).
 	 */
 	public double getSpeed() {
 		return speed;
@@ -3,8 +3,12 @@ package game;
 import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Dimension;
+import java.awt.DisplayMode;
+import java.awt.EventQueue;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
 import java.awt.Point;
 import java.awt.Toolkit;
 import java.awt.event.ComponentEvent;
@@ -13,16 +17,27 @@ import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.net.URL;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
-import javax.imageio.ImageIO;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 
+import net.SpectatorServer;
+
+import state.GameState;
+import state.GridState;
 import state.LoadingState;
 import state.MenuState;
 import state.State;
+import stats.MatchHistory;
+import stats.MatchRecord;
+import stats.TelemetryWriter;
 
 /**
  * Main class that sets up and controls the window and game loop.
@@ -39,31 +54,167 @@ public class Pong implements KeyListener {
 	private static final int SCREEN_HEIGHT = 720;
 	private static final int FPS = 60;
 	private static final int MS = 1000 / FPS;
+	private static final long NANOS_PER_TICK = 1000000000L / FPS;
+	
+	/**
+	 * Time scale at which the game runs as fast as it can.
+	 */
+	public static final double TURBO = Double.POSITIVE_INFINITY;
+	
+	// Range of time scales reachable from the keyboard, before turbo
+	private static final double MIN_TIME_SCALE = 1.0 / 8;
+	private static final double MAX_TIME_SCALE = 64;
+	
+	// Fraction of each frame that turbo mode spends ticking
+	private static final long TURBO_NANOS = NANOS_PER_TICK * 3 / 4;
 
-	private JFrame frame;
+	private volatile JFrame frame;
+	private GraphicsDevice device;
 	private GameThread thread;
-	private Screen screen;
-	private State state;
-	private BufferedImage font;
+	private volatile Screen screen;
+	private volatile State state;
+	private Assets assets;
+	private WarmUp warmUp;
+	private QualityController quality;
 	private HashMap<Character, Integer> fontMap;
+	private Path telemetryDirectory;
+	private TelemetryWriter telemetry;
+	private volatile boolean pixelRendering;
+	private volatile Physics physics;
+	private volatile int particleCapacity;
+	private volatile int particleBudget;
+	private volatile int gridMatches;
+	private volatile int detailThreshold;
+	private volatile double timeScale;
+	private volatile SpectatorServer spectators;
+	private MatchHistory history;
+	private Side[] playerSides;
+	private AISettings[] playerAI;
+	private StartupTimes startupTimes;
+	private boolean exitAfterStartup;
 
 	/**
-	 * Sets up the game.
+	 * Sets up the game in a window, with the default Options.
 	 */
 	public Pong() {
+		this(false, new Options());
+	}
+	
+	/**
+	 * Sets up the game with the given Options.
+	 * @param options
+	 */
+	public Pong(Options options) {
+		this(false, options);
+	}
+
+	/**
+	 * Sets up the game, optionally without a window or game loop.
+	 * 
+	 * Assets are loaded in the background while the window is created on 
+	 * the event dispatch thread; this returns once the window is showing. 
+	 * The GameThread starts at the same time, and draws the loading screen. 
+	 * A WarmUp runs once the Assets have loaded, so that the first match 
+	 * does not stutter while the JIT compiles it, and the menu is shown 
+	 * once that is done.
+	 * 
+	 * The Options are applied before any of this starts, so that every 
+	 * Thread sees them from the beginning.
+	 * @param headless
+	 * @param options
+	 */
+	private Pong(boolean headless, Options options) {
+		startupTimes = new StartupTimes();
+		applyOptions(options);
 		initialiseFont();
-		changeState(new LoadingState(this));
-		screen = new Screen();
+		CompletableFuture<Void> loading = assets.loadAll()
+				.thenRun(() -> startupTimes.assetsLoaded = System.nanoTime());
+		if (headless){
+			loading.join();
+			return;
+		}
+		warmUp = new WarmUp(this);
+		quality = new QualityController(NANOS_PER_TICK);
 		thread = new GameThread();
-		thread.start();
-		createFrame();
-		changeState(new MenuState(this));
+		changeState(new LoadingState(this));
+		
+		CompletableFuture<Void> shown = CompletableFuture.runAsync(() -> {
+			createFrame(options.isFullscreen());
+			startupTimes.frameShown = System.nanoTime();
+		}, EventQueue::invokeLater);
+		shown.thenRun(thread::start);
+		
+		// Fail as before if the window cannot be created
+		shown.join();
+		
+		CompletableFuture<Void> warm = loading.thenCompose(v -> 
+				warmUp.start());
+		
+		// Switch States on the event dispatch thread, like user input
+		CompletableFuture.allOf(shown, warm)
+				.thenRunAsync(() -> {
+					startupTimes.warmedUp = System.nanoTime();
+					changeState(new MenuState(this));
+				}, EventQueue::invokeLater);
+	}
+	
+	/**
+	 * Creates a Pong instance with no window and no GameThread.
+	 * 
+	 * States can then be ticked and drawn manually, e.g. to record a match
+	 * offscreen faster than real time.
+	 * @return
+	 */
+	public static Pong createHeadless() {
+		return new Pong(true, new Options());
+	}
+	
+	/**
+	 * Applies the Options chosen at launch.
+	 * 
+	 * If the match history or spectator server cannot be opened, the game 
+	 * runs without it.
+	 * @param options
+	 */
+	private void applyOptions(Options options) {
+		telemetryDirectory = options.getTelemetryDirectory();
+		pixelRendering = options.isPixelRendering();
+		physics = options.getPhysics();
+		particleCapacity = options.getParticleCapacity();
+		particleBudget = options.getParticleBudget();
+		gridMatches = options.getGridMatches();
+		detailThreshold = options.getDetailThreshold();
+		setTimeScale(options.getTimeScale());
+		playerSides = options.getPlayerSides();
+		playerAI = options.getPlayerAI();
+		exitAfterStartup = options.isExitAfterStartup();
+		
+		if (options.getHistoryFile() != null){
+			try {
+				openMatchHistory(options.getHistoryFile());
+			} catch (IOException e){
+				e.printStackTrace();
+			}
+		}
+		
+		if (options.getSpectatePort() >= 0){
+			try {
+				startSpectatorServer(options.getSpectatePort());
+			} catch (IOException e){
+				e.printStackTrace();
+			}
+		}
 	}
 	
 	/**
 	 * Creates and displays the game window.
+	 * 
+	 * This must be called on the event dispatch thread, like any other 
+	 * Swing code. If fullscreen mode is requested but not supported, a 
+	 * window is used instead.
+	 * @param fullscreen
 	 */
-	private void createFrame() {
+	private void createFrame(boolean fullscreen) {
 		
 		// Create a blank cursor
 		BufferedImage cursorImg = 
@@ -71,22 +222,74 @@ public class Pong implements KeyListener {
 		Cursor blankCursor = Toolkit.getDefaultToolkit().createCustomCursor(
 		    cursorImg, new Point(0, 0), "blank cursor");
 		
-		frame = new JFrame(TITLE);
-		frame.setResizable(false);
+		JFrame frame = new JFrame(TITLE);
 		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		frame.setCursor(blankCursor);
+		screen = new Screen();
 		frame.setContentPane(screen);
 		frame.addKeyListener(this);
-		frame.pack();
-		frame.setLocationRelativeTo(null);
-		frame.setVisible(true);
+		this.frame = frame;
+		
+		device = GraphicsEnvironment.getLocalGraphicsEnvironment()
+				.getDefaultScreenDevice();
+		
+		if (fullscreen && device.isFullScreenSupported()){
+			frame.setUndecorated(true);
+			frame.setResizable(false);
+			device.setFullScreenWindow(frame);
+			
+			DisplayMode mode = chooseDisplayMode();
+			if (mode != null){
+				device.setDisplayMode(mode);
+			}
+		} else {
+			frame.setResizable(true);
+			frame.pack();
+			frame.setLocationRelativeTo(null);
+			frame.setVisible(true);
+		}
+	}
+	
+	/**
+	 * Picks the best display mode for fullscreen mode.
+	 * 
+	 * This prefers the game's native resolution at the current bit depth, 
+	 * with the highest available refresh rate.
+	 * @return The chosen mode, or null to keep the current mode.
+	 */
+	private DisplayMode chooseDisplayMode() {
+		
+		if (!device.isDisplayChangeSupported()) return null;
+		
+		DisplayMode current = device.getDisplayMode();
+		DisplayMode best = null;
+		
+		for (DisplayMode mode : device.getDisplayModes()){
+			if (mode.getWidth() != SCREEN_WIDTH || 
+					mode.getHeight() != SCREEN_HEIGHT){
+				continue;
+			}
+			if (mode.getBitDepth() != current.getBitDepth() && 
+					mode.getBitDepth() != DisplayMode.BIT_DEPTH_MULTI){
+				continue;
+			}
+			if (best == null || 
+					mode.getRefreshRate() > best.getRefreshRate()){
+				best = mode;
+			}
+		}
+		
+		return best;
 	}
 
 	/**
 	 * Initialises the game's font.
+	 * 
+	 * The font image itself is loaded along with the other Assets.
 	 */
 	private void initialiseFont() {
-		font = getImage("font");
+		assets = new Assets();
+		assets.addImage("font", Color.WHITE);
 		fontMap = new HashMap<Character, Integer>();
 		int index = 0;
 		
@@ -105,41 +308,38 @@ public class Pong implements KeyListener {
 	
 	/**
 	 * Getter for font.
-	 * @return
+	 * @return The font, or null if it has not loaded yet.
 	 */
 	public BufferedImage getFont() {
-		return font;
+		return assets.getImage("font");
 	}
 	
 	/**
-	 * Getter for the font map.
-	 * 
-	 * The font map maps characters to their position within the image.
+	 * Getter for the game's Assets.
 	 * @return
 	 */
-	public HashMap<Character, Integer> getFontMap() {
-		return fontMap;
+	public Assets getAssets() {
+		return assets;
 	}
 	
 	/**
-	 * Loads the image with the given name.
+	 * Getter for the WarmUp that runs after the Assets have loaded.
+	 * @return The WarmUp, or null if this Pong instance is headless.
+	 */
+	public WarmUp getWarmUp() {
+		return warmUp;
+	}
+	
+	/**
+	 * Getter for the font map.
 	 * 
-	 * Note that this assumes the image has a PNG extension.
-	 * @param filename
+	 * The font map maps characters to their position within the image.
 	 * @return
 	 */
-	private BufferedImage getImage(String filename) {
-		ClassLoader cl = this.getClass().getClassLoader();
-		URL url = cl.getResource("gfx/" + filename + ".png");
-		BufferedImage image = null; 
-		try {
-			image = ImageIO.read(url);
-		} catch (IOException e){
-			e.printStackTrace();
-		}
-		return image;
+	public HashMap<Character, Integer> getFontMap() {
+		return fontMap;
 	}
-
+	
 	/**
 	 * KeyListener method that passes KeyEvents to the current State.
 	 * 
@@ -148,10 +348,24 @@ public class Pong implements KeyListener {
 	 */
 	@Override
 	public void keyPressed(KeyEvent e) {
-		if (e.getKeyCode() == KeyEvent.VK_ESCAPE){
+		int code = e.getKeyCode();
+		if (code == KeyEvent.VK_ESCAPE){
 			quit();
+		} else if (code == KeyEvent.VK_F5){
+			setPaused(!isPaused());
+		} else if (code == KeyEvent.VK_F6){
+			step();
+		} else if (code == KeyEvent.VK_F7){
+			setTimeScale(timeScale == TURBO ? 
+					MAX_TIME_SCALE : Math.max(timeScale / 2, MIN_TIME_SCALE));
+		} else if (code == KeyEvent.VK_F8){
+			setTimeScale(timeScale >= MAX_TIME_SCALE ? 
+					TURBO : timeScale * 2);
+		} else if (code == KeyEvent.VK_F9){
+			setTimeScale(1);
 		} else {
 			state.keyPressed(e);
+			wakeThread();
 		}
 	}
 
@@ -161,6 +375,7 @@ public class Pong implements KeyListener {
 	@Override
 	public void keyReleased(KeyEvent e) {
 		state.keyReleased(e);
+		wakeThread();
 	}
 
 	/**
@@ -175,30 +390,515 @@ public class Pong implements KeyListener {
 	 * @param state
 	 */
 	public void changeState(State state) {
+		State previousState = this.state;
 		this.state = state;
 		
+		if (previousState instanceof GameState){
+			recordMatch((GameState) previousState);
+		} else if (previousState instanceof GridState){
+			((GridState) previousState).stop();
+		}
+		
+		stopTelemetry();
+		if (state instanceof GameState && telemetryDirectory != null){
+			startTelemetry((GameState) state);
+		}
+		
 		// Inform new State of its initial size
 		if (screen != null){
 			state.sizeChanged(screen.getWidth(), screen.getHeight());
 		}
+		
+		// Inform new State of the current quality level
+		if (quality != null){
+			state.qualityChanged(quality);
+		}
+		
+		// Make sure the new State gets drawn, even if it is static
+		wakeThread();
+	}
+	
+	/**
+	 * Getter for the QualityController.
+	 * @return The QualityController, or null if there is no game loop.
+	 */
+	public QualityController getQuality() {
+		return quality;
 	}
 
+	/**
+	 * Starts broadcasting games to spectators.
+	 * @param port
+	 * @throws IOException If the port cannot be opened.
+	 */
+	public void startSpectatorServer(int port) throws IOException {
+		spectators = new SpectatorServer(port);
+	}
+	
+	/**
+	 * Sets the file in which finished matches are stored.
+	 * @param file
+	 * @throws IOException If the file cannot be opened.
+	 */
+	public void openMatchHistory(Path file) throws IOException {
+		history = new MatchHistory(file);
+	}
+	
+	/**
+	 * Adds a finished game to the match history, if there is one.
+	 * 
+	 * Human Players are named after the user, and AI Players are all 
+	 * called "AI".
+	 * @param game
+	 */
+	private void recordMatch(GameState game) {
+		
+		if (history == null || game.getTicks() == 0){
+			return;
+		}
+		
+		int numPlayers = game.getNumPlayers();
+		String[] names = new String[numPlayers];
+		Side[] sides = new Side[numPlayers];
+		int[] scores = new int[numPlayers];
+		String userName = System.getProperty("user.name", "Player");
+		
+		for (int i = 0; i < numPlayers; i++){
+			Player player = game.getPlayer(i);
+			names[i] = player instanceof AIPlayer ? "AI" : userName;
+			sides[i] = player.getSide();
+			scores[i] = player.getScore();
+			
+			// Keep names unique within a match
+			for (int j = 0; j < i; j++){
+				if (names[j].equals(names[i])){
+					names[i] += " " + (i + 1);
+					break;
+				}
+			}
+		}
+		
+		try {
+			history.append(new MatchRecord(System.currentTimeMillis(), 
+					game.getSeed(), game.getNumBalls(), game.getTicks(), 
+					names, sides, scores));
+		} catch (IOException e){
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Ticks the current State, and broadcasts it to any spectators.
+	 */
+	private void tickState() {
+		State currentState = state;
+		currentState.tick();
+		
+		SpectatorServer spectatorServer = spectators;
+		if (spectatorServer != null && currentState instanceof GameState){
+			spectatorServer.publish((GameState) currentState);
+		}
+	}
+	
+	/**
+	 * Sets how fast the game runs relative to real time.
+	 * 
+	 * Below 1, ticks are spread out over several frames (slow motion). 
+	 * Above 1, several ticks are run per frame, but the screen is still 
+	 * only redrawn once per frame. At TURBO, the game ticks for most of 
+	 * each frame, as fast as it can.
+	 * 
+	 * If the ticks due in a frame do not fit in it, the rest are skipped, 
+	 * so the game runs as fast as it can without falling behind.
+	 * 
+	 * States that are not animating still tick once per input.
+	 * @param timeScale Ticks per frame, or TURBO.
+	 * @throws IllegalArgumentException If the time scale is not positive.
+	 */
+	public void setTimeScale(double timeScale) {
+		if (!(timeScale > 0)){
+			throw new IllegalArgumentException(
+					"Time scale must be positive: " + timeScale);
+		}
+		this.timeScale = timeScale;
+		updateTitle();
+	}
+	
+	/**
+	 * Gets how fast the game runs relative to real time.
+	 * @return Ticks per frame, or TURBO.
+	 */
+	public double getTimeScale() {
+		return timeScale;
+	}
+	
+	/**
+	 * Pauses or resumes the game.
+	 * 
+	 * While paused, the game only ticks when step() is called.
+	 * @param paused
+	 */
+	public void setPaused(boolean paused) {
+		if (thread == null) return;
+		if (paused){
+			thread.pause();
+		} else {
+			thread.unpause();
+		}
+		updateTitle();
+	}
+	
+	/**
+	 * Determines whether the game is paused.
+	 * @return
+	 */
+	public boolean isPaused() {
+		return thread != null && thread.isPaused();
+	}
+	
+	/**
+	 * Runs a single tick while the game is paused.
+	 */
+	public void step() {
+		if (thread != null){
+			thread.step();
+		}
+	}
+	
+	/**
+	 * Shows the time scale and quality level in the window title, if they 
+	 * are not normal.
+	 */
+	private void updateTitle() {
+		if (frame == null) return;
+		
+		String title = TITLE;
+		if (isPaused()){
+			title += " (paused)";
+		} else if (timeScale == TURBO){
+			title += " (turbo)";
+		} else if (timeScale != 1){
+			title += " (" + timeScale + "x)";
+		}
+		if (quality != null && 
+				quality.getLevel() != QualityController.Level.FULL){
+			title += " [quality: " + 
+					quality.getLevel().name().toLowerCase() + "]";
+		}
+		frame.setTitle(title);
+	}
+	
+	/**
+	 * Makes the GameThread run a tick, in case the current State is static.
+	 */
+	private void wakeThread() {
+		if (thread != null){
+			thread.wake();
+		}
+	}
+	
+	/**
+	 * Sets the directory in which telemetry files are written.
+	 * 
+	 * Each GameState started from now on is logged to its own file.
+	 * @param telemetryDirectory Directory, or null to disable telemetry.
+	 */
+	public void setTelemetryDirectory(Path telemetryDirectory) {
+		this.telemetryDirectory = telemetryDirectory;
+	}
+	
+	/**
+	 * Sets whether games are drawn by writing pixels directly, rather than
+	 * through Java2D.
+	 * 
+	 * This takes effect from the next GameState.
+	 * @param pixelRendering
+	 */
+	public void setPixelRendering(boolean pixelRendering) {
+		this.pixelRendering = pixelRendering;
+	}
+	
+	/**
+	 * Determines whether games should be drawn by writing pixels directly.
+	 * @return
+	 */
+	public boolean isPixelRendering() {
+		return pixelRendering;
+	}
+	
+	/**
+	 * Sets whether games use fixed-point arithmetic for the Balls, which 
+	 * makes them play out identically on any JVM.
+	 * 
+	 * This takes effect from the next GameState.
+	 * @param fixedPoint
+	 */
+	public void setFixedPoint(boolean fixedPoint) {
+		physics = physics.withFixedPoint(fixedPoint);
+	}
+	
+	/**
+	 * Sets the number of times the Balls move per tick; more substeps 
+	 * make fast Balls less likely to pass through paddles.
+	 * 
+	 * This takes effect from the next GameState.
+	 * @param substeps
+	 */
+	public void setBallSubsteps(int substeps) {
+		physics = physics.withBallSubsteps(substeps);
+	}
+	
+	/**
+	 * Gets the Physics used by new games.
+	 * @return
+	 */
+	public Physics getPhysics() {
+		return physics;
+	}
+	
+	/**
+	 * Sets the limits on the particles used for visual effects.
+	 * 
+	 * This takes effect from the next GameState.
+	 * @param capacity Maximum number of live particles, or 0 to disable 
+	 * effects.
+	 * @param budget Maximum number of particles created per tick.
+	 */
+	public void setParticleLimits(int capacity, int budget) {
+		particleCapacity = capacity;
+		particleBudget = budget;
+	}
+	
+	/**
+	 * Gets the maximum number of live particles in new games.
+	 * @return
+	 */
+	public int getParticleCapacity() {
+		return particleCapacity;
+	}
+	
+	/**
+	 * Gets the maximum number of particles created per tick in new games.
+	 * @return
+	 */
+	public int getParticleBudget() {
+		return particleBudget;
+	}
+	
+	/**
+	 * Sets the number of Balls from which games are drawn at a lower level 
+	 * of detail: as a heatmap of the Balls, with only the Balls nearest to 
+	 * each Player drawn individually.
+	 * 
+	 * This takes effect from the next GameState.
+	 * @param detailThreshold Number of Balls, or Integer.MAX_VALUE to 
+	 * always draw every Ball.
+	 */
+	public void setDetailThreshold(int detailThreshold) {
+		this.detailThreshold = detailThreshold;
+	}
+	
+	/**
+	 * Gets the number of Balls from which games are drawn at a lower level 
+	 * of detail.
+	 * @return
+	 */
+	public int getDetailThreshold() {
+		return detailThreshold;
+	}
+	
+	/**
+	 * Sets the number of matches shown by the grid view.
+	 * @param gridMatches
+	 */
+	public void setGridMatches(int gridMatches) {
+		this.gridMatches = gridMatches;
+	}
+	
+	/**
+	 * Gets the number of matches shown by the grid view.
+	 * @return
+	 */
+	public int getGridMatches() {
+		return gridMatches;
+	}
+	
+	/**
+	 * Sets the Players used by each GameState started from now on.
+	 * @param sides Wall of each Player.
+	 * @param ai Settings for each Player, or null for a human Player.
+	 */
+	public void setPlayers(Side[] sides, AISettings[] ai) {
+		playerSides = sides;
+		playerAI = ai;
+	}
+	
+	/**
+	 * Gets the wall of each Player in new games.
+	 * @return
+	 */
+	public Side[] getPlayerSides() {
+		return playerSides;
+	}
+	
+	/**
+	 * Gets the AI settings of each Player in new games.
+	 * @return Settings for each Player, or null for a human Player.
+	 */
+	public AISettings[] getPlayerAI() {
+		return playerAI;
+	}
+	
+	/**
+	 * Starts logging the events of a GameState.
+	 * @param gameState
+	 */
+	private void startTelemetry(GameState gameState) {
+		Path file = telemetryDirectory.resolve(
+				"match-" + System.currentTimeMillis() + ".ptl");
+		try {
+			telemetry = new TelemetryWriter(file, gameState.getEvents());
+		} catch (IOException e){
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Finishes the current telemetry file, if any.
+	 */
+	private void stopTelemetry() {
+		if (telemetry == null){
+			return;
+		}
+		try {
+			telemetry.close();
+		} catch (IOException e){
+			e.printStackTrace();
+		}
+		telemetry = null;
+	}
+	
 	/**
 	 * Quits the game, stopping all Threads and disposing of the window.
 	 */
 	private void quit() {
 		thread.destroy();
+		
+		// Let the last tick finish before the match is recorded
+		try {
+			thread.join();
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		
+		stopTelemetry();
+		if (state instanceof GameState){
+			recordMatch((GameState) state);
+		}
+		if (history != null){
+			try {
+				history.close();
+			} catch (IOException e){
+				e.printStackTrace();
+			}
+		}
+		if (spectators != null){
+			spectators.close();
+		}
+		
+		// Restore the original display mode
+		if (device.getFullScreenWindow() == frame){
+			device.setFullScreenWindow(null);
+		}
+		
 		frame.setVisible(false);
 		frame.dispose();
 		System.exit(0);
 	}
 	
+	/**
+	 * Records that the menu has been drawn for the first time, and quits 
+	 * if requested.
+	 */
+	private void startupComplete() {
+		startupTimes.menuDrawn = System.nanoTime();
+		if (!exitAfterStartup) return;
+		
+		System.out.println(startupTimes);
+		EventQueue.invokeLater(this::quit);
+	}
+	
 	/**
 	 * Entry point for the application.
-	 * @param args
+	 * @param args Pass "-fullscreen" to run in fullscreen mode, and
+	 * "-telemetry <dir>" to log every game to the given directory. Pass 
+	 * "-pixels" to draw games without Java2D. Pass "-players <list>" to 
+	 * choose the Players, e.g. "left,right:ai,top:ai" for a human on the 
+	 * left and AI Players on the right and top walls. Pass 
+	 * "-spectate <port>" to let spectators watch over the network, and 
+	 * "-history <file>" to keep a record of finished matches. Pass "-fixed" 
+	 * to use fixed-point physics. Pass "-particles <capacity>[:<budget>]" 
+	 * to limit visual effects, e.g. "0" to disable them. Pass 
+	 * "-grid <matches>" to choose how many matches the grid view shows. 
+	 * Pass "-speed <scale>" to run at a multiple of real time, or 
+	 * "-speed turbo" to run as fast as possible. Pass "-lod <balls>" to 
+	 * draw games with at least that many Balls as a heatmap. Pass 
+	 * "-substeps <n>" to move the Balls n times per tick, and 
+	 * "-ai-rate <hz>" to set how often the AI makes decisions. Pass 
+	 * "-exit-after-startup" to quit once the menu appears, printing how 
+	 * long startup took.
+	 * 
+	 * While running, F5 pauses, F6 steps a single tick while paused, F7 
+	 * and F8 halve and double the speed, and F9 restores normal speed.
 	 */
 	public static void main(String[] args) {
-		new Pong();
+		new Pong(Options.parse(args));
+	}
+
+	/**
+	 * When each stage of startup finished.
+	 * 
+	 * Stages overlap, so each is timed from the start of the JVM rather 
+	 * than from the previous stage.
+	 * 
+	 * @author Dan Bryce
+	 */
+	private static class StartupTimes {
+		
+		private final long jvmStart;
+		private volatile long assetsLoaded;
+		private volatile long frameShown;
+		private volatile long warmedUp;
+		private volatile long menuDrawn;
+		
+		/**
+		 * Constructs a StartupTimes, working out when the JVM started.
+		 */
+		public StartupTimes() {
+			long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+			jvmStart = System.nanoTime() - uptime * 1000000;
+		}
+		
+		/**
+		 * Converts a time to milliseconds since the JVM started.
+		 * @param nanoTime
+		 * @return
+		 */
+		private long toMillis(long nanoTime) {
+			return nanoTime == 0 ? -1 : (nanoTime - jvmStart) / 1000000;
+		}
+		
+		/**
+		 * Lists the time of each stage, in a form read by StartupBenchmark.
+		 */
+		@Override
+		public String toString() {
+			return "startup: menu=" + toMillis(menuDrawn) + 
+					" assets=" + toMillis(assetsLoaded) + 
+					" frame=" + toMillis(frameShown) + 
+					" warmup=" + toMillis(warmedUp);
+		}
+		
 	}
 
 	/**
@@ -208,34 +908,95 @@ public class Pong implements KeyListener {
 	 */
 	public class GameThread extends Thread {
 		
-		private boolean paused, stopped;
+		private final Lock lock = new ReentrantLock();
+		private final Condition wakeCondition = lock.newCondition();
+		
+		// Guarded by lock
+		private boolean paused, woken;
+		private int pendingSteps;
+		
+		private volatile boolean stopped;
 		
 		/**
 		 * Runs the game at the correct FPS.
+		 * 
+		 * Each frame runs as many ticks as the time scale calls for, and 
+		 * then repaints the screen once; see setTimeScale().
+		 * 
+		 * If ticking and drawing take too long, the QualityController will 
+		 * reduce the quality of the game until they fit. This is only 
+		 * judged at normal speed or slower, since turbo mode is expected to 
+		 * use up the whole frame.
+		 * 
+		 * While the current State is not animating, the loop sleeps until 
+		 * woken, and then runs a single tick.
 		 */
 		@Override
 		public void run() {
 			
 			long beforeTime, dt, sleepTime;
+			int framesSinceRepaint = 0;
+			double tickCredit = 0;
 			
 			while (!stopped){
-				beforeTime = System.currentTimeMillis();
 				
-				if (paused){
-					try {
-						synchronized (this){
-							wait();
+				boolean animating = false;
+				try {
+					animating = awaitWork();
+				} catch (InterruptedException e) {
+					if (stopped) break;
+				}
+				
+				beforeTime = System.nanoTime();
+				double scale = timeScale;
+				int ticks = 0;
+
+				if (!animating || scale == 1){
+					tickState();
+					ticks = 1;
+					tickCredit = 0;
+				} else if (scale == TURBO){
+					long deadline = beforeTime + TURBO_NANOS;
+					do {
+						tickState();
+						ticks++;
+					} while (System.nanoTime() < deadline);
+				} else {
+					long deadline = beforeTime + NANOS_PER_TICK;
+					tickCredit += scale;
+					while (tickCredit >= 1){
+						tickState();
+						ticks++;
+						tickCredit--;
+						
+						// Skip whatever does not fit in this frame
+						if (System.nanoTime() >= deadline){
+							tickCredit = 0;
+							break;
 						}
-					} catch (InterruptedException e) {
-						if (stopped) break;
 					}
 				}
-
-				state.tick();
-				screen.repaint();
+				
+				// Repaint less often if the quality has been reduced, but 
+				// always show the result of a single wake-up tick, as there 
+				// may not be another one for a while
+				if (ticks > 0){
+					framesSinceRepaint++;
+					if (!animating || 
+							framesSinceRepaint >= quality.getRenderInterval()){
+						screen.repaint();
+						framesSinceRepaint = 0;
+					}
+				}
+				
+				if (ticks == 1 && 
+						quality.update(System.nanoTime() - beforeTime)){
+					state.qualityChanged(quality);
+					EventQueue.invokeLater(Pong.this::updateTitle);
+				}
 				
 				// Sleep time is dependent on how long this tick took
-				dt = System.currentTimeMillis() - beforeTime;
+				dt = (System.nanoTime() - beforeTime) / 1000000;
 	            sleepTime = MS - dt;
 	            if (sleepTime < 0) sleepTime = 0;
 		        
@@ -248,27 +1009,102 @@ public class Pong implements KeyListener {
 			}
 		}
 		
+		/**
+		 * Blocks while paused (unless a step is pending), or while the 
+		 * current State is not animating and nothing has called wake().
+		 * @return True if the State is animating normally, or false if only 
+		 * a single tick should be run.
+		 * @throws InterruptedException
+		 */
+		private boolean awaitWork() throws InterruptedException {
+			lock.lock();
+			try {
+				while (!stopped && (paused ? pendingSteps == 0 : 
+						(!woken && !state.isAnimating()))){
+					wakeCondition.await();
+				}
+				woken = false;
+				if (paused){
+					pendingSteps = Math.max(pendingSteps - 1, 0);
+					return false;
+				}
+				return state.isAnimating();
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		/**
+		 * Makes this GameThread run a single tick while paused.
+		 */
+		public void step() {
+			lock.lock();
+			try {
+				if (paused){
+					pendingSteps++;
+					wakeCondition.signal();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		/**
+		 * Determines whether this GameThread is paused.
+		 * @return
+		 */
+		public boolean isPaused() {
+			lock.lock();
+			try {
+				return paused;
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		/**
+		 * Makes this GameThread run at least one more tick, even if the 
+		 * current State is not animating.
+		 * 
+		 * This should be called whenever something may have changed the 
+		 * State's appearance, such as user input.
+		 */
+		public void wake() {
+			lock.lock();
+			try {
+				woken = true;
+				wakeCondition.signal();
+			} finally {
+				lock.unlock();
+			}
+		}
+		
 		/**
 		 * Pauses this GameThread.
 		 * 
 		 * Call unpause() to resume it.
 		 */
 		public void pause() {
-	    	if (isAlive()){
-	    		paused = true;
-	    	}
+			lock.lock();
+			try {
+				paused = true;
+			} finally {
+				lock.unlock();
+			}
 		}
 		
 		/**
 		 * Unpauses this GameThread after a call to pause().
 		 */
 		public void unpause() {
-	    	if (isAlive()){
-				synchronized (this){
-					paused = false;
-					notifyAll();
-				}
-	    	}
+			lock.lock();
+			try {
+				paused = false;
+				pendingSteps = 0;
+				wakeCondition.signal();
+			} finally {
+				lock.unlock();
+			}
 		}
 		
 		/**
@@ -309,7 +1145,15 @@ public class Pong implements KeyListener {
 			super.paintComponent(g);
 			Graphics2D g2d = (Graphics2D) g;
 			
-			state.draw(g2d);
+			State drawnState = state;
+			long beforeTime = System.nanoTime();
+			drawnState.draw(g2d);
+			quality.frameDrawn(System.nanoTime() - beforeTime);
+			
+			if (drawnState instanceof MenuState && 
+					startupTimes.menuDrawn == 0){
+				startupComplete();
+			}
 		}
 
 		/**
@@ -336,6 +1180,7 @@ public class Pong implements KeyListener {
 			int width = e.getComponent().getWidth();
 			int height = e.getComponent().getHeight();
 			state.sizeChanged(width, height);
+			wakeThread();
 		}
 
 		/**
@@ -0,0 +1,212 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monitors how much of the frame budget is being used, and lowers the
+ * quality of the game in stages when the budget is exceeded.
+ * 
+ * Quality is restored one stage at a time once there is enough headroom.
+ * The simulation itself always runs at full rate, so the early stages only
+ * affect drawing; the last stage, REDUCED_AI, does change the game, as the
+ * AI reacts more slowly and so plays differently.
+ * 
+ * @author Dan Bryce
+ */
+public class QualityController {
+
+	/**
+	 * Quality levels, from best to worst.
+	 * 
+	 * Each level includes the reductions of the levels before it.
+	 */
+	public enum Level {
+
+		/**
+		 * Everything runs at full rate.
+		 */
+		FULL,
+
+		/**
+		 * The screen is repainted on every other tick.
+		 */
+		REDUCED_FRAME_RATE,
+
+		/**
+		 * Balls are drawn without overdraw.
+		 */
+		SIMPLE_BALLS,
+
+		/**
+		 * The AI makes decisions less often.
+		 */
+		REDUCED_AI
+	}
+
+	// Fraction of the budget above which quality is reduced
+	private static final double DEGRADE_LOAD = 0.9;
+
+	// Fraction of the budget below which quality is restored
+	private static final double RECOVER_LOAD = 0.4;
+
+	// Number of consecutive ticks needed to change level
+	private static final int DEGRADE_TICKS = 30;
+	private static final int RECOVER_TICKS = 120;
+
+	// Weight given to each new sample when smoothing
+	private static final double SMOOTHING = 0.1;
+
+	private static final int REDUCED_RENDER_INTERVAL = 2;
+	private static final int REDUCED_AI_INTERVAL = 3;
+
+	private long budgetNanos;
+	private AtomicLong pendingFrameNanos;
+	private volatile Level level;
+	private volatile double load, tickMs, frameMs;
+	private int ticksOverBudget, ticksUnderBudget;
+
+	/**
+	 * Constructs a QualityController.
+	 * @param budgetNanos Time available for each tick, including drawing.
+	 */
+	public QualityController(long budgetNanos) {
+		this.budgetNanos = budgetNanos;
+		pendingFrameNanos = new AtomicLong();
+		level = Level.FULL;
+	}
+
+	/**
+	 * Records the time taken to draw a frame.
+	 * 
+	 * This may be called from any Thread.
+	 * @param nanos
+	 */
+	public void frameDrawn(long nanos) {
+		pendingFrameNanos.addAndGet(nanos);
+	}
+
+	/**
+	 * Records the time taken by a tick, and adjusts the quality level if
+	 * necessary.
+	 * 
+	 * Frames drawn since the last call are counted towards this tick.
+	 * @param tickNanos
+	 * @return True if the quality level changed.
+	 */
+	public boolean update(long tickNanos) {
+
+		long frameNanos = pendingFrameNanos.getAndSet(0);
+		double sample = (double) (tickNanos + frameNanos) / budgetNanos;
+
+		load += (sample - load) * SMOOTHING;
+		tickMs += (tickNanos / 1e6 - tickMs) * SMOOTHING;
+		frameMs += (frameNanos / 1e6 - frameMs) * SMOOTHING;
+
+		if (load > DEGRADE_LOAD){
+			ticksOverBudget++;
+			ticksUnderBudget = 0;
+		} else if (load < RECOVER_LOAD){
+			ticksUnderBudget++;
+			ticksOverBudget = 0;
+		} else {
+			ticksOverBudget = 0;
+			ticksUnderBudget = 0;
+		}
+
+		Level[] levels = Level.values();
+		int index = level.ordinal();
+
+		if (ticksOverBudget >= DEGRADE_TICKS && index < levels.length - 1){
+			setLevel(levels[index + 1]);
+			return true;
+		} else if (ticksUnderBudget >= RECOVER_TICKS && index > 0){
+			setLevel(levels[index - 1]);
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Changes the current level, and gives it time to take effect.
+	 * @param level
+	 */
+	private void setLevel(Level level) {
+		this.level = level;
+		ticksOverBudget = 0;
+		ticksUnderBudget = 0;
+	}
+
+	/**
+	 * Gets the number of ticks that should pass between repaints.
+	 * @return
+	 */
+	public int getRenderInterval() {
+		return isAtLeast(Level.REDUCED_FRAME_RATE) ?
+				REDUCED_RENDER_INTERVAL : 1;
+	}
+
+	/**
+	 * Gets the number of ticks that should pass between AI decisions.
+	 * @return
+	 */
+	public int getAIInterval() {
+		return isAtLeast(Level.REDUCED_AI) ? REDUCED_AI_INTERVAL : 1;
+	}
+
+	/**
+	 * Determines whether Balls should be drawn in the simplest way possible.
+	 * @return
+	 */
+	public boolean isSimpleBallDrawing() {
+		return isAtLeast(Level.SIMPLE_BALLS);
+	}
+
+	/**
+	 * Determines if the current level is the given level or worse.
+	 * @param other
+	 * @return
+	 */
+	private boolean isAtLeast(Level other) {
+		return level.ordinal() >= other.ordinal();
+	}
+
+	/**
+	 * Getter for the current quality level.
+	 * @return
+	 */
+	public Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Gets the smoothed fraction of the budget in use.
+	 * @return Load, where 1 means the budget is fully used.
+	 */
+	public double getLoad() {
+		return load;
+	}
+
+	/**
+	 * Gets the smoothed time spent ticking, per tick.
+	 * @return
+	 */
+	public double getTickMs() {
+		return tickMs;
+	}
+
+	/**
+	 * Gets the smoothed time spent drawing, per tick.
+	 * @return
+	 */
+	public double getFrameMs() {
+		return frameMs;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (load %.2f, tick %.2fms, draw %.2fms)",
+				level, load, tickMs, frameMs);
+	}
+
+}
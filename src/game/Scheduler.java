@@ -0,0 +1,301 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Runs the subsystems of a game, each at its own rate.
+ * 
+ * Each tick is divided into a fixed number of steps. A Task runs on every
+ * step whose number, counted from the start of the game, is its phase
+ * plus a multiple of its interval. Within a step, Tasks run in the order
+ * they were added, so a game always plays out in the same order however
+ * its Tasks are timed.
+ * 
+ * Rates are given in runs per second, and must divide the step rate (the
+ * tick rate times the number of steps per tick) exactly.
+ * 
+ * Tasks can be rescheduled from any Thread, e.g. when the quality level
+ * changes; the change is applied at the start of the next tick, on the
+ * Thread that ticks the Scheduler.
+ * 
+ * Optionally, each Task's run time is measured, so that the cost of each
+ * subsystem can be seen.
+ * 
+ * @author Dan Bryce
+ */
+public class Scheduler {
+
+	/**
+	 * A subsystem, as added to the Scheduler.
+	 */
+	public class Task {
+
+		private final String name;
+		private final Runnable action;
+		private int interval;
+		private int phase;
+		private long nextStep;
+
+		private long runs;
+		private long totalNanos;
+		private long maxNanos;
+
+		/**
+		 * Constructs a Task.
+		 * @param name
+		 * @param action
+		 */
+		private Task(String name, Runnable action) {
+			this.name = name;
+			this.action = action;
+		}
+
+		/**
+		 * Changes how often this Task runs, from the next tick onwards.
+		 * @param rate Runs per second.
+		 * @param phase Step within each interval on which to run.
+		 * @throws IllegalArgumentException If the rate does not divide the
+		 * step rate.
+		 */
+		public void reschedule(int rate, int phase) {
+			setInterval(getInterval(rate), phase);
+		}
+
+		/**
+		 * Changes how often this Task runs, from the next tick onwards.
+		 * @param interval Number of steps between runs.
+		 * @param phase Step within each interval on which to run.
+		 */
+		public void setInterval(int interval, int phase) {
+			pending.add(() -> apply(interval, phase));
+		}
+
+		/**
+		 * Changes how often this Task runs, immediately.
+		 * 
+		 * This must only be called on the Thread that ticks the Scheduler,
+		 * or before the first tick.
+		 * @param interval
+		 * @param phase
+		 */
+		private void apply(int interval, int phase) {
+			this.interval = Math.max(interval, 1);
+			this.phase = Math.floorMod(phase, this.interval);
+			nextStep = getNextStep(step);
+		}
+
+		/**
+		 * Gets the first step on which this Task is due, from the given
+		 * step onwards.
+		 * @param from
+		 * @return
+		 */
+		private long getNextStep(long from) {
+			long next = from - Math.floorMod(from - phase, interval);
+			return next < from ? next + interval : next;
+		}
+
+		/**
+		 * Runs the Task, measuring it if timing is enabled.
+		 */
+		private void run() {
+			if (!timing){
+				action.run();
+				runs++;
+				return;
+			}
+			long startTime = System.nanoTime();
+			action.run();
+			long nanos = System.nanoTime() - startTime;
+			runs++;
+			totalNanos += nanos;
+			if (nanos > maxNanos) maxNanos = nanos;
+		}
+
+		/**
+		 * Gets the name of this Task.
+		 * @return
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets the number of runs per second.
+		 * @return
+		 */
+		public double getRate() {
+			return (double) stepRate / interval;
+		}
+
+		/**
+		 * Gets the number of times this Task has run since the metrics
+		 * were last reset.
+		 * @return
+		 */
+		public long getRuns() {
+			return runs;
+		}
+
+		/**
+		 * Gets the total time spent running this Task since the metrics
+		 * were last reset.
+		 * @return Nanoseconds, or 0 if timing is disabled.
+		 */
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		/**
+		 * Gets the mean time per run.
+		 * @return Nanoseconds, or 0 if there have been no timed runs.
+		 */
+		public double getMeanNanos() {
+			return runs == 0 ? 0 : (double) totalNanos / runs;
+		}
+
+		/**
+		 * Gets the longest single run.
+		 * @return Nanoseconds, or 0 if timing is disabled.
+		 */
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		/**
+		 * Gets the mean time spent in this Task per tick.
+		 * @return Nanoseconds.
+		 */
+		public double getNanosPerTick() {
+			return getMeanNanos() * getRate() / tickRate;
+		}
+	}
+
+	private final int tickRate;
+	private final int stepsPerTick;
+	private final int stepRate;
+	private final ArrayList<Task> tasks = new ArrayList<Task>();
+	private Task[] taskArray = new Task[0];
+	private final ConcurrentLinkedQueue<Runnable> pending =
+			new ConcurrentLinkedQueue<Runnable>();
+	private boolean timing;
+	private long step;
+
+	/**
+	 * Constructs a Scheduler with no Tasks.
+	 * @param tickRate Ticks per second.
+	 * @param stepsPerTick Number of steps into which each tick is divided.
+	 */
+	public Scheduler(int tickRate, int stepsPerTick) {
+		this.tickRate = tickRate;
+		this.stepsPerTick = stepsPerTick;
+		stepRate = tickRate * stepsPerTick;
+	}
+
+	/**
+	 * Adds a Task, which runs after any Tasks added before it that are due
+	 * on the same step.
+	 * @param name
+	 * @param rate Runs per second.
+	 * @param phase Step within each interval on which to run.
+	 * @param action
+	 * @return
+	 * @throws IllegalArgumentException If the rate does not divide the
+	 * step rate.
+	 */
+	public Task add(String name, int rate, int phase, Runnable action) {
+		Task task = new Task(name, action);
+		task.apply(getInterval(rate), phase);
+		tasks.add(task);
+		taskArray = tasks.toArray(new Task[tasks.size()]);
+		return task;
+	}
+
+	/**
+	 * Converts a rate to a number of steps between runs.
+	 * @param rate
+	 * @return
+	 * @throws IllegalArgumentException If the rate does not divide the
+	 * step rate.
+	 */
+	private int getInterval(int rate) {
+		if (rate <= 0 || rate > stepRate || stepRate % rate != 0){
+			throw new IllegalArgumentException("Rate " + rate +
+					" does not divide the step rate of " + stepRate);
+		}
+		return stepRate / rate;
+	}
+
+	/**
+	 * Applies any changes to the Tasks' schedules, then runs every step of
+	 * the next tick.
+	 */
+	public void tick() {
+		Runnable change;
+		while ((change = pending.poll()) != null){
+			change.run();
+		}
+
+		Task[] tasks = taskArray;
+		for (int s = 0; s < stepsPerTick; s++){
+			for (Task task : tasks){
+				if (task.nextStep > step) continue;
+
+				// Runs that were somehow missed are skipped, not caught up
+				task.nextStep = task.getNextStep(step + 1);
+				task.run();
+			}
+			step++;
+		}
+	}
+
+	/**
+	 * Sets whether Tasks are timed.
+	 * 
+	 * Timing costs two calls to System.nanoTime() per run, which is only
+	 * significant for very cheap Tasks.
+	 * @param timing
+	 */
+	public void setTiming(boolean timing) {
+		this.timing = timing;
+	}
+
+	/**
+	 * Clears the metrics of every Task.
+	 */
+	public void resetMetrics() {
+		for (Task task : tasks){
+			task.runs = 0;
+			task.totalNanos = 0;
+			task.maxNanos = 0;
+		}
+	}
+
+	/**
+	 * Gets the Tasks, in the order they run within a step.
+	 * @return
+	 */
+	public List<Task> getTasks() {
+		return Collections.unmodifiableList(tasks);
+	}
+
+	/**
+	 * Gets the number of steps into which each tick is divided.
+	 * @return
+	 */
+	public int getStepsPerTick() {
+		return stepsPerTick;
+	}
+
+	/**
+	 * Gets the number of ticks per second.
+	 * @return
+	 */
+	public int getTickRate() {
+		return tickRate;
+	}
+
+}
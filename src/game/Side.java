@@ -0,0 +1,43 @@
+package game;
+
+/**
+ * The walls of the game area, any of which may hold a Player's paddle.
+ * 
+ * @author Dan Bryce
+ */
+public enum Side {
+
+	LEFT,
+	RIGHT,
+	TOP,
+	BOTTOM;
+
+	/**
+	 * Determines whether this wall runs from top to bottom.
+	 * 
+	 * Paddles on a vertical wall move up and down; the others move left
+	 * and right.
+	 * @return
+	 */
+	public boolean isVertical() {
+		return this == LEFT || this == RIGHT;
+	}
+
+	/**
+	 * Gets the wall facing this one.
+	 * @return
+	 */
+	public Side getOpposite() {
+		switch (this){
+		case LEFT:
+			return RIGHT;
+		case RIGHT:
+			return LEFT;
+		case TOP:
+			return BOTTOM;
+		default:
+			return TOP;
+		}
+	}
+
+}
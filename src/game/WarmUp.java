@@ -0,0 +1,148 @@
+package game;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import state.GameState;
+
+/**
+ * Plays a throwaway game offscreen, so that the code used every tick has
+ * been compiled by the JIT before the first real match starts.
+ * 
+ * The game uses many Balls and only AI Players, and is ticked and drawn as
+ * fast as possible on a background Thread. It stops once the JIT has gone
+ * quiet after a minimum number of ticks, or when the time limit is reached,
+ * whichever comes first.
+ * 
+ * @author Dan Bryce
+ */
+public class WarmUp {
+
+	private static final int BALLS = 50;
+	private static final int SCREEN_WIDTH = 1280;
+	private static final int SCREEN_HEIGHT = 720;
+
+	/**
+	 * Ticks needed for methods called once per tick to reach C2.
+	 */
+	private static final int MIN_TICKS = 6000;
+
+	/**
+	 * Time without new compilation after which the JIT is considered quiet.
+	 */
+	private static final long QUIET_NANOS = 250000000L;
+
+	private static final long TIME_LIMIT_NANOS = 2000000000L;
+
+	private Pong pong;
+	private volatile double progress;
+	private volatile int ticks;
+
+	/**
+	 * Constructs a WarmUp for the given Pong instance.
+	 * 
+	 * Assets must have loaded before the WarmUp is started.
+	 * @param pong
+	 */
+	public WarmUp(Pong pong) {
+		this.pong = pong;
+	}
+
+	/**
+	 * Starts the warm-up on a background Thread.
+	 * @return Future that completes once the warm-up has finished.
+	 */
+	public CompletableFuture<Void> start() {
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		Thread thread = new Thread(() -> {
+			try {
+				run();
+			} catch (RuntimeException e){
+				// A failed warm-up only means a slower start
+				e.printStackTrace();
+			} finally {
+				progress = 1;
+				future.complete(null);
+			}
+		}, "WarmUp");
+		thread.setDaemon(true);
+		thread.start();
+		return future;
+	}
+
+	/**
+	 * Ticks and draws a throwaway game until the JIT has finished with it.
+	 */
+	private void run() {
+
+		AISettings[] ai = new AISettings[pong.getPlayerSides().length];
+		Arrays.fill(ai, AISettings.DEFAULT);
+		GameState game = new GameState(pong, BALLS, pong.getPhysics(),
+				pong.getPlayerSides(), ai, 0);
+		game.sizeChanged(SCREEN_WIDTH, SCREEN_HEIGHT);
+
+		BufferedImage image = new BufferedImage(SCREEN_WIDTH, SCREEN_HEIGHT,
+				BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+
+		CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+		boolean canMonitorJit = jit != null &&
+				jit.isCompilationTimeMonitoringSupported();
+
+		long startTime = System.nanoTime();
+		long lastCompileTime = -1;
+		long lastCompileChange = startTime;
+
+		try {
+			while (true){
+				game.tick();
+				game.draw(g);
+				ticks++;
+
+				long now = System.nanoTime();
+				long elapsed = now - startTime;
+				if (elapsed >= TIME_LIMIT_NANOS) break;
+
+				if (canMonitorJit){
+					long compileTime = jit.getTotalCompilationTime();
+					if (compileTime != lastCompileTime){
+						lastCompileTime = compileTime;
+						lastCompileChange = now;
+					}
+				}
+
+				boolean quiet = !canMonitorJit ||
+						now - lastCompileChange >= QUIET_NANOS;
+				if (ticks >= MIN_TICKS && quiet) break;
+
+				// Progress is whichever is further: ticks, or time
+				progress = Math.min(0.99, Math.max(
+						(double) ticks / MIN_TICKS,
+						(double) elapsed / TIME_LIMIT_NANOS));
+			}
+		} finally {
+			g.dispose();
+		}
+	}
+
+	/**
+	 * Gets the fraction of the warm-up that has been completed.
+	 * @return Value between 0 and 1.
+	 */
+	public double getProgress() {
+		return progress;
+	}
+
+	/**
+	 * Gets the number of ticks played so far.
+	 * @return
+	 */
+	public int getTicks() {
+		return ticks;
+	}
+
+}
@@ -0,0 +1,378 @@
+package net;
+
+import game.Ball;
+import game.Entity;
+import game.Player;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import state.GameState;
+
+/**
+ * Encodes the state of a game for spectators.
+ * 
+ * Every so often a keyframe containing the whole game is written. Every
+ * other tick is written as a delta against the previous frame, containing
+ * only the paddles, scores and Balls that have changed since then. Since
+ * Balls only move a few units per tick, most Balls are written as a single
+ * byte per axis. A delta that would still be larger than a keyframe is
+ * written as a keyframe instead.
+ * 
+ * Each delta depends on the frame before it, so a spectator that misses a
+ * frame cannot decode anything more until the next keyframe.
+ * 
+ * Positions are quantized to 1/16 of a game unit.
+ * 
+ * Frame layout (big-endian):
+ * 
+ *     int length (of the rest of the frame)
+ *     byte type, long tick, long baseTick (of the previous frame, or the
+ *             frame's own tick for a keyframe)
+ *     keyframe:
+ *         byte players, then per Player: byte side, short position,
+ *                 short score
+ *         int balls, then per Ball: short x, short y
+ *     delta:
+ *         byte movedMask, then per moved paddle: short position
+ *         byte scoredMask, then per changed score: short score
+ *         int balls, then a bit per Ball, set if it changed (least
+ *                 significant bit first), then per changed Ball:
+ *                 byte dx, byte dy; or
+ *                 byte MOVED or SPAWNED, short x, short y
+ * 
+ * Balls are identified by slot. A slot whose Ball has been replaced since
+ * the previous frame is written as SPAWNED, and a Ball that moved too far
+ * for a byte as MOVED. Slots beyond the ball count have been removed.
+ * 
+ * @author Dan Bryce
+ */
+public class SpectatorEncoder {
+
+	public static final byte KEYFRAME = 0;
+	public static final byte DELTA = 1;
+
+	/**
+	 * Marks a Ball that moved too far to fit in a byte, written in full.
+	 */
+	public static final byte MOVED = Byte.MIN_VALUE;
+
+	/**
+	 * Marks a Ball that has respawned since the previous frame, written in
+	 * full.
+	 */
+	public static final byte SPAWNED = Byte.MIN_VALUE + 1;
+
+	/**
+	 * Number of quantization steps per game unit.
+	 */
+	public static final int POSITION_SCALE = 16;
+
+	private static final int HEADER_SIZE = 4 + 1 + 8 + 8;
+	private static final int BYTES_PER_PLAYER = 5;
+	private static final int BYTES_PER_BALL = 4;
+	private static final int BYTES_PER_MOVED_BALL = 5;
+
+	// Smallest x movement that does not clash with MOVED or SPAWNED
+	private static final int MIN_DX = SPAWNED + 1;
+
+	private final int keyframeInterval;
+	private int ticksSinceKeyframe;
+	private long baseTick = -1;
+
+	// Previous frame
+	private long previousTick = -1;
+	private short[] previousPaddles, previousScores;
+	private Ball[] previousBalls = new Ball[16];
+	private short[] previousX = new short[16], previousY = new short[16];
+	private int previousBallCount;
+
+	// Current tick, swapped with the previous frame once it is written
+	private short[] paddles, scores;
+	private Ball[] balls = new Ball[16];
+	private short[] ballX = new short[16], ballY = new short[16];
+	private int ballCount;
+
+	/**
+	 * Constructs a SpectatorEncoder.
+	 * @param keyframeInterval Maximum number of ticks between keyframes.
+	 */
+	public SpectatorEncoder(int keyframeInterval) {
+		this.keyframeInterval = keyframeInterval;
+	}
+
+	/**
+	 * Gets the largest frame that could be needed for the given game.
+	 * @param state
+	 * @return
+	 */
+	public int getMaxFrameSize(GameState state) {
+		int players = state.getNumPlayers();
+		int balls = state.getEntities().size();
+		return HEADER_SIZE + 2 + 2 * players * BYTES_PER_PLAYER +
+				4 + (balls + 7) / 8 + balls * BYTES_PER_MOVED_BALL;
+	}
+
+	/**
+	 * Writes a frame for the current tick of the given game.
+	 * @param state
+	 * @param out Buffer with at least getMaxFrameSize() bytes remaining.
+	 * @param forceKeyframe True to write a keyframe regardless of when the
+	 * last one was written.
+	 * @return True if a keyframe was written.
+	 */
+	public boolean encode(GameState state, ByteBuffer out,
+			boolean forceKeyframe) {
+
+		collect(state);
+
+		boolean keyframe = forceKeyframe ||
+				previousTick < 0 ||
+				++ticksSinceKeyframe >= keyframeInterval ||
+				paddles.length != previousPaddles.length;
+
+		baseTick = previousTick;
+		int start = out.position();
+		out.putInt(0);
+		out.put(DELTA);
+		out.putLong(state.getTicks());
+		out.putLong(baseTick);
+
+		// Fall back to a keyframe if the delta would be larger
+		int bodyStart = out.position();
+		if (!keyframe && !writeDelta(out, bodyStart + getKeyframeSize())){
+			out.position(bodyStart);
+			keyframe = true;
+		}
+		if (keyframe){
+			writeKeyframe(state, out);
+			baseTick = state.getTicks();
+			out.put(start + 4, KEYFRAME);
+			out.putLong(start + 5 + 8, baseTick);
+			ticksSinceKeyframe = 0;
+		}
+
+		// Fill in the length now that it is known
+		out.putInt(start, out.position() - start - 4);
+
+		// The current tick is what the next delta is taken against
+		previousTick = state.getTicks();
+		swapWithPrevious();
+		return keyframe;
+	}
+
+	/**
+	 * Gets the size of a keyframe for the current tick, after the header.
+	 * @return
+	 */
+	private int getKeyframeSize() {
+		return 1 + paddles.length * BYTES_PER_PLAYER +
+				4 + ballCount * BYTES_PER_BALL;
+	}
+
+	/**
+	 * Writes the whole game.
+	 * @param state
+	 * @param out
+	 */
+	private void writeKeyframe(GameState state, ByteBuffer out) {
+
+		out.put((byte) paddles.length);
+		for (int i = 0; i < paddles.length; i++){
+			out.put((byte) state.getPlayer(i).getSide().ordinal());
+			out.putShort(paddles[i]);
+			out.putShort(scores[i]);
+		}
+
+		out.putInt(ballCount);
+		for (int i = 0; i < ballCount; i++){
+			out.putShort(ballX[i]);
+			out.putShort(ballY[i]);
+		}
+	}
+
+	/**
+	 * Writes everything that has changed since the previous frame, unless
+	 * it turns out to be too large.
+	 * @param out
+	 * @param limit Position in the buffer that the delta must not pass.
+	 * @return False if the delta was abandoned for passing the limit.
+	 */
+	private boolean writeDelta(ByteBuffer out, int limit) {
+
+		int numPlayers = paddles.length;
+
+		// Paddles
+		int maskPos = out.position();
+		int mask = 0;
+		out.put((byte) 0);
+		for (int i = 0; i < numPlayers; i++){
+			if (paddles[i] != previousPaddles[i]){
+				mask |= 1 << i;
+				out.putShort(paddles[i]);
+			}
+		}
+		out.put(maskPos, (byte) mask);
+
+		// Scores
+		maskPos = out.position();
+		mask = 0;
+		out.put((byte) 0);
+		for (int i = 0; i < numPlayers; i++){
+			if (scores[i] != previousScores[i]){
+				mask |= 1 << i;
+				out.putShort(scores[i]);
+			}
+		}
+		out.put(maskPos, (byte) mask);
+
+		// Balls, leaving room for a bit per Ball
+		out.putInt(ballCount);
+		maskPos = out.position();
+		out.position(maskPos + (ballCount + 7) / 8);
+		mask = 0;
+
+		for (int i = 0; i < ballCount; i++){
+			if (writeBall(i, out)){
+				mask |= 1 << (i & 7);
+				if (out.position() > limit) return false;
+			}
+			if ((i & 7) == 7 || i == ballCount - 1){
+				out.put(maskPos + (i >> 3), (byte) mask);
+				mask = 0;
+			}
+		}
+		return out.position() <= limit;
+	}
+
+	/**
+	 * Writes a Ball's change since the previous frame, if any.
+	 * @param i Slot of the Ball.
+	 * @param out
+	 * @return True if the Ball changed, and so was written.
+	 */
+	private boolean writeBall(int i, ByteBuffer out) {
+
+		if (i >= previousBallCount || balls[i] != previousBalls[i]){
+			out.put(SPAWNED);
+			out.putShort(ballX[i]);
+			out.putShort(ballY[i]);
+			return true;
+		}
+
+		int dx = ballX[i] - previousX[i];
+		int dy = ballY[i] - previousY[i];
+		if (dx == 0 && dy == 0){
+			return false;
+		}
+
+		if (dx < MIN_DX || dx > Byte.MAX_VALUE ||
+				dy < Byte.MIN_VALUE || dy > Byte.MAX_VALUE){
+			out.put(MOVED);
+			out.putShort(ballX[i]);
+			out.putShort(ballY[i]);
+		} else {
+			out.put((byte) dx);
+			out.put((byte) dy);
+		}
+		return true;
+	}
+
+	/**
+	 * Quantizes the paddles, scores and Balls of the current tick.
+	 * @param state
+	 */
+	private void collect(GameState state) {
+
+		int numPlayers = state.getNumPlayers();
+		if (paddles == null || paddles.length != numPlayers){
+			paddles = new short[numPlayers];
+			scores = new short[numPlayers];
+		}
+		for (int i = 0; i < numPlayers; i++){
+			Player player = state.getPlayer(i);
+			paddles[i] = getPaddlePosition(player);
+			scores[i] = (short) player.getScore();
+		}
+
+		collectBalls(state.getEntities());
+		if (ballX.length < balls.length){
+			ballX = new short[balls.length];
+			ballY = new short[balls.length];
+		}
+		for (int i = 0; i < ballCount; i++){
+			ballX[i] = quantize(balls[i].getX());
+			ballY[i] = quantize(balls[i].getY());
+		}
+	}
+
+	/**
+	 * Makes the current tick the previous frame, re-using the old previous
+	 * frame's arrays for the next tick.
+	 */
+	private void swapWithPrevious() {
+
+		short[] shorts = previousPaddles;
+		previousPaddles = paddles;
+		paddles = shorts;
+		shorts = previousScores;
+		previousScores = scores;
+		scores = shorts;
+
+		Ball[] ballArray = previousBalls;
+		previousBalls = balls;
+		balls = ballArray;
+		shorts = previousX;
+		previousX = ballX;
+		ballX = shorts;
+		shorts = previousY;
+		previousY = ballY;
+		ballY = shorts;
+		previousBallCount = ballCount;
+	}
+
+	/**
+	 * Finds the Balls in the game, in a stable order.
+	 * @param entities
+	 */
+	private void collectBalls(ArrayList<Entity> entities) {
+		ballCount = 0;
+		for (Entity entity : entities){
+			if (!(entity instanceof Ball)) continue;
+			if (ballCount == balls.length){
+				balls = Arrays.copyOf(balls, balls.length * 2);
+			}
+			balls[ballCount++] = (Ball) entity;
+		}
+	}
+
+	/**
+	 * Gets the quantized position of a paddle along its wall.
+	 * @param player
+	 * @return
+	 */
+	private static short getPaddlePosition(Player player) {
+		return quantize(player.getSide().isVertical() ?
+				player.getY() : player.getX());
+	}
+
+	/**
+	 * Converts a game co-ordinate to a quantized value.
+	 * @param value
+	 * @return
+	 */
+	private static short quantize(double value) {
+		return (short) Math.round(value * POSITION_SCALE);
+	}
+
+	/**
+	 * Gets the tick that the latest frame was taken against, which is its
+	 * own tick for a keyframe.
+	 * @return
+	 */
+	public long getBaseTick() {
+		return baseTick;
+	}
+
+}
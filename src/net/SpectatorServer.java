@@ -0,0 +1,398 @@
+package net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import state.GameState;
+
+/**
+ * Broadcasts a live game to any number of spectators over TCP.
+ * 
+ * Each tick is encoded once, on the game Thread, into a single buffer that
+ * is shared by every spectator. A separate Thread writes it to all
+ * connections using non-blocking IO, so neither the game nor the encoding
+ * slows down as spectators are added.
+ * 
+ * A spectator that cannot keep up simply misses frames. Each delta is
+ * taken against the frame before it rather than one each spectator has
+ * acknowledged, so a spectator that misses any frame is sent nothing until
+ * it receives a new keyframe. A new keyframe is requested as soon as such
+ * a spectator is free again, so it resumes within a tick or two rather
+ * than waiting for the next scheduled keyframe.
+ * 
+ * @author Dan Bryce
+ */
+public class SpectatorServer {
+
+	/**
+	 * Maximum number of ticks between keyframes.
+	 */
+	public static final int KEYFRAME_INTERVAL = 60;
+
+	// Number of encoded frames that can be waiting to be sent
+	private static final int QUEUE_SIZE = 64;
+
+	/**
+	 * An encoded tick, shared by all spectators.
+	 */
+	private static class Frame {
+
+		ByteBuffer data;
+		boolean keyframe;
+		long tick, baseTick;
+
+		/**
+		 * Number of spectators still sending this Frame; only used on the
+		 * network Thread.
+		 */
+		int users;
+	}
+
+	/**
+	 * A connected spectator; only used on the network Thread.
+	 */
+	private static class Spectator {
+
+		SocketChannel channel;
+		SelectionKey key;
+		Frame frame;
+		ByteBuffer remaining;
+		long lastTick = -1;
+		boolean needsKeyframe;
+	}
+
+	private final ServerSocketChannel server;
+	private final Selector selector;
+	private final Thread thread;
+	private final SpectatorEncoder encoder;
+	private final ArrayBlockingQueue<Frame> frames;
+	private final ConcurrentLinkedQueue<Frame> pool;
+	private final AtomicBoolean keyframeRequested;
+	private final ArrayList<Spectator> spectators;
+	private final ByteBuffer readBuffer;
+
+	private volatile int numSpectators;
+	private volatile long framesSent, framesSkipped;
+	private volatile boolean stopped;
+
+	/**
+	 * Constructs a SpectatorServer and starts accepting connections.
+	 * @param port Port to listen on, or 0 for any free port.
+	 * @throws IOException
+	 */
+	public SpectatorServer(int port) throws IOException {
+
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(port));
+		server.configureBlocking(false);
+		selector = Selector.open();
+		server.register(selector, SelectionKey.OP_ACCEPT);
+
+		encoder = new SpectatorEncoder(KEYFRAME_INTERVAL);
+		frames = new ArrayBlockingQueue<Frame>(QUEUE_SIZE);
+		pool = new ConcurrentLinkedQueue<Frame>();
+		keyframeRequested = new AtomicBoolean();
+		spectators = new ArrayList<Spectator>();
+		readBuffer = ByteBuffer.allocate(256);
+
+		thread = new Thread(this::run, "Spectator Server");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Encodes the current tick of a game, and queues it for sending.
+	 * 
+	 * This should be called on the game Thread after each tick. It does
+	 * nothing if there are no spectators.
+	 * @param state
+	 */
+	public void publish(GameState state) {
+
+		if (numSpectators == 0) return;
+
+		Frame frame = takeFrame(encoder.getMaxFrameSize(state));
+		frame.data.clear();
+		frame.keyframe = encoder.encode(state, frame.data,
+				keyframeRequested.getAndSet(false));
+		frame.data.flip();
+		frame.tick = state.getTicks();
+		frame.baseTick = encoder.getBaseTick();
+
+		if (frames.offer(frame)){
+			selector.wakeup();
+		} else {
+			// The network Thread is behind; skip this tick, which leaves
+			// nobody able to decode the next delta
+			keyframeRequested.set(true);
+			pool.offer(frame);
+		}
+	}
+
+	/**
+	 * Gets a Frame with at least the given capacity, re-using an old one if
+	 * possible.
+	 * @param size
+	 * @return
+	 */
+	private Frame takeFrame(int size) {
+		Frame frame = pool.poll();
+		if (frame == null){
+			frame = new Frame();
+		}
+		if (frame.data == null || frame.data.capacity() < size){
+			// Leave room for the game to grow a little
+			frame.data = ByteBuffer.allocateDirect(size + size / 4);
+		}
+		return frame;
+	}
+
+	/**
+	 * Accepts spectators and sends them Frames until stopped.
+	 */
+	private void run() {
+		try {
+			while (!stopped){
+
+				selector.select();
+
+				Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+				while (it.hasNext()){
+					SelectionKey key = it.next();
+					it.remove();
+
+					if (!key.isValid()) continue;
+
+					if (key.isAcceptable()){
+						accept();
+						continue;
+					}
+
+					Spectator spectator = (Spectator) key.attachment();
+					if (key.isReadable()){
+						read(spectator);
+					}
+					if (key.isValid() && key.isWritable()){
+						send(spectator);
+					}
+				}
+
+				Frame frame;
+				while ((frame = frames.poll()) != null){
+					broadcast(frame);
+				}
+			}
+
+		} catch (IOException e){
+			e.printStackTrace();
+		} finally {
+			for (Spectator spectator : new ArrayList<Spectator>(spectators)){
+				disconnect(spectator);
+			}
+			try {
+				selector.close();
+				server.close();
+			} catch (IOException e){
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Accepts all pending connections.
+	 * @throws IOException
+	 */
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = server.accept()) != null){
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+
+			Spectator spectator = new Spectator();
+			spectator.channel = channel;
+			spectator.key = channel.register(selector,
+					SelectionKey.OP_READ, spectator);
+			spectators.add(spectator);
+			numSpectators = spectators.size();
+
+			// New spectators need a keyframe to start from
+			keyframeRequested.set(true);
+		}
+	}
+
+	/**
+	 * Reads from a spectator, which only ever happens when it disconnects.
+	 * 
+	 * Anything a spectator sends is ignored.
+	 * @param spectator
+	 */
+	private void read(Spectator spectator) {
+		try {
+			readBuffer.clear();
+			if (spectator.channel.read(readBuffer) < 0){
+				disconnect(spectator);
+			}
+		} catch (IOException e){
+			disconnect(spectator);
+		}
+	}
+
+	/**
+	 * Offers a Frame to every spectator.
+	 * @param frame
+	 */
+	private void broadcast(Frame frame) {
+
+		// Hold on to the Frame until every spectator has been offered it
+		frame.users = 1;
+
+		for (int i = spectators.size() - 1; i >= 0; i--){
+			Spectator spectator = spectators.get(i);
+
+			// Skip spectators that are still busy
+			if (spectator.frame != null){
+				framesSkipped++;
+				continue;
+			}
+
+			// A spectator missing the frame that this Frame depends on
+			// could not decode it, so needs a new keyframe (but only asks
+			// once, so a slow spectator cannot force every tick to be one)
+			if (!frame.keyframe && frame.baseTick != spectator.lastTick){
+				if (!spectator.needsKeyframe){
+					spectator.needsKeyframe = true;
+					keyframeRequested.set(true);
+				}
+				framesSkipped++;
+				continue;
+			}
+
+			spectator.frame = frame;
+			spectator.remaining = frame.data.duplicate();
+			spectator.lastTick = frame.tick;
+			if (frame.keyframe){
+				spectator.needsKeyframe = false;
+			}
+			frame.users++;
+			send(spectator);
+		}
+
+		if (--frame.users == 0){
+			pool.offer(frame);
+		}
+	}
+
+	/**
+	 * Sends as much of a spectator's current Frame as possible.
+	 * @param spectator
+	 */
+	private void send(Spectator spectator) {
+
+		if (spectator.frame == null) return;
+
+		try {
+			spectator.channel.write(spectator.remaining);
+		} catch (IOException e){
+			disconnect(spectator);
+			return;
+		}
+
+		if (spectator.remaining.hasRemaining()){
+			// Wait until the connection can take more
+			spectator.key.interestOps(
+					SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		} else {
+			spectator.key.interestOps(SelectionKey.OP_READ);
+			finishFrame(spectator);
+			framesSent++;
+		}
+	}
+
+	/**
+	 * Releases a spectator's current Frame.
+	 * @param spectator
+	 */
+	private void finishFrame(Spectator spectator) {
+		Frame frame = spectator.frame;
+		spectator.frame = null;
+		spectator.remaining = null;
+		if (--frame.users == 0){
+			pool.offer(frame);
+		}
+	}
+
+	/**
+	 * Closes the connection to a spectator.
+	 * @param spectator
+	 */
+	private void disconnect(Spectator spectator) {
+		if (spectator.frame != null){
+			finishFrame(spectator);
+		}
+		spectator.key.cancel();
+		try {
+			spectator.channel.close();
+		} catch (IOException e){
+			// Nothing more we can do
+		}
+		spectators.remove(spectator);
+		numSpectators = spectators.size();
+	}
+
+	/**
+	 * Disconnects all spectators and stops listening.
+	 */
+	public void close() {
+		stopped = true;
+		selector.wakeup();
+		try {
+			thread.join();
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Gets the port on which the server is listening.
+	 * @return
+	 */
+	public int getPort() {
+		return server.socket().getLocalPort();
+	}
+
+	/**
+	 * Gets the number of connected spectators.
+	 * @return
+	 */
+	public int getNumSpectators() {
+		return numSpectators;
+	}
+
+	/**
+	 * Gets the number of Frames sent in full to a spectator.
+	 * @return
+	 */
+	public long getFramesSent() {
+		return framesSent;
+	}
+
+	/**
+	 * Gets the number of Frames not sent to a spectator because it was
+	 * busy, or missing the frame before.
+	 * @return
+	 */
+	public long getFramesSkipped() {
+		return framesSkipped;
+	}
+
+}
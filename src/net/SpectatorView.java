@@ -0,0 +1,214 @@
+package net;
+
+import game.Side;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A spectator's copy of a game, rebuilt from frames written by a
+ * SpectatorEncoder.
+ * 
+ * @author Dan Bryce
+ */
+public class SpectatorView {
+
+	private long tick = -1;
+
+	private Side[] sides = new Side[0];
+	private short[] paddles = new short[0], scores = new short[0];
+	private short[] ballX = new short[0], ballY = new short[0];
+	private int ballCount;
+	private long spawned;
+
+	/**
+	 * Applies a frame.
+	 * @param frame Frame contents, after the length.
+	 * @return False if the frame is a delta against a frame that this
+	 * SpectatorView has not applied, in which case it is ignored.
+	 */
+	public boolean apply(ByteBuffer frame) {
+
+		byte type = frame.get();
+		long frameTick = frame.getLong();
+		long baseTick = frame.getLong();
+
+		if (type == SpectatorEncoder.KEYFRAME){
+			readKeyframe(frame);
+		} else if (baseTick == tick){
+			readDelta(frame);
+		} else {
+			return false;
+		}
+
+		tick = frameTick;
+		return true;
+	}
+
+	/**
+	 * Reads a keyframe.
+	 * @param frame
+	 */
+	private void readKeyframe(ByteBuffer frame) {
+
+		int numPlayers = frame.get();
+		if (sides.length != numPlayers){
+			sides = new Side[numPlayers];
+			paddles = new short[numPlayers];
+			scores = new short[numPlayers];
+		}
+
+		Side[] allSides = Side.values();
+		for (int i = 0; i < numPlayers; i++){
+			sides[i] = allSides[frame.get()];
+			paddles[i] = frame.getShort();
+			scores[i] = frame.getShort();
+		}
+
+		setBallCount(frame.getInt());
+		for (int i = 0; i < ballCount; i++){
+			ballX[i] = frame.getShort();
+			ballY[i] = frame.getShort();
+		}
+		spawned = 0;
+	}
+
+	/**
+	 * Reads a delta against the previous frame.
+	 * @param frame
+	 */
+	private void readDelta(ByteBuffer frame) {
+
+		int numPlayers = sides.length;
+
+		int mask = frame.get();
+		for (int i = 0; i < numPlayers; i++){
+			if ((mask & (1 << i)) != 0){
+				paddles[i] = frame.getShort();
+			}
+		}
+
+		mask = frame.get();
+		for (int i = 0; i < numPlayers; i++){
+			if ((mask & (1 << i)) != 0){
+				scores[i] = frame.getShort();
+			}
+		}
+
+		// The changed Balls follow the bit for each Ball
+		setBallCount(frame.getInt());
+		int maskPos = frame.position();
+		frame.position(maskPos + (ballCount + 7) / 8);
+		spawned = 0;
+
+		for (int i = 0; i < ballCount; i++){
+			if ((i & 7) == 0){
+				mask = frame.get(maskPos + (i >> 3));
+			}
+			if ((mask & (1 << (i & 7))) == 0) continue;
+
+			byte dx = frame.get();
+			if (dx == SpectatorEncoder.MOVED ||
+					dx == SpectatorEncoder.SPAWNED){
+				ballX[i] = frame.getShort();
+				ballY[i] = frame.getShort();
+				if (dx == SpectatorEncoder.SPAWNED){
+					spawned++;
+				}
+			} else {
+				ballX[i] += dx;
+				ballY[i] += frame.get();
+			}
+		}
+	}
+
+	/**
+	 * Changes the number of Balls, making room if necessary.
+	 * @param count
+	 */
+	private void setBallCount(int count) {
+		if (ballX.length < count){
+			ballX = Arrays.copyOf(ballX, count);
+			ballY = Arrays.copyOf(ballY, count);
+		}
+		ballCount = count;
+	}
+
+	/**
+	 * Gets the tick of the latest frame applied.
+	 * @return
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Gets the number of Players.
+	 * @return
+	 */
+	public int getNumPlayers() {
+		return sides.length;
+	}
+
+	/**
+	 * Gets the wall of the given Player.
+	 * @param player
+	 * @return
+	 */
+	public Side getSide(int player) {
+		return sides[player];
+	}
+
+	/**
+	 * Gets the position of the given Player's paddle along its wall.
+	 * @param player
+	 * @return
+	 */
+	public double getPaddlePosition(int player) {
+		return (double) paddles[player] / SpectatorEncoder.POSITION_SCALE;
+	}
+
+	/**
+	 * Gets the score of the given Player.
+	 * @param player
+	 * @return
+	 */
+	public int getScore(int player) {
+		return scores[player];
+	}
+
+	/**
+	 * Gets the number of Balls.
+	 * @return
+	 */
+	public int getBallCount() {
+		return ballCount;
+	}
+
+	/**
+	 * Gets the left edge of the given Ball.
+	 * @param ball
+	 * @return
+	 */
+	public double getBallX(int ball) {
+		return (double) ballX[ball] / SpectatorEncoder.POSITION_SCALE;
+	}
+
+	/**
+	 * Gets the top edge of the given Ball.
+	 * @param ball
+	 * @return
+	 */
+	public double getBallY(int ball) {
+		return (double) ballY[ball] / SpectatorEncoder.POSITION_SCALE;
+	}
+
+	/**
+	 * Gets the number of Balls that respawned in the latest frame.
+	 * @return
+	 */
+	public long getSpawned() {
+		return spawned;
+	}
+
+}
@@ -0,0 +1,389 @@
+package render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import state.State;
+
+/**
+ * Records frames drawn by a State to a video file.
+ *
+ * Each frame is drawn to an offscreen image, and its pixels are copied into
+ * one of a fixed pool of buffers. A background writer Thread then streams
+ * these into a memory-mapped output file, which grows as required.
+ *
+ * Each region of the file is unmapped as soon as it is full, rather than
+ * whenever it is garbage collected, because some platforms cannot truncate
+ * a file while any part of it is mapped.
+ *
+ * @author Dan Bryce
+ */
+public class FrameRecorder {
+
+	/**
+	 * Supported output formats.
+	 */
+	public enum Format {
+
+		/**
+		 * Headerless frames of 32-bit pixels, in "0rgb" byte order.
+		 */
+		RAW,
+
+		/**
+		 * YUV4MPEG2 stream with full-resolution (4:4:4) chroma.
+		 */
+		Y4M
+	}
+
+	private static final int DEFAULT_QUEUE_SIZE = 8;
+	private static final int FRAMES_PER_MAPPING = 32;
+	private static final byte[] Y4M_FRAME_HEADER =
+			"FRAME\n".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Marker placed in the queue to tell the writer to finish.
+	 */
+	private static final int[] END_OF_STREAM = new int[0];
+
+	private final int width, height;
+	private final Format format;
+	private final BufferedImage image;
+	private final int[] pixels;
+	private final BlockingQueue<int[]> freeBuffers;
+	private final BlockingQueue<int[]> pendingFrames;
+	private final FileChannel channel;
+	private final Thread writer;
+	private final int frameBytes;
+
+	private MappedByteBuffer mapping;
+	private long bytesWritten;
+	private byte[] planes;
+	private int framesCaptured, framesDropped;
+	private volatile IOException writeError;
+	private boolean closed;
+
+	/**
+	 * Constructs a FrameRecorder with the default queue size.
+	 * @param file Output file; any existing file is replaced.
+	 * @param width
+	 * @param height
+	 * @param fps Frame rate written to the file header, where applicable.
+	 * @param format
+	 * @throws IOException
+	 */
+	public FrameRecorder(Path file, int width, int height, int fps,
+			Format format) throws IOException {
+		this(file, width, height, fps, format, DEFAULT_QUEUE_SIZE);
+	}
+
+	/**
+	 * Constructs a FrameRecorder.
+	 * @param file Output file; any existing file is replaced.
+	 * @param width
+	 * @param height
+	 * @param fps Frame rate written to the file header, where applicable.
+	 * @param format
+	 * @param queueSize Maximum number of frames waiting to be written.
+	 * @throws IOException
+	 */
+	public FrameRecorder(Path file, int width, int height, int fps,
+			Format format, int queueSize) throws IOException {
+
+		this.width = width;
+		this.height = height;
+		this.format = format;
+
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+		// Pre-allocate all frame buffers so recording creates no garbage
+		freeBuffers = new ArrayBlockingQueue<int[]>(queueSize);
+		pendingFrames = new ArrayBlockingQueue<int[]>(queueSize + 1);
+		for (int i = 0; i < queueSize; i++){
+			freeBuffers.add(new int[width * height]);
+		}
+
+		if (format == Format.Y4M){
+			planes = new byte[width * height * 3];
+			frameBytes = Y4M_FRAME_HEADER.length + planes.length;
+		} else {
+			frameBytes = width * height * 4;
+		}
+
+		channel = FileChannel.open(file,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+
+		if (format == Format.Y4M){
+			String header = "YUV4MPEG2 W" + width + " H" + height +
+					" F" + fps + ":1 Ip A1:1 C444\n";
+			write(header.getBytes(StandardCharsets.US_ASCII));
+		}
+
+		writer = new Thread(this::runWriter, "FrameRecorder");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Draws the given State and queues the result to be written.
+	 *
+	 * If the writer has fallen behind, this blocks until a buffer is free,
+	 * so no frames are lost.
+	 * @param state
+	 * @throws IOException If the writer has failed.
+	 */
+	public void capture(State state) throws IOException {
+		int[] buffer;
+		try {
+			buffer = freeBuffers.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		queue(state, buffer);
+	}
+
+	/**
+	 * Draws the given State and queues the result to be written, unless the
+	 * writer has fallen behind, in which case the frame is dropped.
+	 *
+	 * This is suitable for recording a game that is running in real time.
+	 * @param state
+	 * @return True if the frame was queued.
+	 * @throws IOException If the writer has failed.
+	 */
+	public boolean tryCapture(State state) throws IOException {
+		int[] buffer = freeBuffers.poll();
+		if (buffer == null){
+			framesDropped++;
+			return false;
+		}
+		queue(state, buffer);
+		return true;
+	}
+
+	/**
+	 * Draws the given State and passes the pixels to the writer.
+	 * @param state
+	 * @param buffer
+	 * @throws IOException
+	 */
+	private void queue(State state, int[] buffer) throws IOException {
+
+		if (writeError != null){
+			freeBuffers.add(buffer);
+			throw writeError;
+		}
+
+		// Draw as the Screen would, onto a black background
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.BLACK);
+		g.fillRect(0, 0, width, height);
+		state.draw(g);
+		g.dispose();
+
+		System.arraycopy(pixels, 0, buffer, 0, pixels.length);
+		pendingFrames.add(buffer);
+		framesCaptured++;
+	}
+
+	/**
+	 * Waits for all queued frames to be written, and closes the file.
+	 * @throws IOException If any frame could not be written.
+	 */
+	public void close() throws IOException {
+
+		if (closed) return;
+		closed = true;
+
+		try {
+			// There is always room for this, even if the writer has died,
+			// as the queue holds one more than the number of frame buffers
+			pendingFrames.put(END_OF_STREAM);
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		try {
+			if (mapping != null){
+				mapping.force();
+			}
+			unmap();
+
+			// Remove the unused space at the end of the last mapping
+			channel.truncate(bytesWritten);
+		} finally {
+			channel.close();
+		}
+
+		if (writeError != null){
+			throw writeError;
+		}
+	}
+
+	/**
+	 * Main loop of the writer Thread.
+	 */
+	private void runWriter() {
+		while (true){
+
+			int[] frame;
+			try {
+				frame = pendingFrames.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			if (frame == END_OF_STREAM) return;
+
+			try {
+				if (writeError == null){
+					writeFrame(frame);
+				}
+			} catch (IOException e) {
+				writeError = e;
+			} finally {
+				freeBuffers.add(frame);
+			}
+		}
+	}
+
+	/**
+	 * Writes a single frame to the file.
+	 * @param frame
+	 * @throws IOException
+	 */
+	private void writeFrame(int[] frame) throws IOException {
+
+		ensureMapped(frameBytes);
+
+		if (format == Format.RAW){
+
+			// Pixels can be copied verbatim as big-endian ints
+			mapping.asIntBuffer().put(frame);
+			mapping.position(mapping.position() + frame.length * 4);
+
+		} else {
+			convertToYCbCr(frame);
+			mapping.put(Y4M_FRAME_HEADER);
+			mapping.put(planes);
+		}
+
+		bytesWritten += frameBytes;
+	}
+
+	/**
+	 * Converts RGB pixels into separate Y, Cb and Cr planes (BT.601).
+	 * @param frame
+	 */
+	private void convertToYCbCr(int[] frame) {
+
+		int planeSize = frame.length;
+
+		for (int i = 0; i < planeSize; i++){
+			int rgb = frame[i];
+			int r = (rgb >> 16) & 0xff;
+			int g = (rgb >> 8) & 0xff;
+			int b = rgb & 0xff;
+
+			// Fixed-point with 8 fractional bits
+			int y = ((66 * r + 129 * g + 25 * b + 128) >> 8) + 16;
+			int cb = ((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128;
+			int cr = ((112 * r - 94 * g - 18 * b + 128) >> 8) + 128;
+
+			planes[i] = (byte) y;
+			planes[planeSize + i] = (byte) cb;
+			planes[2 * planeSize + i] = (byte) cr;
+		}
+	}
+
+	/**
+	 * Writes some bytes directly to the file.
+	 * @param bytes
+	 * @throws IOException
+	 */
+	private void write(byte[] bytes) throws IOException {
+		ensureMapped(bytes.length);
+		mapping.put(bytes);
+		bytesWritten += bytes.length;
+	}
+
+	/**
+	 * Ensures that the current mapping has room for the given number of
+	 * bytes, mapping the next region of the file if necessary.
+	 *
+	 * Mapping beyond the end of the file causes it to grow.
+	 * @param bytes
+	 * @throws IOException
+	 */
+	private void ensureMapped(int bytes) throws IOException {
+
+		if (mapping != null && mapping.remaining() >= bytes) return;
+
+		unmap();
+		long size = (long) Math.max(frameBytes, bytes) * FRAMES_PER_MAPPING;
+		mapping = channel.map(FileChannel.MapMode.READ_WRITE,
+				bytesWritten, size);
+	}
+
+	/**
+	 * Releases the current mapping; anything written to it still reaches
+	 * the file.
+	 *
+	 * There is no public API for this, so the JDK's internal cleaner is
+	 * used if it can be found; otherwise the mapping is released when it
+	 * is garbage collected.
+	 */
+	private void unmap() {
+
+		if (mapping == null) return;
+
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner",
+					ByteBuffer.class);
+			invokeCleaner.invoke(field.get(null), mapping);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			e.printStackTrace();
+		}
+
+		mapping = null;
+	}
+
+	/**
+	 * Getter for the number of frames captured.
+	 * @return
+	 */
+	public int getFramesCaptured() {
+		return framesCaptured;
+	}
+
+	/**
+	 * Getter for the number of frames dropped by tryCapture().
+	 * @return
+	 */
+	public int getFramesDropped() {
+		return framesDropped;
+	}
+
+}
@@ -0,0 +1,65 @@
+package render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Renderer that draws straight to a Graphics2D object.
+ * 
+ * @author Dan Bryce
+ */
+public class Graphics2DRenderer implements Renderer {
+
+	private final Viewport viewport;
+	private Graphics2D g;
+	private Color colour;
+
+	/**
+	 * Constructs a Graphics2DRenderer.
+	 * @param viewport
+	 */
+	public Graphics2DRenderer(Viewport viewport) {
+		this.viewport = viewport;
+	}
+
+	@Override
+	public void begin(Graphics2D g) {
+		this.g = g;
+		colour = null;
+	}
+
+	@Override
+	public void setColour(Color colour) {
+		// Changing colour invalidates parts of the Java2D pipeline
+		if (colour.equals(this.colour)) return;
+		this.colour = colour;
+		g.setColor(colour);
+	}
+
+	@Override
+	public void fillRect(double x, double y, double width, double height) {
+		g.fillRect(viewport.toScreenX(x), viewport.toScreenY(y),
+				viewport.toScreenLength(width),
+				viewport.toScreenLength(height));
+	}
+
+	@Override
+	public void drawImage(BufferedImage image, double x, double y,
+			double width, double height) {
+		g.drawImage(image, viewport.toScreenX(x), viewport.toScreenY(y),
+				viewport.toScreenLength(width),
+				viewport.toScreenLength(height), null);
+	}
+
+	@Override
+	public void end() {
+		g = null;
+	}
+
+	@Override
+	public Viewport getViewport() {
+		return viewport;
+	}
+
+}
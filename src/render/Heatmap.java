@@ -0,0 +1,90 @@
+package render;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * A low-resolution image of how crowded each part of the game area is.
+ * 
+ * The game area is divided into square cells, and each point added is
+ * counted in the cell it falls in. When drawn, each cell becomes a single
+ * pixel whose brightness depends on its count, and the image is stretched
+ * over the game area. This costs the same however many points there are,
+ * so it can stand in for drawing huge numbers of Entities individually.
+ * 
+ * @author Dan Bryce
+ */
+public class Heatmap {
+
+	/**
+	 * Count at which a cell reaches full brightness.
+	 */
+	private static final int MAX_COUNT = 16;
+
+	/**
+	 * Colour of each count, from 0 to MAX_COUNT.
+	 */
+	private static final int[] RAMP = new int[MAX_COUNT + 1];
+
+	static {
+		// Even a single point is clearly visible
+		for (int count = 1; count <= MAX_COUNT; count++){
+			int v = 64 + 191 * (count - 1) / (MAX_COUNT - 1);
+			RAMP[count] = (v << 16) | (v << 8) | v;
+		}
+	}
+
+	private final int cellSize;
+	private final int columns, rows;
+	private final int[] counts;
+	private final BufferedImage image;
+	private final int[] pixels;
+
+	/**
+	 * Constructs an empty Heatmap.
+	 * @param gameWidth
+	 * @param gameHeight
+	 * @param cellSize Width and height of each cell, in game units;
+	 * ideally a divisor of the game width and height.
+	 */
+	public Heatmap(int gameWidth, int gameHeight, int cellSize) {
+		this.cellSize = cellSize;
+		columns = (gameWidth + cellSize - 1) / cellSize;
+		rows = (gameHeight + cellSize - 1) / cellSize;
+		counts = new int[columns * rows];
+		image = new BufferedImage(columns, rows, BufferedImage.TYPE_INT_RGB);
+		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+
+	/**
+	 * Removes all points.
+	 */
+	public void clear() {
+		Arrays.fill(counts, 0);
+	}
+
+	/**
+	 * Counts a point; points outside the game area count towards the
+	 * nearest cell.
+	 * @param x
+	 * @param y
+	 */
+	public void add(double x, double y) {
+		int column = Math.min(Math.max((int) x / cellSize, 0), columns - 1);
+		int row = Math.min(Math.max((int) y / cellSize, 0), rows - 1);
+		counts[row * columns + column]++;
+	}
+
+	/**
+	 * Draws the Heatmap over the whole game area.
+	 * @param renderer
+	 */
+	public void draw(Renderer renderer) {
+		for (int i = 0; i < counts.length; i++){
+			pixels[i] = RAMP[Math.min(counts[i], MAX_COUNT)];
+		}
+		renderer.drawImage(image, 0, 0, columns * cellSize, rows * cellSize);
+	}
+
+}
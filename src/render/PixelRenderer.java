@@ -0,0 +1,125 @@
+package render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Renderer that writes rectangles directly into the pixels of a back
+ * buffer, which is copied to the destination once per frame.
+ * 
+ * This avoids the per-call overhead of Java2D, which dominates when there
+ * are thousands of Entities. The back buffer only covers the Viewport, and
+ * is cleared to black at the start of each frame.
+ * 
+ * @author Dan Bryce
+ */
+public class PixelRenderer implements Renderer {
+
+	private final Viewport viewport;
+	private final BufferedImage image;
+	private final int[] pixels;
+	private final int width, height;
+	private Graphics2D g;
+	private int rgb;
+
+	/**
+	 * Constructs a PixelRenderer.
+	 * @param viewport
+	 */
+	public PixelRenderer(Viewport viewport) {
+		this.viewport = viewport;
+		width = viewport.getWidth();
+		height = viewport.getHeight();
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+
+	@Override
+	public void begin(Graphics2D g) {
+		this.g = g;
+		Arrays.fill(pixels, 0);
+	}
+
+	@Override
+	public void setColour(Color colour) {
+		rgb = colour.getRGB() & 0xFFFFFF;
+	}
+
+	@Override
+	public void fillRect(double x, double y, double w, double h) {
+
+		int left = viewport.toScreenX(x) - viewport.getX();
+		int top = viewport.toScreenY(y) - viewport.getY();
+		int right = left + viewport.toScreenLength(w);
+		int bottom = top + viewport.toScreenLength(h);
+
+		// Clip to the buffer
+		if (left < 0) left = 0;
+		if (top < 0) top = 0;
+		if (right > width) right = width;
+		if (bottom > height) bottom = height;
+		if (left >= right) return;
+
+		// Fill one span per row
+		for (int row = top * width; top < bottom; top++, row += width){
+			Arrays.fill(pixels, row + left, row + right, rgb);
+		}
+	}
+
+	@Override
+	public void drawImage(BufferedImage source, double x, double y,
+			double w, double h) {
+
+		int left = viewport.toScreenX(x) - viewport.getX();
+		int top = viewport.toScreenY(y) - viewport.getY();
+		int destWidth = viewport.toScreenLength(w);
+		int destHeight = viewport.toScreenLength(h);
+		int sourceWidth = source.getWidth();
+		int sourceHeight = source.getHeight();
+
+		// Each source pixel becomes a block of screen pixels; copy the
+		// first row of each block a span at a time, then repeat that row
+		int lastRow = -1;
+		for (int sy = 0; sy < sourceHeight; sy++){
+			int rowTop = Math.max(top + sy * destHeight / sourceHeight, 0);
+			int rowBottom = Math.min(
+					top + (sy + 1) * destHeight / sourceHeight, height);
+			if (rowTop >= rowBottom) continue;
+
+			int row = rowTop * width;
+			for (int sx = 0; sx < sourceWidth; sx++){
+				int spanLeft = Math.max(
+						left + sx * destWidth / sourceWidth, 0);
+				int spanRight = Math.min(
+						left + (sx + 1) * destWidth / sourceWidth, width);
+				if (spanLeft >= spanRight) continue;
+				Arrays.fill(pixels, row + spanLeft, row + spanRight,
+						source.getRGB(sx, sy) & 0xFFFFFF);
+				lastRow = rowTop;
+			}
+			if (lastRow != rowTop) continue;
+
+			int spanLeft = Math.max(left, 0);
+			int spanWidth = Math.min(left + destWidth, width) - spanLeft;
+			for (int r = rowTop + 1; r < rowBottom; r++){
+				System.arraycopy(pixels, row + spanLeft, pixels,
+						r * width + spanLeft, spanWidth);
+			}
+		}
+	}
+
+	@Override
+	public void end() {
+		g.drawImage(image, viewport.getX(), viewport.getY(), null);
+		g = null;
+	}
+
+	@Override
+	public Viewport getViewport() {
+		return viewport;
+	}
+
+}
@@ -0,0 +1,61 @@
+package render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Something that can draw the Entities of a game.
+ * 
+ * All positions and sizes are given in game co-ordinates, and mapped to
+ * the screen by the Renderer's Viewport.
+ * 
+ * @author Dan Bryce
+ */
+public interface Renderer {
+
+	/**
+	 * Prepares to draw a frame.
+	 * @param g Graphics2D object of the destination.
+	 */
+	void begin(Graphics2D g);
+
+	/**
+	 * Sets the colour of subsequent shapes.
+	 * @param colour
+	 */
+	void setColour(Color colour);
+
+	/**
+	 * Fills an axis-aligned rectangle.
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 */
+	void fillRect(double x, double y, double width, double height);
+
+	/**
+	 * Draws an opaque image, stretched to fill an axis-aligned rectangle
+	 * without smoothing.
+	 * @param image
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 */
+	void drawImage(BufferedImage image, double x, double y, double width,
+			double height);
+
+	/**
+	 * Finishes the frame, copying it to the destination if necessary.
+	 */
+	void end();
+
+	/**
+	 * Gets the mapping from game co-ordinates to the screen.
+	 * @return
+	 */
+	Viewport getViewport();
+
+}
@@ -0,0 +1,113 @@
+package render;
+
+/**
+ * Maps game co-ordinates to whole screen pixels.
+ * 
+ * The game area is scaled uniformly to fit the available space, so its
+ * aspect ratio is preserved, and centred within it. All values are worked
+ * out up-front, so no transform is needed when drawing.
+ * 
+ * @author Dan Bryce
+ */
+public class Viewport {
+
+	private final int x, y, width, height;
+	private final double scale;
+
+	/**
+	 * Constructs a Viewport that fits the game into the given area.
+	 * @param areaX
+	 * @param areaY
+	 * @param areaWidth
+	 * @param areaHeight
+	 * @param gameWidth
+	 * @param gameHeight
+	 */
+	public Viewport(int areaX, int areaY, int areaWidth, int areaHeight,
+			int gameWidth, int gameHeight) {
+
+		areaWidth = Math.max(areaWidth, 1);
+		areaHeight = Math.max(areaHeight, 1);
+
+		// Use the largest scale at which the game still fits
+		scale = Math.min((double) areaWidth / gameWidth,
+				(double) areaHeight / gameHeight);
+
+		// Even a tiny area gets at least one pixel to draw into
+		width = Math.max((int) Math.round(gameWidth * scale), 1);
+		height = Math.max((int) Math.round(gameHeight * scale), 1);
+		x = areaX + (areaWidth - width) / 2;
+		y = areaY + (areaHeight - height) / 2;
+	}
+
+	/**
+	 * Converts an x-position in the game to a screen pixel.
+	 * @param gameX
+	 * @return
+	 */
+	public int toScreenX(double gameX) {
+		return x + (int) (gameX * scale);
+	}
+
+	/**
+	 * Converts a y-position in the game to a screen pixel.
+	 * @param gameY
+	 * @return
+	 */
+	public int toScreenY(double gameY) {
+		return y + (int) (gameY * scale);
+	}
+
+	/**
+	 * Converts a length in the game to a whole number of pixels.
+	 * 
+	 * Lengths are rounded independently of position, so Entities keep the
+	 * same size wherever they are.
+	 * @param gameLength
+	 * @return
+	 */
+	public int toScreenLength(double gameLength) {
+		return Math.max((int) Math.round(gameLength * scale), 1);
+	}
+
+	/**
+	 * Gets the left edge of the game area, in pixels.
+	 * @return
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * Gets the top edge of the game area, in pixels.
+	 * @return
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Gets the width of the game area, in pixels.
+	 * @return
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the height of the game area, in pixels.
+	 * @return
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the number of pixels per game unit.
+	 * @return
+	 */
+	public double getScale() {
+		return scale;
+	}
+
+}
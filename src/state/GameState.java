@@ -1,15 +1,31 @@
 package state;
 
 import game.AIPlayer;
+import game.AISettings;
 import game.Ball;
 import game.Entity;
+import game.EventBus;
+import game.GameEvent;
+import game.Particles;
+import game.Physics;
 import game.Player;
 import game.Pong;
+import game.QualityController;
+import game.Scheduler;
+import game.Side;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import render.Graphics2DRenderer;
+import render.Heatmap;
+import render.PixelRenderer;
+import render.Renderer;
+import render.Viewport;
 
 /**
  * Class representing the "in-game" state.
@@ -23,6 +39,7 @@ public class GameState extends State {
 	public static final int DIR_UP = -1;
 	public static final int DIR_NONE = 0;
 	public static final int DIR_DOWN = 1;
+	public static final int TICK_RATE = 60;
 
 	private static final int SCORE_Y = 50;
 	private static final int SCORE_SIZE = 12;
@@ -30,52 +47,284 @@ public class GameState extends State {
 	private static final int BORDER_BOTTOM = 50;
 	private static final int BORDER_LEFT = 100;
 	private static final int BORDER_RIGHT = 100;
-	private static final int NUM_PLAYERS = 2;
+	private static final int MAX_PLAYERS = Side.values().length;
+	private static final int BALL_CELLS_X = GAME_WIDTH / Ball.WIDTH + 1;
+	private static final int BALL_CELLS_Y = GAME_HEIGHT / Ball.HEIGHT + 1;
+	private static final int EVENT_CAPACITY = 65536;
+	private static final int HUD_RATE = 4;
+	private static final int HEATMAP_CELL = 8;
+	private static final int NEAREST_BALLS = 8;
+	private static final int TRAIL_INTERVAL = 2;
+	private static final int TRAIL_TICKS = 12;
+	private static final int SPARK_COUNT = 6;
+	private static final int SPARK_TICKS = 20;
+	private static final int SPARK_SIZE = 4;
+	private static final double SPARK_SPEED = 4;
+	private static final int BURST_COUNT = 40;
+	private static final int BURST_TICKS = 40;
+	private static final int BURST_SIZE = 6;
+	private static final double BURST_SPEED = 8;
+	
+	/**
+	 * Keys used by each human Player, in the order: up, down, left, right.
+	 */
+	private static final int[][] KEYS = {
+		{ KeyEvent.VK_UP, KeyEvent.VK_DOWN, 
+				KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT },
+		{ KeyEvent.VK_W, KeyEvent.VK_S, KeyEvent.VK_A, KeyEvent.VK_D },
+		{ KeyEvent.VK_I, KeyEvent.VK_K, KeyEvent.VK_J, KeyEvent.VK_L },
+		{ KeyEvent.VK_NUMPAD8, KeyEvent.VK_NUMPAD5, 
+				KeyEvent.VK_NUMPAD4, KeyEvent.VK_NUMPAD6 }
+	};
 
-	private int drawX, drawY, drawWidth, drawHeight;
-	private double unitsPerPixelX, unitsPerPixelY;
+	private Viewport viewport;
+	private Renderer renderer;
 	private ArrayList<Entity> entities;
 	private Player[] players;
-	private boolean upPressed, downPressed;
+	private Player[] paddles;
+	private Player[] humans;
+	private boolean[] upPressed, downPressed;
+	private Physics physics;
+	private Random random;
+	private long seed;
+	private int numBalls;
+	private EventBus events;
+	private Particles particles;
+	private EventBus.Subscription effects;
+	private EventBus.Handler effectHandler;
+	private int nextTrail;
+	private long ticks;
+	private int rallies, rallyHits;
+	private volatile boolean simpleBalls;
+	private boolean[] ballCells;
+	private int detailThreshold = Integer.MAX_VALUE;
+	private Heatmap heatmap;
+	private Entity[][] nearestBalls;
+	private double[][] nearestDistances;
+	private int[] numNearest;
+	private Scheduler scheduler;
+	private AIPlayer[] aiPlayers;
+	private Scheduler.Task[] aiTasks;
+	private String[] scoreText;
 
 	/**
 	 * Constructs the GameState with the given number of Balls.
+	 * 
+	 * The Players are set up according to the Pong instance.
 	 * @param pong
 	 * @param balls
 	 */
 	public GameState(Pong pong, int balls) {
+		this(pong, balls, pong.getPhysics(), pong.getPlayerSides(), 
+				pong.getPlayerAI(), new Random().nextLong());
+	}
+
+	/**
+	 * Constructs a 2-player GameState with the given settings.
+	 * 
+	 * Player 1 is on the left, and Player 2 on the right.
+	 * @param pong Handle to the Pong instance, or null if the game will never
+	 * be drawn.
+	 * @param balls
+	 * @param physics
+	 * @param ai Settings for each Player, or null for a human Player.
+	 * @param seed Seed used to randomise the Balls.
+	 */
+	public GameState(Pong pong, int balls, Physics physics, 
+			AISettings[] ai, long seed) {
+		this(pong, balls, physics, new Side[] { Side.LEFT, Side.RIGHT }, 
+				ai, seed);
+	}
+
+	/**
+	 * Constructs the GameState with the given settings.
+	 * 
+	 * A GameState only ever uses its own Random, so games created with the
+	 * same settings on different Threads play out identically.
+	 * @param pong Handle to the Pong instance, or null if the game will never
+	 * be drawn.
+	 * @param balls
+	 * @param physics
+	 * @param sides Wall of each Player; walls without a Player are solid.
+	 * @param ai Settings for each Player, or null for a human Player.
+	 * @param seed Seed used to randomise the Balls.
+	 * @throws IllegalArgumentException If there are too many Players, or 
+	 * more than one on the same wall.
+	 */
+	public GameState(Pong pong, int balls, Physics physics, Side[] sides,
+			AISettings[] ai, long seed) {
 		super(pong);
+		
+		if (sides.length > MAX_PLAYERS || sides.length != ai.length){
+			throw new IllegalArgumentException(
+					"Expected up to " + MAX_PLAYERS + " Players");
+		}
 
+		this.physics = physics;
+		this.seed = seed;
+		this.numBalls = balls;
+		random = new Random(seed);
+		events = new EventBus(EVENT_CAPACITY);
 		entities = new ArrayList<Entity>();
-		players = new Player[NUM_PLAYERS];
+		players = new Player[sides.length];
+		paddles = new Player[MAX_PLAYERS];
+		ArrayList<Player> humanList = new ArrayList<Player>();
 		
 		// Create Players
-		players[0] = new Player(0);
-		players[1] = new AIPlayer(1, entities);
-		entities.add(players[0]);
-		entities.add(players[1]);
+		for (int i = 0; i < players.length; i++){
+			if (paddles[sides[i].ordinal()] != null){
+				throw new IllegalArgumentException(
+						"More than one Player on " + sides[i]);
+			}
+			if (ai[i] == null){
+				players[i] = new Player(i, sides[i], physics);
+				if (humanList.size() < KEYS.length){
+					humanList.add(players[i]);
+				}
+			} else {
+				players[i] = new AIPlayer(i, sides[i], physics, ai[i], 
+						entities);
+			}
+			paddles[sides[i].ordinal()] = players[i];
+			entities.add(players[i]);
+		}
+		
+		// Keep paddles out of corners shared with another paddle
+		for (Player player : players){
+			Side start = player.getSide().isVertical() ? Side.TOP : Side.LEFT;
+			Side end = start.getOpposite();
+			double length = player.getSide().isVertical() ? 
+					GAME_HEIGHT : GAME_WIDTH;
+			player.setRange(
+					paddles[start.ordinal()] != null ? Player.WIDTH : 0,
+					length - (paddles[end.ordinal()] != null ? 
+							Player.WIDTH : 0));
+		}
+		
+		humans = humanList.toArray(new Player[humanList.size()]);
+		upPressed = new boolean[humans.length];
+		downPressed = new boolean[humans.length];
 		
 		// Create Balls
 		for (int i = 0; i < balls; i++){
-			Ball ball = new Ball(this, GAME_WIDTH/2, GAME_HEIGHT/2);
+			Ball ball = Ball.create(this, GAME_WIDTH/2, GAME_HEIGHT/2);
 			entities.add(ball);
 		}
+		
+		if (pong != null){
+			detailThreshold = pong.getDetailThreshold();
+		}
+		
+		// Games that are never drawn have no use for effects
+		if (pong != null && pong.getParticleCapacity() > 0){
+			particles = new Particles(pong.getParticleCapacity(), 
+					pong.getParticleBudget());
+			effects = events.subscribe();
+			effectHandler = this::spawnEffect;
+		}
+		
+		scoreText = new String[players.length];
+		updateScoreText();
+		createScheduler();
 	}
 	
 	/**
-	 * Re-calculates necessary dimensions when the Screen size changes.
+	 * Registers each subsystem of the game with the Scheduler.
+	 * 
+	 * Within each tick, the paddles move first, then the AI decides where 
+	 * to move next, then the Balls move in one or more substeps. Effects 
+	 * and the score display are updated after the last substep.
+	 */
+	private void createScheduler() {
+		int substeps = physics.getBallSubsteps();
+		int lastStep = substeps - 1;
+		scheduler = new Scheduler(TICK_RATE, substeps);
+		
+		// Games that are drawn are worth measuring
+		scheduler.setTiming(pong != null);
+		
+		scheduler.add("players", TICK_RATE, 0, () -> {
+			for (Player player : players){
+				player.tick();
+			}
+		});
+		
+		ArrayList<AIPlayer> aiList = new ArrayList<AIPlayer>();
+		for (Player player : players){
+			if (player instanceof AIPlayer) aiList.add((AIPlayer) player);
+		}
+		aiPlayers = aiList.toArray(new AIPlayer[aiList.size()]);
+		aiTasks = new Scheduler.Task[aiPlayers.length];
+		for (int i = 0; i < aiPlayers.length; i++){
+			AIPlayer ai = aiPlayers[i];
+			aiTasks[i] = scheduler.add("ai-" + ai.getId(), TICK_RATE, 0, 
+					ai::decide);
+		}
+		scheduleAI(1);
+		
+		scheduler.add("balls", TICK_RATE * substeps, 0, () -> {
+			for (int i = players.length; i < entities.size(); i++){
+				entities.get(i).tick();
+			}
+		});
+		
+		if (particles != null){
+			scheduler.add("effects", TICK_RATE, lastStep, 
+					this::tickParticles);
+		}
+		if (pong != null){
+			scheduler.add("hud", HUD_RATE, lastStep, this::updateScoreText);
+		}
+	}
+	
+	/**
+	 * Sets the rate of each AI's decisions, staggering them so that 
+	 * different AIs decide on different ticks where possible.
+	 * 
+	 * Decisions are kept to whole ticks, so they are always made between 
+	 * the paddles moving and the Balls moving.
+	 * @param slowdown Factor by which to reduce each AI's decision rate.
+	 */
+	private void scheduleAI(int slowdown) {
+		int substeps = scheduler.getStepsPerTick();
+		for (int i = 0; i < aiPlayers.length; i++){
+			int rate = aiPlayers[i].getSettings().getDecisionRate();
+			int ticksPerDecision = Math.max(TICK_RATE / rate, 1) * slowdown;
+			int phase = ticksPerDecision * i / aiPlayers.length;
+			aiTasks[i].setInterval(ticksPerDecision * substeps, 
+					phase * substeps);
+		}
+	}
+	
+	/**
+	 * Updates the score text shown above the game.
+	 */
+	private void updateScoreText() {
+		for (int i = 0; i < players.length; i++){
+			scoreText[i] = players[i].getScoreAsString();
+		}
+	}
+	
+	/**
+	 * Re-calculates the Viewport when the Screen size changes.
+	 * 
+	 * The game area keeps its aspect ratio, and is centred within the space
+	 * inside the borders.
 	 */
 	@Override
 	public void sizeChanged(int width, int height) {
 		super.sizeChanged(width, height);
 		
-		drawX = BORDER_LEFT;
-		drawY = BORDER_TOP;
-		drawWidth = screenWidth - (BORDER_LEFT + BORDER_RIGHT);
-		drawHeight= screenHeight - (BORDER_TOP + BORDER_BOTTOM);
-
-		unitsPerPixelX = (double) GAME_WIDTH / drawWidth;
-		unitsPerPixelY = (double) GAME_HEIGHT / drawHeight;
+		viewport = new Viewport(BORDER_LEFT, BORDER_TOP, 
+				screenWidth - (BORDER_LEFT + BORDER_RIGHT), 
+				screenHeight - (BORDER_TOP + BORDER_BOTTOM), 
+				GAME_WIDTH, GAME_HEIGHT);
+		
+		if (pong != null && pong.isPixelRendering()){
+			renderer = new PixelRenderer(viewport);
+		} else {
+			renderer = new Graphics2DRenderer(viewport);
+		}
 	}
 
 	/**
@@ -83,53 +332,282 @@ public class GameState extends State {
 	 */
 	@Override
 	public void draw(Graphics2D g) {
+		
+		if (viewport == null) return;
 
-		// Draw scores
-		int scoreX = screenWidth - BORDER_RIGHT
-				- getStringWidth(players[1].getScoreAsString(), SCORE_SIZE);
-		drawString(g, players[0].getScoreAsString(), 
-				BORDER_LEFT, SCORE_Y, SCORE_SIZE);
-		drawString(g, players[1].getScoreAsString(), 
-				scoreX, SCORE_Y, SCORE_SIZE);
+		// Draw scores, in order of wall from left to right
+		for (int i = 0; i < players.length; i++){
+			Player player = players[i];
+			String score = scoreText[i];
+			int scoreWidth = getStringWidth(score, SCORE_SIZE);
+			int scoreX;
+			switch (player.getSide()){
+			case LEFT:
+				scoreX = viewport.getX();
+				break;
+			case RIGHT:
+				scoreX = viewport.getX() + viewport.getWidth() - scoreWidth;
+				break;
+			case TOP:
+				scoreX = viewport.getX() + viewport.getWidth() / 3 
+						- scoreWidth / 2;
+				break;
+			default:
+				scoreX = viewport.getX() + viewport.getWidth() * 2 / 3 
+						- scoreWidth / 2;
+				break;
+			}
+			drawString(g, score, scoreX, SCORE_Y, SCORE_SIZE);
+		}
 		
-		// Transform to fit the game area
-		g.translate(drawX, drawY);
-		g.scale(1/unitsPerPixelX, 1/unitsPerPixelY);
+		// Draw Entities, on top of any particles
+		renderer.begin(g);
+		boolean lowDetail = numBalls >= detailThreshold;
+		if (lowDetail){
+			drawHeatmap();
+		}
+		if (particles != null){
+			particles.draw(renderer);
+		}
+		if (lowDetail){
+			drawNearest();
+		} else if (simpleBalls){
+			drawSimple();
+		} else {
+			for (Entity entity : entities){
+				entity.draw(renderer);
+			}
+		}
+		renderer.end();
 		
 		// Draw border
 		g.setColor(Color.WHITE);
-		g.drawRect(0, 0, GAME_WIDTH, GAME_HEIGHT);
+		g.drawRect(viewport.getX(), viewport.getY(), 
+				viewport.getWidth(), viewport.getHeight());
+	}
+	
+	/**
+	 * Draws the Entities, skipping any Ball that would mostly overlap a Ball
+	 * that has already been drawn.
+	 * 
+	 * The game area is divided into Ball-sized cells, and only one Ball is 
+	 * drawn per cell, which limits the cost of drawing large numbers of 
+	 * Balls.
+	 */
+	private void drawSimple() {
+		
+		if (ballCells == null){
+			ballCells = new boolean[BALL_CELLS_X * BALL_CELLS_Y];
+		} else {
+			Arrays.fill(ballCells, false);
+		}
+		
+		renderer.setColour(Color.WHITE);
 		
-		// Draw Entities
 		for (Entity entity : entities){
-			entity.draw(g);
-		}		
+			if (!(entity instanceof Ball)){
+				entity.draw(renderer);
+				renderer.setColour(Color.WHITE);
+				continue;
+			}
+			
+			double x = entity.getX();
+			double y = entity.getY();
+			int cell = ((int) y / Ball.HEIGHT) * BALL_CELLS_X 
+					+ ((int) x / Ball.WIDTH);
+			if (ballCells[cell]) continue;
+			
+			ballCells[cell] = true;
+			renderer.fillRect(x, y, Ball.WIDTH, Ball.HEIGHT);
+		}
+	}
+	
+	/**
+	 * Draws a Heatmap of the Balls in place of the Balls themselves, and 
+	 * finds the Balls nearest to each Player, to be drawn by drawNearest().
+	 * 
+	 * Both are done in a single pass over the Balls. Each Player keeps a 
+	 * short list of its nearest Balls, sorted by distance, so most Balls 
+	 * only need one comparison per Player.
+	 */
+	private void drawHeatmap() {
+		
+		if (heatmap == null){
+			heatmap = new Heatmap(GAME_WIDTH, GAME_HEIGHT, HEATMAP_CELL);
+			nearestBalls = new Entity[players.length][NEAREST_BALLS];
+			nearestDistances = new double[players.length][NEAREST_BALLS];
+			numNearest = new int[players.length];
+		} else {
+			heatmap.clear();
+			Arrays.fill(numNearest, 0);
+		}
+		
+		for (int i = players.length; i < entities.size(); i++){
+			Entity ball = entities.get(i);
+			double x = ball.getX() + Ball.WIDTH / 2;
+			double y = ball.getY() + Ball.HEIGHT / 2;
+			heatmap.add(x, y);
+			
+			for (int p = 0; p < players.length; p++){
+				double distance = getDistanceSquared(players[p], x, y);
+				double[] distances = nearestDistances[p];
+				int count = numNearest[p];
+				if (count == NEAREST_BALLS && 
+						distance >= distances[NEAREST_BALLS - 1]){
+					continue;
+				}
+				
+				// Insert into the sorted list, dropping the furthest
+				int index = Math.min(count, NEAREST_BALLS - 1);
+				Entity[] balls = nearestBalls[p];
+				while (index > 0 && distances[index - 1] > distance){
+					distances[index] = distances[index - 1];
+					balls[index] = balls[index - 1];
+					index--;
+				}
+				distances[index] = distance;
+				balls[index] = ball;
+				if (count < NEAREST_BALLS) numNearest[p]++;
+			}
+		}
+		
+		heatmap.draw(renderer);
 	}
 	
 	/**
-	 * Processes the Entities within the game.
+	 * Gets the squared distance from a point to the nearest part of a 
+	 * Player.
+	 * @param player
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	private static double getDistanceSquared(Player player, double x, 
+			double y) {
+		boolean vertical = player.getSide().isVertical();
+		double left = player.getX();
+		double top = player.getY();
+		double right = left + (vertical ? Player.WIDTH : Player.HEIGHT);
+		double bottom = top + (vertical ? Player.HEIGHT : Player.WIDTH);
+		double dx = Math.max(Math.max(left - x, x - right), 0);
+		double dy = Math.max(Math.max(top - y, y - bottom), 0);
+		return dx * dx + dy * dy;
+	}
+	
+	/**
+	 * Draws the Players, and the Balls found nearest to them by 
+	 * drawHeatmap().
+	 */
+	private void drawNearest() {
+		for (int p = 0; p < players.length; p++){
+			players[p].draw(renderer);
+			for (int i = 0; i < numNearest[p]; i++){
+				nearestBalls[p][i].draw(renderer);
+			}
+		}
+	}
+	
+	/**
+	 * Adjusts drawing and AI according to the quality level.
+	 */
+	@Override
+	public void qualityChanged(QualityController quality) {
+		simpleBalls = quality.isSimpleBallDrawing();
+		
+		scheduleAI(quality.getAIInterval());
+	}
+	
+	/**
+	 * Processes the Entities within the game, by running each subsystem 
+	 * that is due this tick.
 	 */
 	@Override
 	public void tick() {
-		for (Entity entity : entities){
-			entity.tick();
+		ticks++;
+		events.setTick(ticks);
+		scheduler.tick();
+	}
+	
+	/**
+	 * Moves the existing particles, and spawns new ones for this tick's 
+	 * events and for the Balls' trails.
+	 * 
+	 * Events are handled first, so that when the spawn budget runs out it 
+	 * is the trails that are cut short.
+	 */
+	private void tickParticles() {
+		particles.tick();
+		effects.poll(effectHandler);
+		
+		// Trails are skipped while Balls are drawn simply, to save time
+		if (!simpleBalls && ticks % TRAIL_INTERVAL == 0){
+			spawnTrails();
+		}
+		
+		// Only now is this tick's set of particles ready to be drawn
+		particles.publish();
+	}
+	
+	/**
+	 * Spawns a trail particle behind each Ball.
+	 */
+	private void spawnTrails() {
+		
+		// Start from a different Ball each time, so that if the budget runs 
+		// out, every Ball still gets a share of the trail
+		int numEntities = entities.size();
+		int first = players.length;
+		int count = numEntities - first;
+		for (int n = 0; n < count; n++){
+			int index = first + (nextTrail + n) % count;
+			Entity ball = entities.get(index);
+			if (!particles.spawn(ball.getX() + Ball.WIDTH / 2, 
+					ball.getY() + Ball.HEIGHT / 2, 0, 0, Ball.WIDTH / 2, 
+					TRAIL_TICKS)){
+				nextTrail = (nextTrail + n) % count;
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Spawns the particles for a GameEvent.
+	 * @param event
+	 */
+	private void spawnEffect(GameEvent event) {
+		double x = event.getX() + Ball.WIDTH / 2;
+		double y = event.getY() + Ball.HEIGHT / 2;
+		switch (event.getType()){
+		case PADDLE_HIT:
+		case WALL_BOUNCE:
+			particles.burst(x, y, SPARK_COUNT, SPARK_SPEED, SPARK_SIZE, 
+					SPARK_TICKS);
+			break;
+		case SCORE:
+			particles.burst(x, y, BURST_COUNT, BURST_SPEED, BURST_SIZE, 
+					BURST_TICKS);
+			break;
+		default:
+			break;
 		}
 	}
 	
 	/**
 	 * KeyListener method to handle player input.
+	 * 
+	 * Paddles on the top and bottom walls use the left and right keys.
 	 */
 	@Override
 	public void keyPressed(KeyEvent e) {
-		switch (e.getKeyCode()){
-		case KeyEvent.VK_UP:
-			upPressed = true;
-			players[0].setDir(DIR_UP);
-			break;
-		case KeyEvent.VK_DOWN:
-			downPressed = true;
-			players[0].setDir(DIR_DOWN);
-			break;
+		int code = e.getKeyCode();
+		for (int i = 0; i < humans.length; i++){
+			if (code == getUpKey(i)){
+				upPressed[i] = true;
+				humans[i].setDir(DIR_UP);
+			} else if (code == getDownKey(i)){
+				downPressed[i] = true;
+				humans[i].setDir(DIR_DOWN);
+			}
 		}
 	}
 
@@ -138,46 +616,231 @@ public class GameState extends State {
 	 */
 	@Override
 	public void keyReleased(KeyEvent e) {
-		switch (e.getKeyCode()){
-		case KeyEvent.VK_UP:
-			upPressed = false;
-			if (downPressed){
-				players[0].setDir(DIR_DOWN);
-			} else {
-				players[0].setDir(DIR_NONE);
-			}
-			break;
-		case KeyEvent.VK_DOWN:
-			downPressed = false;
-			if (upPressed){
-				players[0].setDir(DIR_UP);
-			} else {
-				players[0].setDir(DIR_NONE);
+		int code = e.getKeyCode();
+		for (int i = 0; i < humans.length; i++){
+			if (code == getUpKey(i)){
+				upPressed[i] = false;
+				if (downPressed[i]){
+					humans[i].setDir(DIR_DOWN);
+				} else {
+					humans[i].setDir(DIR_NONE);
+				}
+			} else if (code == getDownKey(i)){
+				downPressed[i] = false;
+				if (upPressed[i]){
+					humans[i].setDir(DIR_UP);
+				} else {
+					humans[i].setDir(DIR_NONE);
+				}
 			}
-			break;
 		}
 	}
+	
+	/**
+	 * Gets the key that moves the given human Player up (or left).
+	 * @param human Index into the human Players.
+	 * @return
+	 */
+	private int getUpKey(int human) {
+		return KEYS[human][humans[human].getSide().isVertical() ? 0 : 2];
+	}
+	
+	/**
+	 * Gets the key that moves the given human Player down (or right).
+	 * @param human Index into the human Players.
+	 * @return
+	 */
+	private int getDownKey(int human) {
+		return KEYS[human][humans[human].getSide().isVertical() ? 1 : 3];
+	}
 
 	/**
-	 * Updates the given Player's score, and resets the scoring Ball.
-	 * @param id Player number, 0 or 1.
+	 * Awards a point after a Ball leaves the game through a Player's wall,
+	 * and resets the scoring Ball.
+	 * 
+	 * The point goes to the Player that last hit the Ball, or if that was 
+	 * the Player who missed it, to the Player on the opposite wall (if any).
+	 * @param side Wall the Ball went through.
 	 * @param ball
 	 */
-	public void pointScored(int id, Ball ball) {
-		players[id].modScore(1);
+	public void pointScored(Side side, Ball ball) {
+		Player conceded = paddles[side.ordinal()];
+		Player scorer = ball.getLastHitBy();
+		if (scorer == null || scorer == conceded){
+			scorer = paddles[side.getOpposite().ordinal()];
+		}
+		
+		int id = -1;
+		if (scorer != null){
+			scorer.modScore(1);
+			id = scorer.getId();
+		}
+		
+		rallies++;
+		rallyHits += ball.getHits();
+		events.publish(GameEvent.Type.SCORE, id, ball.getX(), ball.getY(), 
+				ball.getSpeed(), 0, ball.getHits());
 		
 		// Reset Ball (TODO: re-use Ball to save creating a new Object)
 		int index = entities.indexOf(ball);
-		entities.set(index, new Ball(this, GAME_WIDTH/2, GAME_HEIGHT/2));
+		Ball newBall = Ball.create(this, GAME_WIDTH/2, GAME_HEIGHT/2);
+		entities.set(index, newBall);
+		events.publish(GameEvent.Type.RESPAWN, -1, newBall.getX(), 
+				newBall.getY(), newBall.getSpeed(), 0, 0);
 	}
 
 	/**
 	 * Getter for the given Player.
-	 * @param id Player number, 0 or 1.
+	 * @param id Player number.
 	 * @return
 	 */
 	public Player getPlayer(int id) {
 		return players[id];
 	}
 	
+	/**
+	 * Getter for the list of Entities in the game.
+	 * 
+	 * Each Ball keeps its place in the list, even when it is replaced after
+	 * a point is scored.
+	 * @return
+	 */
+	public ArrayList<Entity> getEntities() {
+		return entities;
+	}
+	
+	/**
+	 * Gets the number of Players in the game.
+	 * @return
+	 */
+	public int getNumPlayers() {
+		return players.length;
+	}
+	
+	/**
+	 * Gets the paddle on each wall.
+	 * @return Array indexed by Side ordinal, with null for walls that have 
+	 * no paddle.
+	 */
+	public Player[] getPaddles() {
+		return paddles;
+	}
+	
+	/**
+	 * Getter for the Physics used by this game.
+	 * @return
+	 */
+	public Physics getPhysics() {
+		return physics;
+	}
+	
+	/**
+	 * Getter for the EventBus on which this game publishes GameEvents.
+	 * @return
+	 */
+	public EventBus getEvents() {
+		return events;
+	}
+	
+	/**
+	 * Getter for the Scheduler that runs this game's subsystems.
+	 * @return
+	 */
+	public Scheduler getScheduler() {
+		return scheduler;
+	}
+	
+	/**
+	 * Getter for the Particles used for visual effects.
+	 * @return Particles, or null if this game has no effects.
+	 */
+	public Particles getParticles() {
+		return particles;
+	}
+	
+	/**
+	 * Gets the number of ticks that have been processed.
+	 * @return
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+	
+	/**
+	 * Getter for the seed used to randomise the Balls.
+	 * @return
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * Gets the number of Balls in play.
+	 * @return
+	 */
+	public int getNumBalls() {
+		return numBalls;
+	}
+	
+	/**
+	 * Getter for the Random used by this game.
+	 * @return
+	 */
+	public Random getRandom() {
+		return random;
+	}
+	
+	/**
+	 * Gets the number of rallies played, i.e. the number of points scored.
+	 * @return
+	 */
+	public int getRallies() {
+		return rallies;
+	}
+	
+	/**
+	 * Gets the total number of times the Players have hit the Ball, across
+	 * all rallies.
+	 * @return
+	 */
+	public int getRallyHits() {
+		return rallyHits;
+	}
+	
+	/**
+	 * Gets a hash of the tick count, scores, and the position of every 
+	 * Entity and speed of every Ball.
+	 * 
+	 * With fixed-point Physics, games that have played out identically have 
+	 * the same hash on any JVM, so hashes can be compared to detect when 
+	 * copies of a game have diverged.
+	 * @return
+	 */
+	public long getStateHash() {
+		long hash = mix(0, ticks);
+		for (Player player : players){
+			hash = mix(hash, player.getScore());
+		}
+		for (Entity entity : entities){
+			hash = mix(hash, Double.doubleToLongBits(entity.getX()));
+			hash = mix(hash, Double.doubleToLongBits(entity.getY()));
+			if (entity instanceof Ball){
+				hash = mix(hash, 
+						Double.doubleToLongBits(((Ball) entity).getSpeed()));
+			}
+		}
+		return hash;
+	}
+	
+	/**
+	 * Combines a value into a hash.
+	 * @param hash
+	 * @param value
+	 * @return
+	 */
+	private static long mix(long hash, long value) {
+		hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+		return hash ^ (hash >>> 32);
+	}
+	
 }
@@ -0,0 +1,373 @@
+package state;
+
+import game.AISettings;
+import game.Ball;
+import game.Entity;
+import game.Player;
+import game.Pong;
+import game.Side;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import render.PixelRenderer;
+import render.Viewport;
+
+/**
+ * State that shows many matches at once, tiled into a grid.
+ * 
+ * Each match is an all-AI GameState running on a worker Thread of its own,
+ * at the normal tick rate. Every few ticks, the worker copies the positions
+ * of the Entities and the scores into a Snapshot. When drawing, only the
+ * matches with a new Snapshot are rendered, into a thumbnail at a fraction
+ * of the screen resolution; every other cell re-uses its last thumbnail.
+ * The workers publish their Snapshots on different ticks, so only a few
+ * thumbnails are rendered per frame however many matches there are.
+ * 
+ * Press Backspace to stop the matches and return to the menu.
+ * 
+ * @author Dan Bryce
+ */
+public class GridState extends State {
+
+	/**
+	 * Number of ticks between Snapshots of each match.
+	 */
+	private static final int SNAPSHOT_INTERVAL = 6;
+
+	/**
+	 * Thumbnails are rendered at this fraction of their size on screen.
+	 */
+	private static final int THUMBNAIL_DIVISOR = 2;
+
+	private static final int CELL_GAP = 4;
+	private static final long NANOS_PER_TICK = 1000000000L / 60;
+
+	/**
+	 * The state of a match at a single tick.
+	 */
+	private static class Snapshot {
+
+		private final float[] rects;
+		private final int[] scores;
+		private int numRects;
+		private long sequence;
+
+		/**
+		 * Constructs an empty Snapshot.
+		 * @param maxRects
+		 * @param numPlayers
+		 */
+		private Snapshot(int maxRects, int numPlayers) {
+			rects = new float[maxRects * 4];
+			scores = new int[numPlayers];
+		}
+	}
+
+	/**
+	 * A match, and the Thread that runs it.
+	 * 
+	 * Snapshots are passed from the worker to the drawing Thread through
+	 * three buffers: the worker fills its own, then swaps it with the
+	 * shared one, and the drawing Thread takes the shared one in exchange
+	 * for its own when a new Snapshot has been published. Neither side ever
+	 * touches a buffer the other is using, and neither ever waits.
+	 */
+	private class Match implements Runnable {
+
+		private final GameState game;
+		private final int index;
+		private final AtomicReference<Snapshot> shared;
+		private Snapshot back, front;
+		private volatile long published;
+		private final Thread thread;
+
+		// Only used by the drawing Thread
+		private BufferedImage thumbnail;
+		private Graphics2D thumbnailGraphics;
+		private PixelRenderer renderer;
+		private long drawn = -1;
+
+		/**
+		 * Constructs a Match.
+		 * @param game
+		 * @param index Position in the grid.
+		 */
+		private Match(GameState game, int index) {
+			this.game = game;
+			this.index = index;
+
+			int maxRects = game.getEntities().size();
+			int numPlayers = game.getNumPlayers();
+			back = new Snapshot(maxRects, numPlayers);
+			front = new Snapshot(maxRects, numPlayers);
+			shared = new AtomicReference<Snapshot>(
+					new Snapshot(maxRects, numPlayers));
+
+			thread = new Thread(this, "Match-" + index);
+			thread.setDaemon(true);
+		}
+
+		/**
+		 * Ticks the game in real time until the GridState is stopped.
+		 */
+		@Override
+		public void run() {
+			long nextTick = System.nanoTime();
+			long ticks = 0;
+
+			while (!stopped){
+				game.tick();
+				ticks++;
+
+				// Stagger Snapshots across the matches
+				if ((ticks + index) % SNAPSHOT_INTERVAL == 0){
+					publish(ticks);
+				}
+
+				nextTick += NANOS_PER_TICK;
+				long sleepTime = nextTick - System.nanoTime();
+				if (sleepTime > 0){
+					LockSupport.parkNanos(sleepTime);
+				} else {
+					// Do not try to catch up after falling behind
+					nextTick = System.nanoTime();
+				}
+			}
+		}
+
+		/**
+		 * Copies the current state of the game into a Snapshot, and makes
+		 * it available for drawing.
+		 * @param sequence
+		 */
+		private void publish(long sequence) {
+			Snapshot snapshot = back;
+			float[] rects = snapshot.rects;
+			int n = 0;
+
+			ArrayList<Entity> entities = game.getEntities();
+			for (int i = 0; i < entities.size(); i++){
+				Entity entity = entities.get(i);
+				rects[n++] = (float) entity.getX();
+				rects[n++] = (float) entity.getY();
+				if (i < snapshot.scores.length){
+					Player player = game.getPlayer(i);
+					boolean vertical = player.getSide().isVertical();
+					rects[n++] = vertical ? Player.WIDTH : Player.HEIGHT;
+					rects[n++] = vertical ? Player.HEIGHT : Player.WIDTH;
+					snapshot.scores[i] = player.getScore();
+				} else {
+					rects[n++] = Ball.WIDTH;
+					rects[n++] = Ball.HEIGHT;
+				}
+			}
+			snapshot.numRects = n / 4;
+			snapshot.sequence = sequence;
+
+			back = shared.getAndSet(snapshot);
+			published = sequence;
+		}
+
+		/**
+		 * Takes the latest Snapshot, if there is a new one.
+		 * @return True if a new Snapshot was taken.
+		 */
+		private boolean takeSnapshot() {
+			if (published == front.sequence) return false;
+			front = shared.getAndSet(front);
+			return true;
+		}
+	}
+
+	private final Match[] matches;
+	private volatile boolean stopped;
+	private int columns, rows;
+	private int cellWidth, cellHeight;
+
+	/**
+	 * Constructs a GridState and starts its matches.
+	 * @param pong
+	 * @param numMatches
+	 * @param balls Number of Balls in each match.
+	 */
+	public GridState(Pong pong, int numMatches, int balls) {
+		super(pong);
+
+		// Nobody is controlling the matches, so every Player is an AI
+		Side[] sides = pong.getPlayerSides();
+		AISettings[] ai = pong.getPlayerAI().clone();
+		for (int i = 0; i < ai.length; i++){
+			if (ai[i] == null) ai[i] = AISettings.DEFAULT;
+		}
+
+		long seed = System.nanoTime();
+		matches = new Match[numMatches];
+		for (int i = 0; i < numMatches; i++){
+			GameState game = new GameState(null, balls, pong.getPhysics(),
+					sides, ai, seed + i);
+			matches[i] = new Match(game, i);
+		}
+		for (Match match : matches){
+			match.thread.start();
+		}
+	}
+
+	/**
+	 * Stops all of the matches.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Works out the size of each cell in the grid.
+	 * 
+	 * The number of columns is chosen so that the cells are as close as
+	 * possible to the shape of the game area.
+	 */
+	@Override
+	public void sizeChanged(int width, int height) {
+		super.sizeChanged(width, height);
+
+		int n = matches.length;
+		double best = Double.MAX_VALUE;
+		for (int c = 1; c <= n; c++){
+			int r = (n + c - 1) / c;
+			double aspect = ((double) width / c) / ((double) height / r);
+			double error = Math.abs(Math.log(aspect *
+					GameState.GAME_HEIGHT / GameState.GAME_WIDTH));
+			if (error < best){
+				best = error;
+				columns = c;
+				rows = r;
+			}
+		}
+		cellWidth = width / columns;
+		cellHeight = height / rows;
+	}
+
+	/**
+	 * Draws each match's thumbnail, re-rendering only those with a new
+	 * Snapshot.
+	 */
+	@Override
+	public void draw(Graphics2D g) {
+
+		int thumbnailWidth = Math.max((cellWidth - CELL_GAP) /
+				THUMBNAIL_DIVISOR, 1);
+		int thumbnailHeight = Math.max((cellHeight - CELL_GAP) /
+				THUMBNAIL_DIVISOR, 1);
+
+		for (int i = 0; i < matches.length; i++){
+			Match match = matches[i];
+
+			if (match.thumbnail == null ||
+					match.thumbnail.getWidth() != thumbnailWidth ||
+					match.thumbnail.getHeight() != thumbnailHeight){
+				createThumbnail(match, thumbnailWidth, thumbnailHeight);
+			}
+			if (match.takeSnapshot() || match.drawn < 0){
+				drawThumbnail(match);
+			}
+
+			int x = (i % columns) * cellWidth + CELL_GAP / 2;
+			int y = (i / columns) * cellHeight + CELL_GAP / 2;
+			g.drawImage(match.thumbnail, x, y,
+					thumbnailWidth * THUMBNAIL_DIVISOR,
+					thumbnailHeight * THUMBNAIL_DIVISOR, null);
+		}
+	}
+
+	/**
+	 * (Re-)creates the thumbnail of a match at the given size.
+	 * @param match
+	 * @param width
+	 * @param height
+	 */
+	private void createThumbnail(Match match, int width, int height) {
+		if (match.thumbnailGraphics != null){
+			match.thumbnailGraphics.dispose();
+		}
+		match.thumbnail = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_RGB);
+		match.thumbnailGraphics = match.thumbnail.createGraphics();
+		match.renderer = new PixelRenderer(new Viewport(0, 0, width, height,
+				GameState.GAME_WIDTH, GameState.GAME_HEIGHT));
+		match.drawn = -1;
+	}
+
+	/**
+	 * Renders a match's latest Snapshot into its thumbnail.
+	 * @param match
+	 */
+	private void drawThumbnail(Match match) {
+		Snapshot snapshot = match.front;
+		Graphics2D g = match.thumbnailGraphics;
+		PixelRenderer renderer = match.renderer;
+		Viewport viewport = renderer.getViewport();
+
+		g.setColor(Color.BLACK);
+		g.fillRect(0, 0, match.thumbnail.getWidth(),
+				match.thumbnail.getHeight());
+
+		renderer.begin(g);
+		renderer.setColour(Color.WHITE);
+		float[] rects = snapshot.rects;
+		for (int r = 0, n = 0; r < snapshot.numRects; r++, n += 4){
+			renderer.fillRect(rects[n], rects[n + 1], rects[n + 2],
+					rects[n + 3]);
+		}
+		renderer.end();
+
+		// Scores, in Player order
+		StringBuilder scores = new StringBuilder();
+		for (int score : snapshot.scores){
+			if (scores.length() > 0) scores.append(' ');
+			scores.append(score);
+		}
+		drawString(g, scores.toString(), viewport.getX() + 2,
+				viewport.getY() + 2, 1);
+
+		g.setColor(Color.DARK_GRAY);
+		g.drawRect(viewport.getX(), viewport.getY(),
+				viewport.getWidth() - 1, viewport.getHeight() - 1);
+
+		match.drawn = snapshot.sequence;
+	}
+
+	/**
+	 * KeyListener method that returns to the menu on Backspace.
+	 */
+	@Override
+	public void keyReleased(KeyEvent e) {
+		if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE){
+			pong.changeState(new MenuState(pong));
+		}
+	}
+
+	/**
+	 * Gets the number of matches in the grid.
+	 * @return
+	 */
+	public int getNumMatches() {
+		return matches.length;
+	}
+
+	/**
+	 * Gets the game of a match, e.g. for inspection.
+	 * 
+	 * The game is ticked on its own Thread, so must not be modified.
+	 * @param index
+	 * @return
+	 */
+	public GameState getMatch(int index) {
+		return matches[index].game;
+	}
+
+}
@@ -1,43 +1,87 @@
 package state;
 
+import game.Assets;
 import game.Pong;
+import game.WarmUp;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
 
 /**
  * State representing the loading screen.
- * 
+ *
+ * The progress bar covers loading the Assets, followed by the WarmUp.
+ *
  * @author Dan Bryce
  */
 public class LoadingState extends State {
 
 	private static final int FONT_SIZE = 8;
-	
+	private static final int BAR_WIDTH = 400;
+	private static final int BAR_HEIGHT = 16;
+	private static final int BAR_GAP = 40;
+
+	private Assets assets;
+	private WarmUp warmUp;
+
 	/**
 	 * Constructs the LoadingState.
 	 * @param pong
 	 */
 	public LoadingState(Pong pong) {
 		super(pong);
-		
-		font = colourImage(font, Color.WHITE);
+
+		assets = pong.getAssets();
+		warmUp = pong.getWarmUp();
 	}
 
 	/**
-	 * Draws the loading screen.
+	 * The progress bar moves until everything has loaded.
+	 */
+	@Override
+	public boolean isAnimating() {
+		return getProgress() < 1;
+	}
+	
+	/**
+	 * Gets the overall progress, with loading and warming up counting for
+	 * half each.
+	 * @return Value between 0 and 1.
+	 */
+	private double getProgress() {
+		if (warmUp == null){
+			return assets.getProgress();
+		}
+		return (assets.getProgress() + warmUp.getProgress()) / 2;
+	}
+
+	/**
+	 * Draws the loading screen and the progress so far.
 	 */
 	@Override
 	public void draw(Graphics2D g) {
-		
+
 		String string = "Loading";
 		int stringWidth = getStringWidth(string, FONT_SIZE);
 		int stringHeight = getStringHeight(string, FONT_SIZE);
 		int drawX = (screenWidth/2) - (stringWidth/2);
 		int drawY = (screenHeight/2) - (stringHeight/2);
-		
-		drawString(g, string, drawX, drawY, FONT_SIZE);
+
+		// The font is itself an asset, so may not be ready yet
+		if (font == null){
+			font = pong.getFont();
+		}
+		if (font != null){
+			drawString(g, string, drawX, drawY, FONT_SIZE);
+		}
+
+		// Draw progress bar
+		int barX = (screenWidth/2) - (BAR_WIDTH/2);
+		int barY = drawY + stringHeight + BAR_GAP;
+		int progressWidth = (int) (BAR_WIDTH * getProgress());
+		g.setColor(Color.WHITE);
+		g.drawRect(barX, barY, BAR_WIDTH, BAR_HEIGHT);
+		g.fillRect(barX, barY, progressWidth, BAR_HEIGHT);
 	}
-	
 
 }
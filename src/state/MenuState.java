@@ -13,6 +13,7 @@ import java.awt.event.KeyEvent;
 public class MenuState extends State {
 
 	private static final int FONT_SIZE = 8;
+	private static final int HINT_FONT_SIZE = 3;
 	
 	private String input = "";
 
@@ -24,6 +25,14 @@ public class MenuState extends State {
 		super(pong);
 	}
 
+	/**
+	 * The menu only changes in response to input.
+	 */
+	@Override
+	public boolean isAnimating() {
+		return false;
+	}
+
 	/**
 	 * Draws the ball prompt and current user input.
 	 */
@@ -41,6 +50,12 @@ public class MenuState extends State {
 		drawX = (screenWidth/2) - (stringWidth/2);
 		drawY = (screenHeight/2) + 50;
 		drawString(g, input, drawX, drawY, FONT_SIZE);
+
+		string = "Press g to watch " + pong.getGridMatches() + " matches";
+		stringWidth = getStringWidth(string, HINT_FONT_SIZE);
+		drawX = (screenWidth/2) - (stringWidth/2);
+		drawY = screenHeight - 50;
+		drawString(g, string, drawX, drawY, HINT_FONT_SIZE);
 	}
 	
 	/**
@@ -65,6 +80,11 @@ public class MenuState extends State {
 			if (input.equals("")) return;
 			int balls = Integer.parseInt(input);
 			pong.changeState(new GameState(pong, balls));
+		
+		// User wants to watch many matches at once
+		} else if (e.getKeyCode() == KeyEvent.VK_G){
+			int balls = input.equals("") ? 1 : Integer.parseInt(input);
+			pong.changeState(new GridState(pong, pong.getGridMatches(), balls));
 		}
 	}
 
@@ -1,8 +1,8 @@
 package state;
 
 import game.Pong;
+import game.QualityController;
 
-import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
@@ -24,12 +24,15 @@ public abstract class State {
 
 	/**
 	 * Constructs a State.
-	 * @param pong Handle to the Pong instance.
+	 * @param pong Handle to the Pong instance, or null if this State will 
+	 * never be drawn.
 	 */
 	public State(Pong pong) {
 		this.pong = pong;
-		this.font = pong.getFont();
-		this.fontMap = pong.getFontMap();
+		if (pong != null){
+			this.font = pong.getFont();
+			this.fontMap = pong.getFontMap();
+		}
 	}
 
 	/**
@@ -38,6 +41,17 @@ public abstract class State {
 	public void tick(){
 	}
 	
+	/**
+	 * Determines whether this State changes over time by itself.
+	 * 
+	 * While this returns false, the State is only ticked and redrawn in 
+	 * response to input or other changes, so no CPU is used when idle.
+	 * @return
+	 */
+	public boolean isAnimating(){
+		return true;
+	}
+	
 	/**
 	 * Draws the State.
 	 * @param g
@@ -116,34 +130,10 @@ public abstract class State {
 	}
 
 	/**
-	 * Changes all visible pixels in an image to the given Color.
-	 * @param img
-	 * @param color
-	 * @return
+	 * Responds to the quality level of the game changing.
+	 * @param quality
 	 */
-	protected BufferedImage colourImage(BufferedImage img, Color color) {
-		
-		BufferedImage colouredImg = img;
-		int width = img.getWidth();
-		int height = img.getHeight();
-		
-		// Strip alpha value from desired colour
-		int newRGB = color.getRGB() & 0x00ffffff;
-		
-		for (int y = 0; y < height; y++){
-			for (int x = 0; x < width; x++){
-				
-				// Keep only alpha value of each pixel
-				int rgb = img.getRGB(x, y);
-				int alpha = rgb & 0xff000000;
-				
-				// Apply new colour to existing alpha values
-				rgb = alpha | newRGB;
-				colouredImg.setRGB(x, y, rgb);				
-			}
-		}
-		
-		return colouredImg;
+	public void qualityChanged(QualityController quality) {
 	}
 
 	/**
@@ -0,0 +1,117 @@
+package stats;
+
+import java.util.Arrays;
+
+/**
+ * Records durations in a fixed number of buckets, so that percentiles can be
+ * found for runs of any length without storing every sample.
+ * 
+ * Durations below 128ns are recorded exactly. Above that, each power of 2 is
+ * split into 64 buckets, so reported percentiles are within about 1.5% of
+ * the true value. The maximum is always exact.
+ * 
+ * @author Dan Bryce
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 6;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int NUM_BUCKETS = (64 - SUB_BITS) << SUB_BITS;
+
+	private final long[] counts = new long[NUM_BUCKETS];
+	private long count;
+	private long total;
+	private long max;
+
+	/**
+	 * Adds a duration to the histogram.
+	 * @param nanos
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		counts[getBucket(nanos)]++;
+		count++;
+		total += nanos;
+		if (nanos > max) max = nanos;
+	}
+
+	/**
+	 * Gets the bucket that holds the given duration.
+	 * @param nanos
+	 * @return
+	 */
+	private static int getBucket(long nanos) {
+		if (nanos < SUB_BUCKETS * 2){
+			return (int) nanos;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BITS;
+		return (shift << SUB_BITS) + (int) (nanos >>> shift);
+	}
+
+	/**
+	 * Gets the largest duration that falls in the given bucket.
+	 * @param bucket
+	 * @return
+	 */
+	private static long getBucketMax(int bucket) {
+		if (bucket < SUB_BUCKETS * 2){
+			return bucket;
+		}
+		int shift = (bucket >> SUB_BITS) - 1;
+		long top = (bucket & (SUB_BUCKETS - 1)) | SUB_BUCKETS;
+		return ((top + 1) << shift) - 1;
+	}
+
+	/**
+	 * Gets the duration below which the given percentage of samples fall.
+	 * @param percentile Between 0 and 100.
+	 * @return Duration in nanoseconds, or 0 if nothing has been recorded.
+	 */
+	public long getPercentile(double percentile) {
+		if (count == 0) return 0;
+		long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++){
+			seen += counts[i];
+			if (seen >= target){
+				return Math.min(getBucketMax(i), max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Gets the number of samples recorded.
+	 * @return
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the mean duration.
+	 * @return Duration in nanoseconds, or 0 if nothing has been recorded.
+	 */
+	public double getMean() {
+		return count == 0 ? 0 : (double) total / count;
+	}
+
+	/**
+	 * Gets the longest duration recorded.
+	 * @return
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Discards all samples.
+	 */
+	public void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+
+}
@@ -0,0 +1,429 @@
+package stats;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Stores completed matches in an append-only log file, and answers
+ * leaderboard and history queries from in-memory indexes.
+ * 
+ * The log is memory-mapped. Each record is framed as:
+ * 
+ *     int length, int crc32, byte[length] MatchRecord
+ * 
+ * The length is written last, so a record only becomes visible once it is
+ * complete. When the log is opened, it is read up to the first record that
+ * is missing or fails its checksum, so a crash part-way through an append
+ * loses at most that one record.
+ * 
+ * The indexes hold only file offsets and a few numbers per Player, and are
+ * rebuilt by scanning the log when it is opened. Records are decoded from
+ * the log as queries need them.
+ * 
+ * The log can grow to 2GB.
+ * 
+ * @author Dan Bryce
+ */
+public class MatchHistory {
+
+	/**
+	 * Totals for one Player across all stored matches.
+	 */
+	public static class PlayerStats {
+
+		private final String name;
+		private int played, wins;
+		private long pointsFor;
+		private int[] matches = new int[8];
+
+		/**
+		 * Constructs an empty PlayerStats.
+		 * @param name
+		 */
+		private PlayerStats(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Getter for the Player's name.
+		 * @return
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets the number of matches played.
+		 * @return
+		 */
+		public int getPlayed() {
+			return played;
+		}
+
+		/**
+		 * Gets the number of matches won outright.
+		 * @return
+		 */
+		public int getWins() {
+			return wins;
+		}
+
+		/**
+		 * Gets the total number of points scored.
+		 * @return
+		 */
+		public long getPointsFor() {
+			return pointsFor;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d wins from %d, %d points",
+					name, wins, played, pointsFor);
+		}
+	}
+
+	/**
+	 * Growable list of log offsets.
+	 */
+	private static class OffsetList {
+
+		private int[] offsets = new int[4];
+		private int size;
+
+		/**
+		 * Adds an offset to the end of the list.
+		 * @param offset
+		 */
+		private void add(int offset) {
+			if (size == offsets.length){
+				offsets = Arrays.copyOf(offsets, size * 2);
+			}
+			offsets[size++] = offset;
+		}
+	}
+
+	private static final int MAGIC = 0x504D4853;
+	private static final int VERSION = 1;
+	private static final int FILE_HEADER_SIZE = 8;
+	private static final int RECORD_HEADER_SIZE = 8;
+	private static final int INITIAL_SIZE = 1 << 20;
+
+	// Players with the most wins come first
+	private static final Comparator<PlayerStats> LEADERBOARD_ORDER =
+			Comparator.comparingInt(PlayerStats::getWins).reversed()
+			.thenComparing(Comparator.comparingLong(
+					PlayerStats::getPointsFor).reversed())
+			.thenComparing(PlayerStats::getName);
+
+	private final FileChannel channel;
+	private final CRC32 crc;
+	private MappedByteBuffer map;
+	private int end;
+	private int count;
+
+	private final HashMap<String, PlayerStats> players;
+	private final TreeSet<PlayerStats> leaderboard;
+
+	/**
+	 * Offsets of matches, grouped by top score, highest first.
+	 */
+	private final TreeMap<Integer, OffsetList> byScore;
+
+	/**
+	 * Opens a MatchHistory, creating the file if it does not exist.
+	 * @param file
+	 * @throws IOException If the file cannot be opened, or is not a match
+	 * history.
+	 */
+	public MatchHistory(Path file) throws IOException {
+
+		channel = FileChannel.open(file,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		crc = new CRC32();
+		players = new HashMap<String, PlayerStats>();
+		leaderboard = new TreeSet<PlayerStats>(LEADERBOARD_ORDER);
+		byScore = new TreeMap<Integer, OffsetList>(
+				Comparator.<Integer>reverseOrder());
+
+		boolean isNew = channel.size() == 0;
+		map(Math.max(channel.size(), INITIAL_SIZE));
+
+		if (isNew){
+			map.putInt(0, MAGIC);
+			map.putInt(4, VERSION);
+			map.force();
+		} else if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION){
+			channel.close();
+			throw new IOException("Not a match history: " + file);
+		}
+
+		load();
+	}
+
+	/**
+	 * Maps the given number of bytes of the file, growing it if necessary.
+	 * @param size
+	 * @throws IOException
+	 */
+	private void map(long size) throws IOException {
+		if (size > Integer.MAX_VALUE){
+			throw new IOException("Match history is full");
+		}
+		map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+	}
+
+	/**
+	 * Reads every valid record in the log, and builds the indexes.
+	 */
+	private void load() {
+
+		int pos = FILE_HEADER_SIZE;
+		int limit = map.capacity();
+
+		while (pos + RECORD_HEADER_SIZE <= limit){
+			int length = map.getInt(pos);
+			if (length <= 0 || length > limit - pos - RECORD_HEADER_SIZE){
+				break;
+			}
+			ByteBuffer payload = slice(pos + RECORD_HEADER_SIZE, length);
+			crc.reset();
+			crc.update(payload.duplicate());
+			if ((int) crc.getValue() != map.getInt(pos + 4)){
+				break;
+			}
+			index(pos, MatchRecord.decode(payload), false);
+			pos += RECORD_HEADER_SIZE + length;
+		}
+
+		end = pos;
+
+		// The leaderboard is sorted once, rather than after every record
+		leaderboard.addAll(players.values());
+
+		// Clear any partial record left by a crash, so it cannot be
+		// mistaken for part of a later one
+		if (end + 4 <= limit && map.getInt(end) != 0){
+			for (int i = end; i < limit; i++){
+				map.put(i, (byte) 0);
+			}
+			map.force();
+		}
+	}
+
+	/**
+	 * Adds a match to the end of the log, and to the indexes.
+	 * 
+	 * The record is flushed to disk before this returns.
+	 * @param record
+	 * @throws IOException
+	 */
+	public synchronized void append(MatchRecord record) throws IOException {
+		write(record);
+		map.force();
+	}
+
+	/**
+	 * Adds several matches to the end of the log, and to the indexes.
+	 * 
+	 * The records are flushed to disk together, before this returns.
+	 * @param records
+	 * @throws IOException
+	 */
+	public synchronized void appendAll(Iterable<MatchRecord> records)
+			throws IOException {
+		for (MatchRecord record : records){
+			write(record);
+		}
+		map.force();
+	}
+
+	/**
+	 * Writes a record to the end of the log, and adds it to the indexes.
+	 * @param record
+	 * @throws IOException
+	 */
+	private void write(MatchRecord record) throws IOException {
+
+		int length = record.getEncodedSize();
+		long required = (long) end + RECORD_HEADER_SIZE + length;
+		if (required > Integer.MAX_VALUE){
+			throw new IOException("Match history is full");
+		}
+		if (required > map.capacity()){
+			// Double the size, but never beyond what can be mapped
+			map(Math.min(Math.max(required, map.capacity() * 2L),
+					Integer.MAX_VALUE));
+		}
+
+		ByteBuffer payload = slice(end + RECORD_HEADER_SIZE, length);
+		record.encode(payload.duplicate());
+		crc.reset();
+		crc.update(payload);
+
+		map.putInt(end + 4, (int) crc.getValue());
+		map.putInt(end, length);
+
+		int offset = end;
+		end += RECORD_HEADER_SIZE + length;
+
+		index(offset, record, true);
+	}
+
+	/**
+	 * Adds a record to the indexes.
+	 * @param offset
+	 * @param record
+	 * @param ranked True to keep the leaderboard sorted; false while loading.
+	 */
+	private void index(int offset, MatchRecord record, boolean ranked) {
+
+		count++;
+
+		OffsetList scoreList = byScore.get(record.getTopScore());
+		if (scoreList == null){
+			scoreList = new OffsetList();
+			byScore.put(record.getTopScore(), scoreList);
+		}
+		scoreList.add(offset);
+
+		int winner = record.getWinner();
+		for (int i = 0; i < record.getNumPlayers(); i++){
+			String name = record.getName(i);
+			PlayerStats stats = players.get(name);
+			if (stats == null){
+				stats = new PlayerStats(name);
+				players.put(name, stats);
+			} else if (ranked){
+				leaderboard.remove(stats);
+			}
+
+			stats.played++;
+			if (i == winner){
+				stats.wins++;
+			}
+			stats.pointsFor += record.getScore(i);
+
+			if (stats.played > stats.matches.length){
+				stats.matches = Arrays.copyOf(stats.matches,
+						stats.matches.length * 2);
+			}
+			stats.matches[stats.played - 1] = offset;
+
+			if (ranked){
+				leaderboard.add(stats);
+			}
+		}
+	}
+
+	/**
+	 * Gets a view of part of the log.
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	private ByteBuffer slice(int offset, int length) {
+		ByteBuffer buffer = map.duplicate();
+		buffer.position(offset);
+		buffer.limit(offset + length);
+		return buffer.slice();
+	}
+
+	/**
+	 * Reads the record at the given offset.
+	 * @param offset
+	 * @return
+	 */
+	private MatchRecord read(int offset) {
+		int length = map.getInt(offset);
+		return MatchRecord.decode(slice(offset + RECORD_HEADER_SIZE, length));
+	}
+
+	/**
+	 * Gets the matches with the highest scores.
+	 * @param n Maximum number of matches.
+	 * @return Matches, best first, with ties most recent first.
+	 */
+	public synchronized List<MatchRecord> getTopMatches(int n) {
+		List<MatchRecord> matches = new ArrayList<MatchRecord>();
+		for (OffsetList list : byScore.values()){
+			for (int i = list.size - 1; i >= 0 && matches.size() < n; i--){
+				matches.add(read(list.offsets[i]));
+			}
+			if (matches.size() == n) break;
+		}
+		return matches;
+	}
+
+	/**
+	 * Gets the Players with the most wins.
+	 * @param n Maximum number of Players.
+	 * @return Players, best first.
+	 */
+	public synchronized List<PlayerStats> getLeaderboard(int n) {
+		List<PlayerStats> top = new ArrayList<PlayerStats>();
+		for (PlayerStats stats : leaderboard){
+			if (top.size() == n) break;
+			top.add(stats);
+		}
+		return top;
+	}
+
+	/**
+	 * Gets the totals for the given Player.
+	 * @param name
+	 * @return Totals, or null if the Player has never played.
+	 */
+	public synchronized PlayerStats getPlayer(String name) {
+		return players.get(name);
+	}
+
+	/**
+	 * Gets the most recent matches played by the given Player.
+	 * @param name
+	 * @param n Maximum number of matches.
+	 * @return Matches, most recent first.
+	 */
+	public synchronized List<MatchRecord> getHistory(String name, int n) {
+		List<MatchRecord> matches = new ArrayList<MatchRecord>();
+		PlayerStats stats = players.get(name);
+		if (stats == null) return matches;
+
+		for (int i = stats.played - 1; i >= 0 && matches.size() < n; i--){
+			matches.add(read(stats.matches[i]));
+		}
+		return matches;
+	}
+
+	/**
+	 * Gets the number of stored matches.
+	 * @return
+	 */
+	public synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * Closes the file.
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		map.force();
+		channel.close();
+	}
+
+}
@@ -0,0 +1,212 @@
+package stats;
+
+import game.Side;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The result of a completed match.
+ * 
+ * @author Dan Bryce
+ */
+public class MatchRecord {
+
+	private final long time;
+	private final long seed;
+	private final int balls;
+	private final long ticks;
+	private final String[] names;
+	private final Side[] sides;
+	private final int[] scores;
+
+	/**
+	 * Constructs a MatchRecord.
+	 * @param time When the match finished, in milliseconds since the epoch.
+	 * @param seed Seed used to randomise the Balls.
+	 * @param balls Number of Balls.
+	 * @param ticks Length of the match.
+	 * @param names Name of each Player.
+	 * @param sides Wall of each Player.
+	 * @param scores Final score of each Player.
+	 */
+	public MatchRecord(long time, long seed, int balls, long ticks,
+			String[] names, Side[] sides, int[] scores) {
+		this.time = time;
+		this.seed = seed;
+		this.balls = balls;
+		this.ticks = ticks;
+		this.names = names;
+		this.sides = sides;
+		this.scores = scores;
+	}
+
+	/**
+	 * Gets the size of this MatchRecord when encoded.
+	 * @return
+	 */
+	int getEncodedSize() {
+		int size = 8 + 8 + 4 + 8 + 1;
+		for (String name : names){
+			size += 1 + 4 + 2 + name.getBytes(StandardCharsets.UTF_8).length;
+		}
+		return size;
+	}
+
+	/**
+	 * Writes this MatchRecord to a buffer.
+	 * @param out
+	 */
+	void encode(ByteBuffer out) {
+		out.putLong(time);
+		out.putLong(seed);
+		out.putInt(balls);
+		out.putLong(ticks);
+		out.put((byte) names.length);
+		for (int i = 0; i < names.length; i++){
+			byte[] name = names[i].getBytes(StandardCharsets.UTF_8);
+			out.put((byte) sides[i].ordinal());
+			out.putInt(scores[i]);
+			out.putShort((short) name.length);
+			out.put(name);
+		}
+	}
+
+	/**
+	 * Reads a MatchRecord from a buffer.
+	 * @param in
+	 * @return
+	 */
+	static MatchRecord decode(ByteBuffer in) {
+		long time = in.getLong();
+		long seed = in.getLong();
+		int balls = in.getInt();
+		long ticks = in.getLong();
+		int numPlayers = in.get();
+
+		String[] names = new String[numPlayers];
+		Side[] sides = new Side[numPlayers];
+		int[] scores = new int[numPlayers];
+		Side[] allSides = Side.values();
+
+		for (int i = 0; i < numPlayers; i++){
+			sides[i] = allSides[in.get()];
+			scores[i] = in.getInt();
+			byte[] name = new byte[in.getShort() & 0xFFFF];
+			in.get(name);
+			names[i] = new String(name, StandardCharsets.UTF_8);
+		}
+
+		return new MatchRecord(time, seed, balls, ticks, names, sides, scores);
+	}
+
+	/**
+	 * Gets the index of the Player with the highest score.
+	 * @return Player index, or -1 if the match was drawn.
+	 */
+	public int getWinner() {
+		int winner = -1;
+		int best = Integer.MIN_VALUE;
+		for (int i = 0; i < scores.length; i++){
+			if (scores[i] > best){
+				best = scores[i];
+				winner = i;
+			} else if (scores[i] == best){
+				winner = -1;
+			}
+		}
+		return winner;
+	}
+
+	/**
+	 * Gets the highest score of any Player.
+	 * @return
+	 */
+	public int getTopScore() {
+		int best = 0;
+		for (int score : scores){
+			best = Math.max(best, score);
+		}
+		return best;
+	}
+
+	/**
+	 * Gets when the match finished.
+	 * @return Milliseconds since the epoch.
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Getter for the seed.
+	 * @return
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Gets the number of Balls.
+	 * @return
+	 */
+	public int getBalls() {
+		return balls;
+	}
+
+	/**
+	 * Gets the length of the match.
+	 * @return
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Gets the number of Players.
+	 * @return
+	 */
+	public int getNumPlayers() {
+		return names.length;
+	}
+
+	/**
+	 * Gets the name of the given Player.
+	 * @param player
+	 * @return
+	 */
+	public String getName(int player) {
+		return names[player];
+	}
+
+	/**
+	 * Gets the wall of the given Player.
+	 * @param player
+	 * @return
+	 */
+	public Side getSide(int player) {
+		return sides[player];
+	}
+
+	/**
+	 * Gets the final score of the given Player.
+	 * @param player
+	 * @return
+	 */
+	public int getScore(int player) {
+		return scores[player];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < names.length; i++){
+			if (i > 0) sb.append(" vs ");
+			sb.append(names[i]).append(' ').append(scores[i]);
+		}
+		sb.append(String.format(" (%d balls, %.1fs, seed %d)",
+				balls, ticks / 60.0, seed));
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,97 @@
+package stats;
+
+/**
+ * A block of rows read from a telemetry file.
+ * 
+ * Only the columns that were requested from the TelemetryReader are filled
+ * in; the getters for any other columns return null. Arrays may be longer
+ * than the number of rows, and are re-used for the next block.
+ * 
+ * @author Dan Bryce
+ */
+public class TelemetryBlock {
+
+	long[] ticks;
+	long[] allTicks;
+	byte[] types;
+	byte[] players;
+	float[] xs;
+	float[] ys;
+	float[] ballSpeeds;
+	float[] paddleSpeeds;
+	int[] hits;
+	int rows;
+
+	/**
+	 * Gets the number of rows in this block.
+	 * @return
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Gets the TICK column.
+	 * @return
+	 */
+	public long[] getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Gets the TYPE column, as GameEvent.Type ordinals.
+	 * @return
+	 */
+	public byte[] getTypes() {
+		return types;
+	}
+
+	/**
+	 * Gets the PLAYER column.
+	 * @return
+	 */
+	public byte[] getPlayers() {
+		return players;
+	}
+
+	/**
+	 * Gets the X column.
+	 * @return
+	 */
+	public float[] getXs() {
+		return xs;
+	}
+
+	/**
+	 * Gets the Y column.
+	 * @return
+	 */
+	public float[] getYs() {
+		return ys;
+	}
+
+	/**
+	 * Gets the BALL_SPEED column.
+	 * @return
+	 */
+	public float[] getBallSpeeds() {
+		return ballSpeeds;
+	}
+
+	/**
+	 * Gets the PADDLE_SPEED column.
+	 * @return
+	 */
+	public float[] getPaddleSpeeds() {
+		return paddleSpeeds;
+	}
+
+	/**
+	 * Gets the HITS column.
+	 * @return
+	 */
+	public int[] getHits() {
+		return hits;
+	}
+
+}
@@ -0,0 +1,70 @@
+package stats;
+
+/**
+ * The columns stored in a telemetry file.
+ * 
+ * Each row of a telemetry file is one GameEvent.
+ * 
+ * @author Dan Bryce
+ */
+public enum TelemetryColumn {
+
+	/**
+	 * Tick of the event (long, stored as deltas).
+	 */
+	TICK(8),
+
+	/**
+	 * Ordinal of the event type (byte).
+	 */
+	TYPE(1),
+
+	/**
+	 * Player number, or -1 (byte).
+	 */
+	PLAYER(1),
+
+	/**
+	 * Left edge of the Ball (float).
+	 */
+	X(4),
+
+	/**
+	 * Top edge of the Ball (float).
+	 */
+	Y(4),
+
+	/**
+	 * Speed of the Ball (float).
+	 */
+	BALL_SPEED(4),
+
+	/**
+	 * Speed of the paddle (float).
+	 */
+	PADDLE_SPEED(4),
+
+	/**
+	 * Number of hits in the rally so far (int).
+	 */
+	HITS(4);
+
+	private final int bytesPerRow;
+
+	/**
+	 * Constructs a TelemetryColumn.
+	 * @param bytesPerRow
+	 */
+	private TelemetryColumn(int bytesPerRow) {
+		this.bytesPerRow = bytesPerRow;
+	}
+
+	/**
+	 * Gets the uncompressed size of one value in this column.
+	 * @return
+	 */
+	public int getBytesPerRow() {
+		return bytesPerRow;
+	}
+
+}
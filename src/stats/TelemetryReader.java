@@ -0,0 +1,250 @@
+package stats;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads telemetry files written by a TelemetryWriter.
+ * 
+ * Only the requested columns are decompressed; the rest are skipped without
+ * being read.
+ * 
+ * @author Dan Bryce
+ */
+public class TelemetryReader {
+
+	/**
+	 * Callback used to process blocks.
+	 */
+	public interface BlockHandler {
+
+		/**
+		 * Processes a single block.
+		 * 
+		 * The block is only valid until this method returns.
+		 * @param block
+		 */
+		void onBlock(TelemetryBlock block);
+	}
+
+	private final Path file;
+
+	/**
+	 * Constructs a TelemetryReader for the given file.
+	 * @param file
+	 */
+	public TelemetryReader(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * Passes every block in the file to the BlockHandler.
+	 * @param columns Columns to read.
+	 * @param handler
+	 * @throws IOException If the file cannot be read or is not valid.
+	 */
+	public void scan(Set<TelemetryColumn> columns, BlockHandler handler)
+			throws IOException {
+
+		EnumSet<TelemetryColumn> wanted = columns.isEmpty() ?
+				EnumSet.noneOf(TelemetryColumn.class) : EnumSet.copyOf(columns);
+		TelemetryColumn[] allColumns = TelemetryColumn.values();
+
+		TelemetryBlock block = new TelemetryBlock();
+		ByteBuffer header = ByteBuffer.allocate(8);
+		ByteBuffer raw = ByteBuffer.allocate(TelemetryWriter.BLOCK_ROWS * 8);
+		ByteBuffer compressed = ByteBuffer.allocate(raw.capacity() + 64);
+		Inflater inflater = new Inflater();
+		long lastTick = 0;
+
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.READ)){
+
+			readFully(channel, header, 8);
+			if (header.getInt() != TelemetryWriter.MAGIC){
+				throw new IOException("Not a telemetry file: " + file);
+			}
+			int version = header.getInt();
+			if (version != TelemetryWriter.VERSION){
+				throw new IOException("Unsupported telemetry version: " +
+						version);
+			}
+
+			while (channel.position() < channel.size()){
+
+				readFully(channel, header, 4);
+				block.rows = header.getInt();
+				if (block.rows < 0 || block.rows > TelemetryWriter.BLOCK_ROWS){
+					throw new IOException("Corrupt block in " + file);
+				}
+
+				for (TelemetryColumn column : allColumns){
+
+					readFully(channel, header, 4);
+					int length = header.getInt();
+
+					// Ticks are deltas, so they must always be decoded
+					if (!wanted.contains(column) &&
+							column != TelemetryColumn.TICK){
+						channel.position(channel.position() + length);
+						continue;
+					}
+
+					if (length > compressed.capacity()){
+						throw new IOException("Corrupt block in " + file);
+					}
+					readFully(channel, compressed, length);
+					inflate(inflater, compressed, raw,
+							block.rows * column.getBytesPerRow());
+
+					lastTick = decode(column, block, raw, lastTick,
+							wanted.contains(column));
+				}
+
+				handler.onBlock(block);
+			}
+
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Decompresses a column.
+	 * @param inflater
+	 * @param compressed
+	 * @param raw
+	 * @param expected Expected number of decompressed bytes.
+	 * @throws IOException
+	 */
+	private static void inflate(Inflater inflater, ByteBuffer compressed,
+			ByteBuffer raw, int expected) throws IOException {
+
+		inflater.reset();
+		inflater.setInput(compressed.array(), 0, compressed.limit());
+
+		try {
+			int length = inflater.inflate(raw.array(), 0, expected);
+			if (length != expected){
+				throw new IOException("Truncated telemetry column");
+			}
+		} catch (DataFormatException e){
+			throw new IOException(e);
+		}
+
+		raw.clear();
+		raw.limit(expected);
+	}
+
+	/**
+	 * Copies a decompressed column into the block.
+	 * @param column
+	 * @param block
+	 * @param raw
+	 * @param lastTick Tick of the last row of the previous block.
+	 * @param keep Whether the column was requested.
+	 * @return Tick of the last row of this block.
+	 */
+	private static long decode(TelemetryColumn column, TelemetryBlock block,
+			ByteBuffer raw, long lastTick, boolean keep) {
+
+		int rows = block.rows;
+
+		switch (column){
+		case TICK:
+			if (block.allTicks == null){
+				block.allTicks = new long[TelemetryWriter.BLOCK_ROWS];
+			}
+			for (int i = 0; i < rows; i++){
+				lastTick += raw.getLong();
+				block.allTicks[i] = lastTick;
+			}
+			block.ticks = keep ? block.allTicks : null;
+			break;
+		case TYPE:
+			block.types = bytes(block.types);
+			raw.get(block.types, 0, rows);
+			break;
+		case PLAYER:
+			block.players = bytes(block.players);
+			raw.get(block.players, 0, rows);
+			break;
+		case X:
+			block.xs = floats(block.xs);
+			raw.asFloatBuffer().get(block.xs, 0, rows);
+			break;
+		case Y:
+			block.ys = floats(block.ys);
+			raw.asFloatBuffer().get(block.ys, 0, rows);
+			break;
+		case BALL_SPEED:
+			block.ballSpeeds = floats(block.ballSpeeds);
+			raw.asFloatBuffer().get(block.ballSpeeds, 0, rows);
+			break;
+		case PADDLE_SPEED:
+			block.paddleSpeeds = floats(block.paddleSpeeds);
+			raw.asFloatBuffer().get(block.paddleSpeeds, 0, rows);
+			break;
+		case HITS:
+			block.hits = ints(block.hits);
+			raw.asIntBuffer().get(block.hits, 0, rows);
+			break;
+		}
+
+		return lastTick;
+	}
+
+	/**
+	 * Reads exactly the given number of bytes into a buffer.
+	 * @param channel
+	 * @param buffer
+	 * @param length
+	 * @throws IOException
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer,
+			int length) throws IOException {
+		buffer.clear();
+		buffer.limit(length);
+		while (buffer.hasRemaining()){
+			if (channel.read(buffer) < 0){
+				throw new IOException("Unexpected end of telemetry file");
+			}
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Creates a column array if one does not exist yet.
+	 * @param array
+	 * @return
+	 */
+	private static byte[] bytes(byte[] array) {
+		return array == null ? new byte[TelemetryWriter.BLOCK_ROWS] : array;
+	}
+
+	/**
+	 * Creates a column array if one does not exist yet.
+	 * @param array
+	 * @return
+	 */
+	private static int[] ints(int[] array) {
+		return array == null ? new int[TelemetryWriter.BLOCK_ROWS] : array;
+	}
+
+	/**
+	 * Creates a column array if one does not exist yet.
+	 * @param array
+	 * @return
+	 */
+	private static float[] floats(float[] array) {
+		return array == null ? new float[TelemetryWriter.BLOCK_ROWS] : array;
+	}
+
+}
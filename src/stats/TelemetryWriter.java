@@ -0,0 +1,274 @@
+package stats;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
+
+import game.EventBus;
+import game.GameEvent;
+
+/**
+ * Streams the GameEvents of a match to a telemetry file.
+ * 
+ * Events are read from an EventBus on a background Thread, so the game only
+ * pays the cost of publishing them. They are collected into primitive
+ * columns, and each full block of rows is compressed and appended to the
+ * file one column at a time, so that a TelemetryReader can skip the columns
+ * it does not need.
+ * 
+ * File layout:
+ * 
+ *     int magic, int version
+ *     for each block:
+ *         int rowCount
+ *         for each column: int compressedLength, byte[] data
+ * 
+ * All values are big-endian.
+ * 
+ * @author Dan Bryce
+ */
+public class TelemetryWriter implements EventBus.Handler {
+
+	public static final int MAGIC = 0x50544C4D;
+	public static final int VERSION = 1;
+
+	/**
+	 * Number of rows in each block.
+	 */
+	public static final int BLOCK_ROWS = 4096;
+
+	// Time to wait when there are no new events
+	private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private final EventBus.Subscription subscription;
+	private final FileChannel channel;
+	private final Thread thread;
+
+	// Column buffers
+	private final long[] ticks = new long[BLOCK_ROWS];
+	private final byte[] types = new byte[BLOCK_ROWS];
+	private final byte[] players = new byte[BLOCK_ROWS];
+	private final float[] xs = new float[BLOCK_ROWS];
+	private final float[] ys = new float[BLOCK_ROWS];
+	private final float[] ballSpeeds = new float[BLOCK_ROWS];
+	private final float[] paddleSpeeds = new float[BLOCK_ROWS];
+	private final int[] hits = new int[BLOCK_ROWS];
+	private int rows;
+
+	// Encoding buffers, re-used for every block
+	private final Deflater deflater;
+	private final ByteBuffer raw;
+	private final byte[] compressed;
+	private final ByteBuffer header;
+
+	private long lastTick;
+	private volatile long rowsWritten;
+	private volatile boolean stopped;
+	private IOException error;
+
+	/**
+	 * Constructs a TelemetryWriter that records events from the given
+	 * EventBus, and starts it.
+	 * @param file
+	 * @param events
+	 * @throws IOException
+	 */
+	public TelemetryWriter(Path file, EventBus events) throws IOException {
+
+		channel = FileChannel.open(file,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+
+		deflater = new Deflater(Deflater.BEST_SPEED);
+		raw = ByteBuffer.allocate(BLOCK_ROWS * 8);
+		compressed = new byte[BLOCK_ROWS * 8 + 64];
+		header = ByteBuffer.allocate(8);
+
+		header.putInt(MAGIC).putInt(VERSION).flip();
+		writeFully(header);
+
+		subscription = events.subscribe();
+		thread = new Thread(this::run, "Telemetry Writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Drains the Subscription until stopped.
+	 */
+	private void run() {
+		try {
+			while (!stopped){
+				if (subscription.poll(this) == 0){
+					LockSupport.parkNanos(IDLE_NANOS);
+				}
+			}
+
+			// Pick up anything published before we were stopped
+			subscription.poll(this);
+			if (rows > 0){
+				flushBlock();
+			}
+
+		} catch (UncheckedIOException e){
+			error = e.getCause();
+		} finally {
+			subscription.close();
+		}
+	}
+
+	@Override
+	public void onEvent(GameEvent event) {
+
+		ticks[rows] = event.getTick();
+		types[rows] = (byte) event.getType().ordinal();
+		players[rows] = (byte) event.getPlayer();
+		xs[rows] = (float) event.getX();
+		ys[rows] = (float) event.getY();
+		ballSpeeds[rows] = (float) event.getBallSpeed();
+		paddleSpeeds[rows] = (float) event.getPaddleSpeed();
+		hits[rows] = event.getHits();
+		rows++;
+
+		if (rows == BLOCK_ROWS){
+			flushBlock();
+		}
+	}
+
+	/**
+	 * Compresses the buffered rows and appends them to the file.
+	 */
+	private void flushBlock() {
+		try {
+			header.clear();
+			header.putInt(rows).flip();
+			writeFully(header);
+
+			for (TelemetryColumn column : TelemetryColumn.values()){
+				raw.clear();
+				encode(column);
+				raw.flip();
+				writeColumn();
+			}
+
+			rowsWritten += rows;
+			rows = 0;
+
+		} catch (IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Copies a column into the raw buffer.
+	 * @param column
+	 */
+	private void encode(TelemetryColumn column) {
+		switch (column){
+		case TICK:
+			// Ticks only ever increase, so deltas compress far better
+			for (int i = 0; i < rows; i++){
+				raw.putLong(ticks[i] - lastTick);
+				lastTick = ticks[i];
+			}
+			break;
+		case TYPE:
+			raw.put(types, 0, rows);
+			break;
+		case PLAYER:
+			raw.put(players, 0, rows);
+			break;
+		case X:
+			raw.asFloatBuffer().put(xs, 0, rows);
+			raw.position(rows * 4);
+			break;
+		case Y:
+			raw.asFloatBuffer().put(ys, 0, rows);
+			raw.position(rows * 4);
+			break;
+		case BALL_SPEED:
+			raw.asFloatBuffer().put(ballSpeeds, 0, rows);
+			raw.position(rows * 4);
+			break;
+		case PADDLE_SPEED:
+			raw.asFloatBuffer().put(paddleSpeeds, 0, rows);
+			raw.position(rows * 4);
+			break;
+		case HITS:
+			raw.asIntBuffer().put(hits, 0, rows);
+			raw.position(rows * 4);
+			break;
+		}
+	}
+
+	/**
+	 * Compresses the raw buffer and writes it, preceded by its length.
+	 * @throws IOException
+	 */
+	private void writeColumn() throws IOException {
+
+		deflater.reset();
+		deflater.setInput(raw.array(), 0, raw.limit());
+		deflater.finish();
+
+		int length = 0;
+		while (!deflater.finished()){
+			length += deflater.deflate(compressed, length,
+					compressed.length - length);
+		}
+
+		header.clear();
+		header.putInt(length).flip();
+		writeFully(header);
+		writeFully(ByteBuffer.wrap(compressed, 0, length));
+	}
+
+	/**
+	 * Writes the whole of a buffer to the file.
+	 * @param buffer
+	 * @throws IOException
+	 */
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Writes any remaining events and closes the file.
+	 * @throws IOException If any part of the file could not be written.
+	 */
+	public void close() throws IOException {
+
+		stopped = true;
+
+		try {
+			thread.join();
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+
+		deflater.end();
+		channel.close();
+
+		if (error != null){
+			throw error;
+		}
+	}
+
+	/**
+	 * Gets the number of rows written to the file so far.
+	 * @return
+	 */
+	public long getRowsWritten() {
+		return rowsWritten;
+	}
+
+}
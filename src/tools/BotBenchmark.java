@@ -0,0 +1,110 @@
+package tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import bot.BotClient;
+
+/**
+ * Command-line tool that measures how fast a bot can drive a BotServer.
+ *
+ * A BotHost is started in a separate JVM, and this process acts as the bot,
+ * choosing random actions and stepping all environments in lockstep.
+ *
+ * Usage: BotBenchmark [envs] [balls] [seconds] [-fixed]
+ *
+ * @author Dan Bryce
+ */
+public class BotBenchmark {
+
+	/**
+	 * Entry point for the tool.
+	 * @param args
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static void main(String[] args)
+			throws IOException, InterruptedException {
+
+		int envs = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+		int balls = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		boolean fixed = args.length > 3 && args[3].equals("-fixed");
+
+		Path file = Files.createTempFile("pong-bots", ".bin");
+		Files.delete(file);
+
+		List<String> command = new ArrayList<String>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java")
+				.toString());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(BotHost.class.getName());
+		command.add(file.toString());
+		command.add("-envs");
+		command.add(String.valueOf(envs));
+		command.add("-balls");
+		command.add(String.valueOf(balls));
+		command.add("-seed");
+		command.add("1");
+		if (fixed){
+			command.add("-fixed");
+		}
+		Process host = new ProcessBuilder(command).inheritIO().start();
+
+		try {
+			BotClient client = new BotClient(file);
+			SplittableRandom random = new SplittableRandom(1);
+
+			// Let the server's JIT settle before measuring
+			long warmupEnd = System.nanoTime() + 2000000000L;
+			while (System.nanoTime() < warmupEnd){
+				step(client, envs, random);
+			}
+
+			long steps = 0;
+			long episodes = 0;
+			long startTime = System.nanoTime();
+			long endTime = startTime + seconds * 1000000000L;
+			while (System.nanoTime() < endTime){
+				step(client, envs, random);
+				steps++;
+				for (int env = 0; env < envs; env++){
+					if (client.isDone(env)) episodes++;
+				}
+			}
+			double elapsed = (System.nanoTime() - startTime) / 1e6;
+
+			client.close();
+
+			System.out.printf("%d envs x %d steps in %.0fms: " +
+					"%.0f env steps/ms, %.1fus per lockstep, %d episodes%n",
+					envs, steps, elapsed, envs * steps / elapsed,
+					elapsed * 1000 / steps, episodes);
+		} finally {
+			host.waitFor();
+			new File(file.toString()).delete();
+		}
+	}
+
+	/**
+	 * Chooses a random action for every environment, and steps them all.
+	 * @param client
+	 * @param envs
+	 * @param random
+	 */
+	private static void step(BotClient client, int envs,
+			SplittableRandom random) {
+		for (int env = 0; env < envs; env++){
+			client.setAction(env, 0, random.nextInt(3) - 1);
+		}
+		client.step();
+	}
+
+}
@@ -0,0 +1,94 @@
+package tools;
+
+import game.AISettings;
+import game.Physics;
+import game.Side;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import bot.BotServer;
+
+/**
+ * Command-line tool that runs a BotServer until its bot closes it.
+ *
+ * Players are given as for Pong's -players option; Players without ":ai"
+ * are controlled by the bot.
+ *
+ * Usage: BotHost file [-envs n] [-balls n] [-players list] [-score n]
+ *     [-ticks n] [-seed n] [-fixed]
+ *
+ * @author Dan Bryce
+ */
+public class BotHost {
+
+	/**
+	 * Entry point for the tool.
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 1){
+			System.err.println("Usage: BotHost file [-envs n] [-balls n] " +
+					"[-players list] [-score n] [-ticks n] [-seed n] [-fixed]");
+			System.exit(1);
+		}
+
+		Path file = Paths.get(args[0]);
+		int envs = 1024;
+		int balls = 1;
+		String players = "left,right:ai";
+		int score = 11;
+		int ticks = 60 * 60 * 5;
+		long seed = System.nanoTime();
+		Physics physics = Physics.DEFAULT;
+
+		for (int i = 1; i < args.length; i++){
+			switch (args[i]){
+			case "-envs":
+				envs = Integer.parseInt(args[++i]);
+				break;
+			case "-balls":
+				balls = Integer.parseInt(args[++i]);
+				break;
+			case "-players":
+				players = args[++i];
+				break;
+			case "-score":
+				score = Integer.parseInt(args[++i]);
+				break;
+			case "-ticks":
+				ticks = Integer.parseInt(args[++i]);
+				break;
+			case "-seed":
+				seed = Long.parseLong(args[++i]);
+				break;
+			case "-fixed":
+				physics = physics.withFixedPoint(true);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+
+		String[] parts = players.split(",");
+		Side[] sides = new Side[parts.length];
+		AISettings[] ai = new AISettings[parts.length];
+		for (int i = 0; i < parts.length; i++){
+			String[] player = parts[i].split(":");
+			sides[i] = Side.valueOf(player[0].trim().toUpperCase());
+			if (player.length > 1 && player[1].trim().equals("ai")){
+				ai[i] = AISettings.DEFAULT;
+			}
+		}
+
+		BotServer server = new BotServer(file, envs, balls, physics, sides,
+				ai, score, ticks, seed);
+		System.out.printf("Serving %d environments through %s (%d bytes)%n",
+				envs, file, server.getLayout().getFileSize());
+		server.run();
+	}
+
+}
@@ -0,0 +1,124 @@
+package tools;
+
+import game.Side;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import stats.MatchHistory;
+import stats.MatchRecord;
+
+/**
+ * Command-line tool that queries a match history, or fills one with
+ * random matches for testing.
+ * 
+ * Usage: MatchHistoryTool file command
+ * 
+ * Commands:
+ *     leaderboard [n]    Players with the most wins
+ *     top [n]            Matches with the highest scores
+ *     player name [n]    Most recent matches of a Player
+ *     generate count     Append random matches between 1000 Players
+ * 
+ * @author Dan Bryce
+ */
+public class MatchHistoryTool {
+
+	private static final int GENERATED_PLAYERS = 1000;
+	private static final int BATCH_SIZE = 10000;
+
+	/**
+	 * Entry point for the tool.
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 2){
+			System.err.println("Usage: MatchHistoryTool file " +
+					"leaderboard|top|player|generate [args]");
+			System.exit(1);
+		}
+
+		long startTime = System.nanoTime();
+		MatchHistory history = new MatchHistory(Paths.get(args[0]));
+		System.out.printf("Loaded %d matches in %.1fms%n", history.size(),
+				(System.nanoTime() - startTime) / 1e6);
+
+		String command = args[1];
+		int n = 10;
+
+		startTime = System.nanoTime();
+		List<?> results;
+
+		if (command.equals("leaderboard")){
+			if (args.length > 2) n = Integer.parseInt(args[2]);
+			results = history.getLeaderboard(n);
+
+		} else if (command.equals("top")){
+			if (args.length > 2) n = Integer.parseInt(args[2]);
+			results = history.getTopMatches(n);
+
+		} else if (command.equals("player") && args.length > 2){
+			if (args.length > 3) n = Integer.parseInt(args[3]);
+			results = history.getHistory(args[2], n);
+
+		} else if (command.equals("generate") && args.length > 2){
+			int count = Integer.parseInt(args[2]);
+			generate(history, count);
+			System.out.printf("Appended %d matches in %.1fs%n", count,
+					(System.nanoTime() - startTime) / 1e9);
+			history.close();
+			return;
+
+		} else {
+			System.err.println("Unknown command: " + command);
+			history.close();
+			System.exit(1);
+			return;
+		}
+
+		long elapsed = System.nanoTime() - startTime;
+		for (Object result : results){
+			System.out.println("  " + result);
+		}
+		System.out.printf("Query took %.3fms%n", elapsed / 1e6);
+		history.close();
+	}
+
+	/**
+	 * Appends random 2-player matches.
+	 * @param history
+	 * @param count
+	 * @throws IOException
+	 */
+	private static void generate(MatchHistory history, int count)
+			throws IOException {
+
+		SplittableRandom random = new SplittableRandom();
+		Side[] sides = { Side.LEFT, Side.RIGHT };
+		List<MatchRecord> batch = new ArrayList<MatchRecord>();
+
+		for (int i = 0; i < count; i++){
+			int a = random.nextInt(GENERATED_PLAYERS);
+			int b = (a + 1 + random.nextInt(GENERATED_PLAYERS - 1)) %
+					GENERATED_PLAYERS;
+			String[] names = { "player" + a, "player" + b };
+			int[] scores = { random.nextInt(12), random.nextInt(12) };
+			int balls = 1 + random.nextInt(10);
+
+			batch.add(new MatchRecord(System.currentTimeMillis(),
+					random.nextLong(), balls, 600 + random.nextInt(36000),
+					names, sides, scores));
+
+			if (batch.size() == BATCH_SIZE || i == count - 1){
+				history.appendAll(batch);
+				batch.clear();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+package tools;
+
+import game.Pong;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import render.FrameRecorder;
+import state.GameState;
+
+/**
+ * Command-line tool that plays a match offscreen and records it to a file.
+ *
+ * The game is stepped as fast as the recorder can accept frames, rather than
+ * in real time.
+ *
+ * Usage: RecordMatch output-file [balls] [seconds] [raw|y4m]
+ *
+ * @author Dan Bryce
+ */
+public class RecordMatch {
+
+	private static final int WIDTH = 1280;
+	private static final int HEIGHT = 720;
+	private static final int FPS = 60;
+
+	/**
+	 * Entry point for the tool.
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 1){
+			System.err.println(
+					"Usage: RecordMatch output-file [balls] [seconds] [raw|y4m]");
+			System.exit(1);
+		}
+
+		Path file = Paths.get(args[0]);
+		int balls = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+		FrameRecorder.Format format = args.length > 3 ?
+				FrameRecorder.Format.valueOf(args[3].toUpperCase()) :
+				FrameRecorder.Format.Y4M;
+
+		// No window is needed
+		System.setProperty("java.awt.headless", "true");
+
+		Pong pong = Pong.createHeadless();
+		GameState state = new GameState(pong, balls);
+		state.sizeChanged(WIDTH, HEIGHT);
+
+		FrameRecorder recorder = new FrameRecorder(
+				file, WIDTH, HEIGHT, FPS, format);
+		int frames = seconds * FPS;
+		long startTime = System.nanoTime();
+
+		try {
+			for (int i = 0; i < frames; i++){
+				state.tick();
+				recorder.capture(state);
+			}
+		} finally {
+			recorder.close();
+		}
+
+		double elapsed = (System.nanoTime() - startTime) / 1e9;
+		System.out.printf("Recorded %d frames in %.2fs (%.1fx real time)%n",
+				frames, elapsed, seconds / elapsed);
+	}
+
+}
@@ -0,0 +1,804 @@
+package tools;
+
+import game.AISettings;
+import game.Particles;
+import game.Pong;
+import game.QualityController;
+import game.Scheduler;
+import game.Side;
+
+import java.awt.Canvas;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import state.GameState;
+import stats.LatencyHistogram;
+
+/**
+ * Command-line tool that runs scripted scenarios through the full game for
+ * minutes at a time, and reports how the game held up.
+ * 
+ * For each scenario, tick and frame time percentiles, garbage collection,
+ * allocation rate, heap use and the quality level are measured after a
+ * warm-up period. Quality is managed by a QualityController, as in the
+ * game, so a struggling scenario repaints less often and so on. The
+ * results can be written to CSV and JSON files, labelled with the build
+ * under test, so that runs can be compared. The CSV file is appended to if
+ * it already exists.
+ * 
+ * A script has one scenario per line, as a name followed by settings, e.g.:
+ * 
+ *     crowd balls=1000 players=left:ai,right:ai render=pixels seconds=120
+ * 
+ * Settings are balls (n), players (as for Pong's -players option), render
+ * (none, java2d or pixels), input (none or random, which presses the human
+ * Players' keys at random), particles (capacity[:budget], as for Pong's
+ * -particles option), lod (the number of Balls from which a heatmap is
+ * drawn instead, as for Pong's -lod option), substeps (Ball substeps per
+ * tick), airate (AI decisions per second) and seconds. Blank lines and
+ * lines starting with '#' are ignored.
+ * Without a script, a built-in set of scenarios is run.
+ * 
+ * By default the game runs as fast as it can; with -realtime, it is paced
+ * at 60 ticks per second like the GameThread.
+ * 
+ * Usage: SoakBenchmark [-script file] [-seconds n] [-warmup n] [-realtime]
+ *     [-label name] [-csv file] [-json file] [-seed n]
+ * 
+ * @author Dan Bryce
+ */
+public class SoakBenchmark {
+
+	/**
+	 * How a scenario is drawn.
+	 */
+	private enum Render {
+
+		/**
+		 * Ticks only.
+		 */
+		NONE,
+
+		/**
+		 * Draws each tick using Java2D.
+		 */
+		JAVA2D,
+
+		/**
+		 * Draws each tick using the PixelRenderer.
+		 */
+		PIXELS
+	}
+
+	/**
+	 * A single scripted run.
+	 */
+	private static class Scenario {
+
+		private String name;
+		private int balls = 1;
+		private String players = "left:ai,right:ai";
+		private Render render = Render.NONE;
+		private boolean randomInput;
+		private int particleCapacity = -1;
+		private int particleBudget;
+		private int detailThreshold = -1;
+		private int substeps = 1;
+		private int aiRate = 60;
+		private int seconds;
+	}
+
+	/**
+	 * The measurements taken during a Scenario.
+	 */
+	private static class Result {
+
+		private Scenario scenario;
+		private LatencyHistogram tickTimes = new LatencyHistogram();
+		private LatencyHistogram frameTimes = new LatencyHistogram();
+		private LatencyHistogram particleTimes = new LatencyHistogram();
+		private long particleSamples;
+		private long particleTotal;
+		private long particlesDropped;
+		private String subsystems;
+		private double elapsed;
+		private long gcCount, gcMillis;
+		private long allocatedBytes = -1;
+		private long heapPeak, heapEnd;
+		private long[] qualityTicks =
+				new long[QualityController.Level.values().length];
+		private QualityController.Level qualityEnd;
+	}
+
+	private static final String[] DEFAULT_SCRIPT = {
+		"ai-1 balls=1",
+		"ai-1000 balls=1000",
+		"ai-1000-java2d balls=1000 render=java2d",
+		"ai-1000-pixels balls=1000 render=pixels",
+		"ai-1000-pixels-nofx balls=1000 render=pixels particles=0",
+		"4p-200-pixels balls=200 " +
+				"players=left:ai,right:ai,top:ai,bottom:ai render=pixels",
+		"humans-50-input balls=50 players=left,right input=random " +
+				"render=java2d"
+	};
+
+	private static final int SCREEN_WIDTH = 1280;
+	private static final int SCREEN_HEIGHT = 720;
+	private static final int FPS = 60;
+	private static final long NANOS_PER_TICK = 1000000000L / FPS;
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+	private static final int HEAP_SAMPLE_INTERVAL = FPS;
+
+	// Every key that moves a human Player
+	private static final int[] INPUT_KEYS = {
+		KeyEvent.VK_UP, KeyEvent.VK_DOWN, KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT,
+		KeyEvent.VK_W, KeyEvent.VK_S, KeyEvent.VK_A, KeyEvent.VK_D
+	};
+
+	private Path script;
+	private int defaultSeconds = 60;
+	private int warmupSeconds = 10;
+	private boolean realtime;
+	private String label = "unlabelled";
+	private Path csvFile;
+	private Path jsonFile;
+	private long seed = System.nanoTime();
+
+	/**
+	 * Entry point for the tool.
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+
+		// No window is needed
+		System.setProperty("java.awt.headless", "true");
+
+		SoakBenchmark benchmark = new SoakBenchmark();
+		benchmark.parseArgs(args);
+		benchmark.run();
+	}
+
+	/**
+	 * Reads settings from the command line.
+	 * @param args
+	 */
+	private void parseArgs(String[] args) {
+		for (int i = 0; i < args.length; i++){
+			String option = args[i];
+			if (option.equals("-realtime")){
+				realtime = true;
+				continue;
+			}
+			if (i + 1 >= args.length){
+				throw new IllegalArgumentException("Missing value: " + option);
+			}
+			String value = args[++i];
+			switch (option){
+			case "-script":
+				script = Paths.get(value);
+				break;
+			case "-seconds":
+				defaultSeconds = Integer.parseInt(value);
+				break;
+			case "-warmup":
+				warmupSeconds = Integer.parseInt(value);
+				break;
+			case "-label":
+				label = value;
+				break;
+			case "-csv":
+				csvFile = Paths.get(value);
+				break;
+			case "-json":
+				jsonFile = Paths.get(value);
+				break;
+			case "-seed":
+				seed = Long.parseLong(value);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + option);
+			}
+		}
+	}
+
+	/**
+	 * Runs every Scenario and writes the reports.
+	 * @throws IOException
+	 */
+	private void run() throws IOException {
+
+		List<String> lines = script == null ?
+				List.of(DEFAULT_SCRIPT) : Files.readAllLines(script);
+		List<Scenario> scenarios = new ArrayList<Scenario>();
+		for (String line : lines){
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) continue;
+			scenarios.add(parseScenario(line));
+		}
+
+		Pong pong = Pong.createHeadless();
+		List<Result> results = new ArrayList<Result>();
+
+		for (Scenario scenario : scenarios){
+			System.out.printf("%s: %d balls, %s, render %s, %ds%s%n",
+					scenario.name, scenario.balls, scenario.players,
+					scenario.render.name().toLowerCase(), scenario.seconds,
+					realtime ? " (real time)" : "");
+			Result result = runScenario(pong, scenario);
+			print(result);
+			results.add(result);
+		}
+
+		if (csvFile != null){
+			writeCsv(results);
+		}
+		if (jsonFile != null){
+			writeJson(results);
+		}
+	}
+
+	/**
+	 * Reads a Scenario from a line of the script.
+	 * @param line
+	 * @return
+	 */
+	private Scenario parseScenario(String line) {
+
+		String[] parts = line.split("\\s+");
+		Scenario scenario = new Scenario();
+		scenario.name = parts[0];
+		scenario.seconds = defaultSeconds;
+
+		for (int i = 1; i < parts.length; i++){
+			String[] setting = parts[i].split("=", 2);
+			if (setting.length != 2){
+				throw new IllegalArgumentException("Bad setting: " + parts[i]);
+			}
+			String value = setting[1];
+			switch (setting[0]){
+			case "balls":
+				scenario.balls = Integer.parseInt(value);
+				break;
+			case "players":
+				scenario.players = value;
+				break;
+			case "render":
+				scenario.render = Render.valueOf(value.toUpperCase());
+				break;
+			case "input":
+				scenario.randomInput = value.equals("random");
+				break;
+			case "particles":
+				String[] limits = value.split(":");
+				scenario.particleCapacity = Integer.parseInt(limits[0]);
+				scenario.particleBudget = limits.length > 1 ?
+						Integer.parseInt(limits[1]) :
+						scenario.particleCapacity / 16;
+				break;
+			case "lod":
+				scenario.detailThreshold = Integer.parseInt(value);
+				break;
+			case "substeps":
+				scenario.substeps = Integer.parseInt(value);
+				break;
+			case "airate":
+				scenario.aiRate = Integer.parseInt(value);
+				break;
+			case "seconds":
+				scenario.seconds = Integer.parseInt(value);
+				break;
+			default:
+				throw new IllegalArgumentException(
+						"Unknown setting: " + setting[0]);
+			}
+		}
+
+		return scenario;
+	}
+
+	/**
+	 * Plays a Scenario, measuring everything after the warm-up period.
+	 * @param pong
+	 * @param scenario
+	 * @return
+	 */
+	private Result runScenario(Pong pong, Scenario scenario) {
+
+		String[] players = scenario.players.split(",");
+		Side[] sides = new Side[players.length];
+		AISettings[] ai = new AISettings[players.length];
+		for (int i = 0; i < players.length; i++){
+			String[] parts = players[i].split(":");
+			sides[i] = Side.valueOf(parts[0].trim().toUpperCase());
+			if (parts.length > 1 && parts[1].trim().equals("ai")){
+				ai[i] = AISettings.DEFAULT.withDecisionRate(scenario.aiRate);
+			}
+		}
+		pong.setPlayers(sides, ai);
+		pong.setBallSubsteps(scenario.substeps);
+		pong.setPixelRendering(scenario.render == Render.PIXELS);
+		int defaultCapacity = pong.getParticleCapacity();
+		int defaultBudget = pong.getParticleBudget();
+		int defaultThreshold = pong.getDetailThreshold();
+		if (scenario.detailThreshold > 0){
+			pong.setDetailThreshold(scenario.detailThreshold);
+		}
+		if (scenario.particleCapacity >= 0){
+			pong.setParticleLimits(scenario.particleCapacity,
+					scenario.particleBudget);
+		}
+
+		GameState state = new GameState(pong, scenario.balls);
+		state.sizeChanged(SCREEN_WIDTH, SCREEN_HEIGHT);
+		pong.setParticleLimits(defaultCapacity, defaultBudget);
+		pong.setDetailThreshold(defaultThreshold);
+		pong.setBallSubsteps(1);
+		Particles particles = state.getParticles();
+		long startDropped = 0;
+
+		BufferedImage image = null;
+		Graphics2D g = null;
+		if (scenario.render != Render.NONE){
+			image = new BufferedImage(SCREEN_WIDTH, SCREEN_HEIGHT,
+					BufferedImage.TYPE_INT_RGB);
+			g = image.createGraphics();
+		}
+
+		// Quality is managed as in the game loop, including repainting less
+		// often when it is reduced
+		QualityController quality = new QualityController(NANOS_PER_TICK);
+		state.qualityChanged(quality);
+
+		Component source = new Canvas();
+		SplittableRandom random = new SplittableRandom(seed);
+		boolean[] held = new boolean[INPUT_KEYS.length];
+
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		Result result = new Result();
+		result.scenario = scenario;
+
+		long warmupEnd = System.nanoTime() + warmupSeconds * 1000000000L;
+		long runEnd = 0;
+		long startTime = 0;
+		long startGcCount = 0, startGcMillis = 0, startAllocated = 0;
+		boolean measuring = false;
+		long nextTick = System.nanoTime();
+		long ticks = 0;
+
+		while (!measuring || System.nanoTime() < runEnd){
+
+			if (!measuring && System.nanoTime() >= warmupEnd){
+				measuring = true;
+				startTime = System.nanoTime();
+				runEnd = startTime + scenario.seconds * 1000000000L;
+				startGcCount = getGcCount();
+				startGcMillis = getGcMillis();
+				startAllocated = getAllocatedBytes();
+				state.getScheduler().resetMetrics();
+				if (particles != null){
+					startDropped = particles.getDropped();
+				}
+			}
+
+			// Synthetic input: a key changes state every few ticks
+			if (scenario.randomInput && random.nextInt(8) == 0){
+				int key = random.nextInt(INPUT_KEYS.length);
+				held[key] = !held[key];
+				KeyEvent e = new KeyEvent(source,
+						held[key] ? KeyEvent.KEY_PRESSED : KeyEvent.KEY_RELEASED,
+						System.currentTimeMillis(), 0, INPUT_KEYS[key],
+						KeyEvent.CHAR_UNDEFINED);
+				if (held[key]){
+					state.keyPressed(e);
+				} else {
+					state.keyReleased(e);
+				}
+			}
+
+			long tickStart = System.nanoTime();
+			state.tick();
+			long tickEnd = System.nanoTime();
+
+			boolean drawn = g != null &&
+					ticks % quality.getRenderInterval() == 0;
+			if (drawn){
+				state.draw(g);
+			}
+			long frameEnd = System.nanoTime();
+
+			if (drawn){
+				quality.frameDrawn(frameEnd - tickEnd);
+			}
+			if (quality.update(tickEnd - tickStart)){
+				state.qualityChanged(quality);
+			}
+
+			if (measuring){
+				result.tickTimes.record(tickEnd - tickStart);
+				if (drawn){
+					result.frameTimes.record(frameEnd - tickEnd);
+				}
+				result.qualityTicks[quality.getLevel().ordinal()]++;
+				if (particles != null){
+					long particleTime = particles.getTickNanos();
+					if (drawn){
+						particleTime += particles.getDrawNanos();
+					}
+					result.particleTimes.record(particleTime);
+					result.particleSamples++;
+					result.particleTotal += particles.getCount();
+				}
+				if (ticks % HEAP_SAMPLE_INTERVAL == 0){
+					result.heapPeak = Math.max(result.heapPeak,
+							memory.getHeapMemoryUsage().getUsed());
+				}
+			}
+			ticks++;
+
+			if (realtime){
+				nextTick += NANOS_PER_TICK;
+				long sleepTime = nextTick - System.nanoTime();
+				if (sleepTime > 0){
+					try {
+						Thread.sleep(sleepTime / 1000000,
+								(int) (sleepTime % 1000000));
+					} catch (InterruptedException e){
+						e.printStackTrace();
+					}
+				} else {
+					// Do not try to catch up after falling behind
+					nextTick = System.nanoTime();
+				}
+			}
+		}
+
+		result.elapsed = (System.nanoTime() - startTime) / 1e9;
+		result.gcCount = getGcCount() - startGcCount;
+		result.gcMillis = getGcMillis() - startGcMillis;
+		long allocated = getAllocatedBytes();
+		if (allocated >= 0 && startAllocated >= 0){
+			result.allocatedBytes = allocated - startAllocated;
+		}
+		result.heapEnd = memory.getHeapMemoryUsage().getUsed();
+		result.qualityEnd = quality.getLevel();
+		result.subsystems = describe(state.getScheduler());
+		if (particles != null){
+			result.particlesDropped = particles.getDropped() - startDropped;
+		}
+		result.heapPeak = Math.max(result.heapPeak, result.heapEnd);
+
+		if (g != null){
+			g.dispose();
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the number of garbage collections so far.
+	 * @return
+	 */
+	private static long getGcCount() {
+		long total = 0;
+		for (GarbageCollectorMXBean gc :
+				ManagementFactory.getGarbageCollectorMXBeans()){
+			total += Math.max(0, gc.getCollectionCount());
+		}
+		return total;
+	}
+
+	/**
+	 * Gets the time spent in garbage collection so far.
+	 * @return Milliseconds.
+	 */
+	private static long getGcMillis() {
+		long total = 0;
+		for (GarbageCollectorMXBean gc :
+				ManagementFactory.getGarbageCollectorMXBeans()){
+			total += Math.max(0, gc.getCollectionTime());
+		}
+		return total;
+	}
+
+	/**
+	 * Gets the number of bytes allocated by this Thread so far.
+	 * 
+	 * The game is single-threaded while benchmarking, so this covers all of
+	 * its allocations.
+	 * @return Bytes, or -1 if the JVM cannot measure allocation.
+	 */
+	private static long getAllocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean){
+			return ((com.sun.management.ThreadMXBean) threads)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	/**
+	 * Prints a summary of a Result.
+	 * @param result
+	 */
+	private static void print(Result result) {
+		System.out.printf("  ticks:  %d in %.1fs (%.0f/s)%n",
+				result.tickTimes.getCount(), result.elapsed,
+				result.tickTimes.getCount() / result.elapsed);
+		System.out.println("  tick:   " + describe(result.tickTimes));
+		if (result.frameTimes.getCount() > 0){
+			System.out.println("  frame:  " + describe(result.frameTimes));
+		}
+		if (result.particleSamples > 0){
+			System.out.printf("  fx:     %s, %.0f particles, %d dropped%n",
+					describe(result.particleTimes),
+					(double) result.particleTotal / result.particleSamples,
+					result.particlesDropped);
+		}
+		System.out.println("  tasks:  " + result.subsystems);
+		System.out.println("  quality: " + describeQuality(result));
+		System.out.printf("  gc:     %d collections, %dms%n",
+				result.gcCount, result.gcMillis);
+		if (result.allocatedBytes >= 0){
+			System.out.printf("  alloc:  %.2f MB/s%n",
+					getAllocationRate(result));
+		}
+		System.out.printf("  heap:   peak %.1f MB, end %.1f MB%n",
+				result.heapPeak / 1e6, result.heapEnd / 1e6);
+	}
+
+	/**
+	 * Lists the share of ticks spent at each quality level that was used,
+	 * and the level at the end.
+	 * @param result
+	 * @return
+	 */
+	private static String describeQuality(Result result) {
+		StringBuilder sb = new StringBuilder();
+		long total = result.tickTimes.getCount();
+		for (QualityController.Level level :
+				QualityController.Level.values()){
+			long ticks = result.qualityTicks[level.ordinal()];
+			if (ticks == 0) continue;
+			sb.append(String.format("%s %.1f%%  ",
+					level.name().toLowerCase(), 100.0 * ticks / total));
+		}
+		sb.append("end ").append(result.qualityEnd.name().toLowerCase());
+		return sb.toString();
+	}
+
+	/**
+	 * Gets the percentage of ticks spent below full quality.
+	 * @param result
+	 * @return
+	 */
+	private static double getReducedQualityPercent(Result result) {
+		int full = QualityController.Level.FULL.ordinal();
+		long total = result.tickTimes.getCount();
+		return total == 0 ?
+				0 : 100.0 * (total - result.qualityTicks[full]) / total;
+	}
+
+	/**
+	 * Lists the mean time per tick spent in each of a Scheduler's Tasks,
+	 * with each Task's rate.
+	 * @param scheduler
+	 * @return
+	 */
+	private static String describe(Scheduler scheduler) {
+		StringBuilder sb = new StringBuilder();
+		for (Scheduler.Task task : scheduler.getTasks()){
+			if (sb.length() > 0) sb.append("  ");
+			sb.append(String.format("%s@%.0fHz %.1fus", task.getName(),
+					task.getRate(), task.getNanosPerTick() / 1000));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Lists the percentiles of a histogram.
+	 * @param histogram
+	 * @return
+	 */
+	private static String describe(LatencyHistogram histogram) {
+		StringBuilder sb = new StringBuilder();
+		for (double p : PERCENTILES){
+			sb.append(String.format("p%s %.1fus  ", formatPercentile(p),
+					histogram.getPercentile(p) / 1e3));
+		}
+		sb.append(String.format("max %.1fus", histogram.getMax() / 1e3));
+		return sb.toString();
+	}
+
+	/**
+	 * Formats a percentile without a trailing ".0".
+	 * @param percentile
+	 * @return
+	 */
+	private static String formatPercentile(double percentile) {
+		return percentile == Math.floor(percentile) ?
+				String.valueOf((int) percentile) :
+				String.valueOf(percentile).replace('.', '_');
+	}
+
+	/**
+	 * Gets the allocation rate of a Result.
+	 * @param result
+	 * @return Megabytes per second.
+	 */
+	private static double getAllocationRate(Result result) {
+		return result.allocatedBytes / 1e6 / result.elapsed;
+	}
+
+	/**
+	 * Appends the results to the CSV file, writing a header if the file is
+	 * new.
+	 * @param results
+	 * @throws IOException
+	 */
+	private void writeCsv(List<Result> results) throws IOException {
+
+		boolean isNew = !Files.exists(csvFile) || Files.size(csvFile) == 0;
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(
+				csvFile, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND))){
+
+			if (isNew){
+				StringBuilder header = new StringBuilder(
+						"label,time,java,scenario,balls,players,render,input," +
+						"realtime,seconds,ticks");
+				for (String kind : new String[] { "tick", "frame" }){
+					for (double p : PERCENTILES){
+						header.append(',').append(kind).append("_p")
+								.append(formatPercentile(p)).append("_us");
+					}
+					header.append(',').append(kind).append("_max_us");
+				}
+				header.append(",gc_count,gc_ms,alloc_mb_per_s," +
+						"heap_peak_mb,heap_end_mb,quality_reduced_pct," +
+						"quality_end");
+				out.println(header);
+			}
+
+			String time = Instant.now().toString();
+			for (Result result : results){
+				Scenario scenario = result.scenario;
+				StringBuilder row = new StringBuilder();
+				row.append(label).append(',')
+						.append(time).append(',')
+						.append(System.getProperty("java.version")).append(',')
+						.append(scenario.name).append(',')
+						.append(scenario.balls).append(',')
+						.append('"').append(scenario.players).append("\",")
+						.append(scenario.render.name().toLowerCase()).append(',')
+						.append(scenario.randomInput ? "random" : "none")
+						.append(',')
+						.append(realtime).append(',')
+						.append(String.format("%.1f", result.elapsed))
+						.append(',')
+						.append(result.tickTimes.getCount());
+				for (LatencyHistogram histogram : new LatencyHistogram[] {
+						result.tickTimes, result.frameTimes }){
+					for (double p : PERCENTILES){
+						row.append(String.format(",%.2f",
+								histogram.getPercentile(p) / 1e3));
+					}
+					row.append(String.format(",%.2f",
+							histogram.getMax() / 1e3));
+				}
+				row.append(',').append(result.gcCount)
+						.append(',').append(result.gcMillis)
+						.append(String.format(",%.2f,%.1f,%.1f",
+								result.allocatedBytes < 0 ?
+										-1 : getAllocationRate(result),
+								result.heapPeak / 1e6,
+								result.heapEnd / 1e6))
+						.append(String.format(",%.1f",
+								getReducedQualityPercent(result)))
+						.append(',')
+						.append(result.qualityEnd.name().toLowerCase());
+				out.println(row);
+			}
+		}
+	}
+
+	/**
+	 * Writes the results to the JSON file, replacing its contents.
+	 * @param results
+	 * @throws IOException
+	 */
+	private void writeJson(List<Result> results) throws IOException {
+
+		try (PrintWriter out = new PrintWriter(
+				Files.newBufferedWriter(jsonFile))){
+
+			out.println("{");
+			out.printf("  \"label\": \"%s\",%n", escape(label));
+			out.printf("  \"time\": \"%s\",%n", Instant.now());
+			out.printf("  \"java\": \"%s\",%n",
+					escape(System.getProperty("java.version")));
+			out.printf("  \"realtime\": %b,%n", realtime);
+			out.printf("  \"warmupSeconds\": %d,%n", warmupSeconds);
+			out.println("  \"scenarios\": [");
+
+			for (int i = 0; i < results.size(); i++){
+				Result result = results.get(i);
+				Scenario scenario = result.scenario;
+				out.println("    {");
+				out.printf("      \"name\": \"%s\",%n", escape(scenario.name));
+				out.printf("      \"balls\": %d,%n", scenario.balls);
+				out.printf("      \"players\": \"%s\",%n",
+						escape(scenario.players));
+				out.printf("      \"render\": \"%s\",%n",
+						scenario.render.name().toLowerCase());
+				out.printf("      \"input\": \"%s\",%n",
+						scenario.randomInput ? "random" : "none");
+				out.printf("      \"seconds\": %.1f,%n", result.elapsed);
+				out.printf("      \"ticks\": %d,%n",
+						result.tickTimes.getCount());
+				out.printf("      \"tickMicros\": %s,%n",
+						toJson(result.tickTimes));
+				out.printf("      \"frameMicros\": %s,%n",
+						toJson(result.frameTimes));
+				out.printf("      \"gcCount\": %d,%n", result.gcCount);
+				out.printf("      \"gcMillis\": %d,%n", result.gcMillis);
+				out.printf("      \"allocMBPerSecond\": %.2f,%n",
+						result.allocatedBytes < 0 ?
+								-1 : getAllocationRate(result));
+				out.printf("      \"heapPeakMB\": %.1f,%n",
+						result.heapPeak / 1e6);
+				out.printf("      \"heapEndMB\": %.1f,%n",
+						result.heapEnd / 1e6);
+				out.printf("      \"qualityReducedPercent\": %.1f,%n",
+						getReducedQualityPercent(result));
+				out.printf("      \"qualityEnd\": \"%s\"%n",
+						result.qualityEnd.name().toLowerCase());
+				out.println(i + 1 < results.size() ? "    }," : "    }");
+			}
+
+			out.println("  ]");
+			out.println("}");
+		}
+	}
+
+	/**
+	 * Describes a histogram as a JSON object.
+	 * @param histogram
+	 * @return
+	 */
+	private static String toJson(LatencyHistogram histogram) {
+		StringBuilder sb = new StringBuilder("{ ");
+		sb.append(String.format("\"mean\": %.2f", histogram.getMean() / 1e3));
+		for (double p : PERCENTILES){
+			sb.append(String.format(", \"p%s\": %.2f", formatPercentile(p),
+					histogram.getPercentile(p) / 1e3));
+		}
+		sb.append(String.format(", \"max\": %.2f }", histogram.getMax() / 1e3));
+		return sb.toString();
+	}
+
+	/**
+	 * Escapes a String for use in JSON.
+	 * @param s
+	 * @return
+	 */
+	private static String escape(String s) {
+		return s.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+}
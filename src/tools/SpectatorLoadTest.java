@@ -0,0 +1,258 @@
+package tools;
+
+import game.AISettings;
+import game.Physics;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import net.SpectatorEncoder;
+import net.SpectatorServer;
+import net.SpectatorView;
+import state.GameState;
+
+/**
+ * Command-line tool that broadcasts an AI match to many loopback
+ * spectators, and reports how the server copes.
+ * 
+ * All spectators are run from a single Thread, and decode every frame they
+ * receive. The tool fails if deltas are not smaller than keyframes on
+ * average, since they would then not be worth sending.
+ * 
+ * Usage: SpectatorLoadTest [spectators] [balls] [seconds]
+ * 
+ * @author Dan Bryce
+ */
+public class SpectatorLoadTest {
+
+	private static final int FPS = 60;
+	private static final long NANOS_PER_TICK = 1000000000L / FPS;
+
+	/**
+	 * A loopback spectator.
+	 */
+	private static class Client {
+
+		SocketChannel channel;
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		SpectatorView view = new SpectatorView();
+		long framesApplied, framesRejected, bytesReceived;
+		long keyframes, keyframeBytes, deltas, deltaBytes;
+	}
+
+	private final ArrayList<Client> clients = new ArrayList<Client>();
+	private Selector selector;
+	private volatile boolean stopped;
+
+	/**
+	 * Entry point for the tool.
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+
+		int numClients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int balls = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+		GameState game = new GameState(null, balls, Physics.DEFAULT,
+				new AISettings[] { AISettings.DEFAULT, AISettings.DEFAULT },
+				1);
+		SpectatorServer server = new SpectatorServer(0);
+
+		// Connect the spectators
+		SpectatorLoadTest test = new SpectatorLoadTest();
+		test.connect(server.getPort(), numClients);
+		while (server.getNumSpectators() < numClients){
+			Thread.sleep(10);
+		}
+		Thread clientThread = new Thread(test::run, "Spectators");
+		clientThread.start();
+
+		System.out.printf("Broadcasting %d balls to %d spectators for %ds%n",
+				balls, numClients, seconds);
+
+		// Run the game in real time
+		int ticks = seconds * FPS;
+		long publishNanos = 0, maxPublishNanos = 0;
+		long nextTick = System.nanoTime();
+
+		for (int i = 0; i < ticks; i++){
+			game.tick();
+
+			long beforeTime = System.nanoTime();
+			server.publish(game);
+			long elapsed = System.nanoTime() - beforeTime;
+			publishNanos += elapsed;
+			maxPublishNanos = Math.max(maxPublishNanos, elapsed);
+
+			nextTick += NANOS_PER_TICK;
+			LockSupport.parkNanos(nextTick - System.nanoTime());
+		}
+
+		// Give the last frames time to arrive
+		Thread.sleep(500);
+		test.stopped = true;
+		test.selector.wakeup();
+		clientThread.join();
+		server.close();
+
+		test.report(game, ticks, publishNanos, maxPublishNanos, server);
+	}
+
+	/**
+	 * Opens connections to the server.
+	 * @param port
+	 * @param numClients
+	 * @throws IOException
+	 */
+	private void connect(int port, int numClients) throws IOException {
+		selector = Selector.open();
+		InetSocketAddress address = new InetSocketAddress("localhost", port);
+		for (int i = 0; i < numClients; i++){
+			Client client = new Client();
+			client.channel = SocketChannel.open(address);
+			client.channel.configureBlocking(false);
+			client.channel.register(selector, SelectionKey.OP_READ, client);
+			clients.add(client);
+		}
+	}
+
+	/**
+	 * Reads and decodes frames until stopped.
+	 */
+	private void run() {
+		try {
+			while (!stopped){
+				selector.select(TimeUnit.SECONDS.toMillis(1));
+				Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+				while (it.hasNext()){
+					SelectionKey key = it.next();
+					it.remove();
+					read((Client) key.attachment());
+				}
+			}
+			for (Client client : clients){
+				client.channel.close();
+			}
+			selector.close();
+		} catch (IOException e){
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Reads whatever is available for a client, and applies any complete
+	 * frames.
+	 * @param client
+	 * @throws IOException
+	 */
+	private void read(Client client) throws IOException {
+
+		int read = client.channel.read(client.buffer);
+		if (read < 0){
+			client.channel.close();
+			return;
+		}
+		client.bytesReceived += read;
+
+		ByteBuffer buffer = client.buffer;
+		buffer.flip();
+		while (buffer.remaining() >= 4){
+			int length = buffer.getInt(buffer.position());
+			if (buffer.remaining() < 4 + length) break;
+
+			buffer.position(buffer.position() + 4);
+			ByteBuffer frame = buffer.slice();
+			frame.limit(length);
+			if (frame.get(0) == SpectatorEncoder.KEYFRAME){
+				client.keyframes++;
+				client.keyframeBytes += 4 + length;
+			} else {
+				client.deltas++;
+				client.deltaBytes += 4 + length;
+			}
+			if (client.view.apply(frame)){
+				client.framesApplied++;
+			} else {
+				client.framesRejected++;
+			}
+			buffer.position(buffer.position() + length);
+		}
+
+		// Keep any partial frame, making room for it if necessary
+		if (buffer.remaining() >= 4 &&
+				buffer.getInt(buffer.position()) + 4 > buffer.capacity()){
+			ByteBuffer larger = ByteBuffer.allocate(
+					(buffer.getInt(buffer.position()) + 4) * 2);
+			larger.put(buffer);
+			client.buffer = larger;
+		} else {
+			buffer.compact();
+		}
+	}
+
+	/**
+	 * Prints the results.
+	 * @param game
+	 * @param ticks
+	 * @param publishNanos
+	 * @param maxPublishNanos
+	 * @param server
+	 */
+	private void report(GameState game, int ticks, long publishNanos,
+			long maxPublishNanos, SpectatorServer server) {
+
+		long applied = 0, rejected = 0, bytes = 0;
+		long keyframes = 0, keyframeBytes = 0, deltas = 0, deltaBytes = 0;
+		long minApplied = Long.MAX_VALUE;
+		int inSync = 0;
+
+		for (Client client : clients){
+			applied += client.framesApplied;
+			rejected += client.framesRejected;
+			bytes += client.bytesReceived;
+			keyframes += client.keyframes;
+			keyframeBytes += client.keyframeBytes;
+			deltas += client.deltas;
+			deltaBytes += client.deltaBytes;
+			minApplied = Math.min(minApplied, client.framesApplied);
+			if (client.view.getTick() == game.getTicks()){
+				inSync++;
+			}
+		}
+
+		int n = clients.size();
+		System.out.printf("Publish per tick: %.1fus mean, %.1fus max%n",
+				publishNanos / 1e3 / ticks, maxPublishNanos / 1e3);
+		System.out.printf("Server: %d frames sent, %d skipped%n",
+				server.getFramesSent(), server.getFramesSkipped());
+		System.out.printf("Spectators: %.1f frames applied on average " +
+				"(min %d of %d), %d rejected%n",
+				(double) applied / n, minApplied, ticks, rejected);
+		System.out.printf("Bandwidth: %.0f bytes per frame, %.1f KB/s per " +
+				"spectator%n", (double) bytes / Math.max(applied, 1),
+				bytes / 1024.0 / n / (ticks / (double) FPS));
+		System.out.printf("%d of %d spectators saw the final tick%n",
+				inSync, n);
+
+		double keyframeSize = (double) keyframeBytes / Math.max(keyframes, 1);
+		double deltaSize = (double) deltaBytes / Math.max(deltas, 1);
+		System.out.printf("Frame size: %.0f bytes per keyframe (%d), " +
+				"%.0f bytes per delta (%d)%n",
+				keyframeSize, keyframes, deltaSize, deltas);
+		if (deltas > 0 && deltaSize >= keyframeSize){
+			System.err.println("Deltas are no smaller than keyframes");
+			System.exit(1);
+		}
+	}
+
+}
@@ -0,0 +1,133 @@
+package tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import game.Pong;
+
+/**
+ * Command-line tool that measures how long the game takes to start.
+ *
+ * The game is launched repeatedly in a fresh JVM with "-exit-after-startup",
+ * so that it quits as soon as the menu has first been drawn, and reports
+ * when each stage of startup finished. The time from launching the process
+ * to the menu is also measured from outside, since this includes starting
+ * the JVM itself. The median of each time is reported.
+ *
+ * Any arguments after the number of runs are passed to the JVM, so that
+ * options can be compared, e.g. an AppCDS archive:
+ *
+ *     StartupBenchmark 10 -XX:SharedArchiveFile=build/pong.jsa
+ *         -cp build/pong.jar
+ *
+ * If no class path is given, this tool's own class path is used. This
+ * needs a display, since the game window is created as normal.
+ *
+ * Usage: StartupBenchmark [runs] [jvm options]
+ *
+ * @author Dan Bryce
+ */
+public class StartupBenchmark {
+
+	private static final String PREFIX = "startup:";
+
+	/**
+	 * Entry point for the tool.
+	 * @param args
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static void main(String[] args)
+			throws IOException, InterruptedException {
+
+		int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		List<String> jvmOptions = new ArrayList<String>();
+		for (int i = 1; i < args.length; i++){
+			jvmOptions.add(args[i]);
+		}
+
+		List<String> command = new ArrayList<String>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java")
+				.toString());
+		command.addAll(jvmOptions);
+		if (!jvmOptions.contains("-cp") && !jvmOptions.contains("-jar")){
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+		}
+		if (!jvmOptions.contains("-jar")){
+			command.add(Pong.class.getName());
+		}
+		command.add("-exit-after-startup");
+
+		Map<String, long[]> times = new LinkedHashMap<String, long[]>();
+		for (int run = 0; run < runs; run++){
+			Map<String, Long> result = launch(command);
+			for (Map.Entry<String, Long> entry : result.entrySet()){
+				times.computeIfAbsent(entry.getKey(), k -> new long[runs])
+						[run] = entry.getValue();
+			}
+			System.out.println("run " + (run + 1) + ": " + result);
+		}
+
+		System.out.printf("median of %d runs (ms):", runs);
+		for (Map.Entry<String, long[]> entry : times.entrySet()){
+			long[] values = entry.getValue();
+			Arrays.sort(values);
+			System.out.printf(" %s=%d", entry.getKey(), values[runs / 2]);
+		}
+		System.out.println();
+	}
+
+	/**
+	 * Launches the game, and waits for it to report its startup times and
+	 * quit.
+	 * @param command
+	 * @return Milliseconds taken by each stage, starting with the time from
+	 * launching the process to the menu.
+	 * @throws IOException If the game quits without reporting.
+	 * @throws InterruptedException
+	 */
+	private static Map<String, Long> launch(List<String> command)
+			throws IOException, InterruptedException {
+
+		Map<String, Long> result = new LinkedHashMap<String, Long>();
+
+		long startTime = System.nanoTime();
+		Process process = new ProcessBuilder(command)
+				.redirectErrorStream(true)
+				.start();
+
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(process.getInputStream()))){
+			String line;
+			while ((line = reader.readLine()) != null){
+				if (!line.startsWith(PREFIX)){
+					System.out.println(line);
+					continue;
+				}
+				result.put("launch",
+						(System.nanoTime() - startTime) / 1000000);
+				for (String field : line.substring(PREFIX.length()).trim()
+						.split(" ")){
+					String[] parts = field.split("=");
+					result.put(parts[0], Long.parseLong(parts[1]));
+				}
+			}
+		}
+		process.waitFor();
+
+		if (result.isEmpty()){
+			throw new IOException("Game exited with code " +
+					process.exitValue() + " before reaching the menu");
+		}
+		return result;
+	}
+
+}
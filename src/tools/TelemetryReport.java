@@ -0,0 +1,132 @@
+package tools;
+
+import game.GameEvent;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+
+import state.GameState;
+import stats.TelemetryBlock;
+import stats.TelemetryColumn;
+import stats.TelemetryReader;
+
+/**
+ * Command-line tool that summarises telemetry files.
+ * 
+ * Only the columns needed for the summary are read.
+ * 
+ * Usage: TelemetryReport file...
+ * 
+ * @author Dan Bryce
+ */
+public class TelemetryReport {
+
+	private static final int SCORE = GameEvent.Type.SCORE.ordinal();
+	private static final int WALL_BOUNCE = GameEvent.Type.WALL_BOUNCE.ordinal();
+	private static final int PADDLE_HIT = GameEvent.Type.PADDLE_HIT.ordinal();
+
+	private long goals, totalRallyHits, longestRally;
+	private long bounces, hits;
+	private double bounceSpeed, hitBallSpeed, hitPaddleSpeed;
+	private double maxBallSpeed;
+	private long lastGoalTick, goalGaps, totalGoalGap;
+
+	/**
+	 * Entry point for the tool.
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 1){
+			System.err.println("Usage: TelemetryReport file...");
+			System.exit(1);
+		}
+
+		EnumSet<TelemetryColumn> columns = EnumSet.of(
+				TelemetryColumn.TICK,
+				TelemetryColumn.TYPE,
+				TelemetryColumn.BALL_SPEED,
+				TelemetryColumn.PADDLE_SPEED,
+				TelemetryColumn.HITS);
+
+		for (String arg : args){
+			TelemetryReport report = new TelemetryReport();
+			long startTime = System.nanoTime();
+			new TelemetryReader(Paths.get(arg)).scan(columns, report::add);
+			long elapsed = System.nanoTime() - startTime;
+
+			System.out.println(arg + " (read in " + elapsed / 1000000 + "ms)");
+			report.print();
+		}
+	}
+
+	/**
+	 * Adds a block of rows to the summary.
+	 * @param block
+	 */
+	private void add(TelemetryBlock block) {
+
+		long[] ticks = block.getTicks();
+		byte[] types = block.getTypes();
+		float[] ballSpeeds = block.getBallSpeeds();
+		float[] paddleSpeeds = block.getPaddleSpeeds();
+		int[] rallyHits = block.getHits();
+
+		for (int i = 0; i < block.getRows(); i++){
+
+			int type = types[i];
+
+			if (type == SCORE){
+				goals++;
+				totalRallyHits += rallyHits[i];
+				longestRally = Math.max(longestRally, rallyHits[i]);
+				if (goals > 1){
+					goalGaps++;
+					totalGoalGap += ticks[i] - lastGoalTick;
+				}
+				lastGoalTick = ticks[i];
+
+			} else if (type == WALL_BOUNCE){
+				bounces++;
+				bounceSpeed += ballSpeeds[i];
+
+			} else if (type == PADDLE_HIT){
+				hits++;
+				hitBallSpeed += ballSpeeds[i];
+				hitPaddleSpeed += Math.abs(paddleSpeeds[i]);
+			}
+
+			maxBallSpeed = Math.max(maxBallSpeed, ballSpeeds[i]);
+		}
+	}
+
+	/**
+	 * Prints the summary.
+	 */
+	private void print() {
+		System.out.printf("  goals:              %d%n", goals);
+		System.out.printf("  mean rally:         %.2f hits (longest %d)%n",
+				mean(totalRallyHits, goals), longestRally);
+		System.out.printf("  mean goal interval: %.2fs%n",
+				mean(totalGoalGap, goalGaps) / GameState.TICK_RATE);
+		System.out.printf("  wall bounces:       %d (mean ball speed %.2f)%n",
+				bounces, mean(bounceSpeed, bounces));
+		System.out.printf("  paddle hits:        %d (mean ball speed %.2f, " +
+				"mean paddle speed %.2f)%n",
+				hits, mean(hitBallSpeed, hits), mean(hitPaddleSpeed, hits));
+		System.out.printf("  top ball speed:     %.2f%n", maxBallSpeed);
+	}
+
+	/**
+	 * Divides, treating an empty sample as zero.
+	 * @param total
+	 * @param count
+	 * @return
+	 */
+	private static double mean(double total, long count) {
+		return count == 0 ? 0 : total / count;
+	}
+
+}
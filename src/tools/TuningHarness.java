@@ -0,0 +1,419 @@
+package tools;
+
+import game.AISettings;
+import game.Physics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import state.GameState;
+
+/**
+ * Command-line tool that searches for good Physics and AISettings by playing
+ * large numbers of AI-vs-AI matches.
+ * 
+ * Each candidate's AI plays against the default AI under the candidate's
+ * Physics. Matches are independent, so they are spread across all cores,
+ * with each match confined to the Thread that plays it.
+ * 
+ * The search is evolutionary: the first generation is random, and each
+ * following generation keeps the best candidates and fills the rest of the
+ * population with mutated copies of them.
+ * 
+ * Usage: TuningHarness [-generations n] [-population n] [-matches n]
+ *     [-balls n] [-score n] [-objective win|rally] [-seed n]
+ * 
+ * @author Dan Bryce
+ */
+public class TuningHarness {
+
+	/**
+	 * Quantity that the search tries to maximise.
+	 */
+	private enum Objective {
+
+		/**
+		 * Win rate of the candidate AI against the default AI.
+		 */
+		WIN,
+
+		/**
+		 * Mean number of hits per rally.
+		 */
+		RALLY
+	}
+
+	private static final int MAX_TICKS = 60 * 60 * 10;
+	private static final double MUTATION_RATE = 0.1;
+	private static final int NUM_REPORTED = 5;
+
+	// Genome layout and search space
+	private static final String[] PARAM_NAMES = {
+		"acceleration", "deceleration", "playerBounce", "ballBounce",
+		"angle", "margin", "reaction", "approachingOnly"
+	};
+	private static final double[] PARAM_MIN = {
+		0.25, 0.80, 0.5, 1.0, 0.0, -16, 100, 0
+	};
+	private static final double[] PARAM_MAX = {
+		1.50, 0.99, 1.0, 1.2, 6.0, 40, GameState.GAME_WIDTH, 1
+	};
+
+	private int generations = 20;
+	private int populationSize = 32;
+	private int matchesPerCandidate = 200;
+	private int balls = 1;
+	private int targetScore = 11;
+	private Objective objective = Objective.WIN;
+	private SplittableRandom random = new SplittableRandom();
+	private long totalMatches;
+
+	/**
+	 * A point in the search space, and how well it performed.
+	 */
+	private static class Candidate {
+
+		private double[] genome;
+		private int wins, draws, matches;
+		private long rallies, hits;
+
+		/**
+		 * Constructs a Candidate with the given genome.
+		 * @param genome
+		 */
+		public Candidate(double[] genome) {
+			this.genome = genome;
+		}
+
+		/**
+		 * Creates the Physics described by this Candidate.
+		 * @return
+		 */
+		public Physics getPhysics() {
+			return new Physics(genome[0], genome[1], genome[2], genome[3],
+					genome[4]);
+		}
+
+		/**
+		 * Creates the AISettings described by this Candidate.
+		 * @return
+		 */
+		public AISettings getAISettings() {
+			return new AISettings(genome[5], genome[6], genome[7] >= 0.5);
+		}
+
+		/**
+		 * Gets the fraction of matches won, counting draws as half a win.
+		 * @return
+		 */
+		public double getWinRate() {
+			return (wins + draws * 0.5) / matches;
+		}
+
+		/**
+		 * Gets the mean number of hits per rally.
+		 * @return
+		 */
+		public double getMeanRally() {
+			return rallies == 0 ? 0 : (double) hits / rallies;
+		}
+
+		/**
+		 * Gets the score of this Candidate for the given Objective.
+		 * @param objective
+		 * @return
+		 */
+		public double getFitness(Objective objective) {
+			return objective == Objective.WIN ? getWinRate() : getMeanRally();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("win=%.3f rally=%.2f | %s | %s",
+					getWinRate(), getMeanRally(),
+					getPhysics(), getAISettings());
+		}
+	}
+
+	/**
+	 * The outcome of a single match.
+	 */
+	private static class MatchResult {
+
+		/**
+		 * 1 if the candidate won, -1 if it lost, or 0 for a draw.
+		 */
+		private int outcome;
+		private int rallies, hits;
+	}
+
+	/**
+	 * Entry point for the tool.
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		TuningHarness harness = new TuningHarness();
+		harness.parseArgs(args);
+		harness.run();
+	}
+
+	/**
+	 * Reads settings from the command line.
+	 * @param args
+	 */
+	private void parseArgs(String[] args) {
+		for (int i = 0; i + 1 < args.length; i += 2){
+			String value = args[i + 1];
+			switch (args[i]){
+			case "-generations":
+				generations = Integer.parseInt(value);
+				break;
+			case "-population":
+				populationSize = Integer.parseInt(value);
+				break;
+			case "-matches":
+				matchesPerCandidate = Integer.parseInt(value);
+				break;
+			case "-balls":
+				balls = Integer.parseInt(value);
+				break;
+			case "-score":
+				targetScore = Integer.parseInt(value);
+				break;
+			case "-objective":
+				objective = Objective.valueOf(value.toUpperCase());
+				break;
+			case "-seed":
+				random = new SplittableRandom(Long.parseLong(value));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+	}
+
+	/**
+	 * Runs the search and reports the results.
+	 */
+	private void run() {
+
+		System.out.printf("Tuning for %s over %d generations of %d " +
+				"(%d matches each) on %d cores%n", objective, generations,
+				populationSize, matchesPerCandidate,
+				Runtime.getRuntime().availableProcessors());
+
+		List<Candidate> population = createInitialPopulation();
+		long startTime = System.nanoTime();
+
+		for (int gen = 0; gen < generations; gen++){
+			long genStartTime = System.nanoTime();
+			evaluate(population);
+			population.sort(Comparator.comparingDouble(
+					(Candidate c) -> c.getFitness(objective)).reversed());
+
+			double elapsed = (System.nanoTime() - genStartTime) / 1e9;
+			double matchesPerHour =
+					populationSize * matchesPerCandidate / elapsed * 3600;
+			System.out.printf("%nGeneration %d (%.2fs, %.0f matches/hour)%n",
+					gen + 1, elapsed, matchesPerHour);
+			for (int i = 0; i < Math.min(NUM_REPORTED, population.size()); i++){
+				System.out.println("  " + population.get(i));
+			}
+
+			if (gen + 1 < generations){
+				population = breed(population);
+			}
+		}
+
+		double elapsed = (System.nanoTime() - startTime) / 1e9;
+		System.out.printf("%nPlayed %d matches in %.1fs%n",
+				totalMatches, elapsed);
+		System.out.println("Best: " + population.get(0));
+		System.out.println("Parameters: " + describe(population.get(0)));
+	}
+
+	/**
+	 * Creates a random population, seeded with the default settings.
+	 * @return
+	 */
+	private List<Candidate> createInitialPopulation() {
+
+		List<Candidate> population = new ArrayList<Candidate>();
+
+		Physics physics = Physics.DEFAULT;
+		AISettings ai = AISettings.DEFAULT;
+		population.add(new Candidate(clamp(new double[] {
+			physics.getPlayerAcceleration(),
+			physics.getPlayerDeceleration(),
+			physics.getPlayerBounceSpeedMultiplier(),
+			physics.getBallBounceSpeedMultiplier(),
+			physics.getBallAngleMultiplier(),
+			ai.getMargin(),
+			ai.getReactionDistance(),
+			ai.isApproachingOnly() ? 1 : 0
+		})));
+
+		while (population.size() < populationSize){
+			double[] genome = new double[PARAM_NAMES.length];
+			for (int i = 0; i < genome.length; i++){
+				genome[i] = PARAM_MIN[i] +
+						random.nextDouble() * (PARAM_MAX[i] - PARAM_MIN[i]);
+			}
+			population.add(new Candidate(genome));
+		}
+
+		return population;
+	}
+
+	/**
+	 * Creates the next generation from a population sorted by fitness.
+	 * @param population
+	 * @return
+	 */
+	private List<Candidate> breed(List<Candidate> population) {
+
+		int numElites = Math.max(1, populationSize / 4);
+		List<Candidate> next = new ArrayList<Candidate>();
+
+		// Elites are re-evaluated so that lucky candidates do not persist
+		for (int i = 0; i < numElites; i++){
+			next.add(new Candidate(population.get(i).genome));
+		}
+
+		while (next.size() < populationSize){
+			double[] parent = population.get(random.nextInt(numElites)).genome;
+			double[] child = Arrays.copyOf(parent, parent.length);
+			for (int i = 0; i < child.length; i++){
+				double range = PARAM_MAX[i] - PARAM_MIN[i];
+				child[i] += nextGaussian() * range * MUTATION_RATE;
+			}
+			next.add(new Candidate(clamp(child)));
+		}
+
+		return next;
+	}
+
+	/**
+	 * Plays all matches for the given population in parallel.
+	 * @param population
+	 */
+	private void evaluate(List<Candidate> population) {
+
+		int numMatches = population.size() * matchesPerCandidate;
+		long seed = random.nextLong();
+
+		// Create settings up-front so they are shared, not re-created
+		Physics[] physics = new Physics[population.size()];
+		AISettings[] settings = new AISettings[population.size()];
+		for (int i = 0; i < population.size(); i++){
+			physics[i] = population.get(i).getPhysics();
+			settings[i] = population.get(i).getAISettings();
+		}
+
+		MatchResult[] results = IntStream.range(0, numMatches)
+				.parallel()
+				.mapToObj(i -> playMatch(
+						physics[i / matchesPerCandidate],
+						settings[i / matchesPerCandidate],
+						i % 2 == 0,
+						seed + i))
+				.toArray(MatchResult[]::new);
+
+		for (int i = 0; i < numMatches; i++){
+			Candidate candidate = population.get(i / matchesPerCandidate);
+			MatchResult result = results[i];
+			candidate.matches++;
+			if (result.outcome > 0){
+				candidate.wins++;
+			} else if (result.outcome == 0){
+				candidate.draws++;
+			}
+			candidate.rallies += result.rallies;
+			candidate.hits += result.hits;
+		}
+
+		totalMatches += numMatches;
+	}
+
+	/**
+	 * Plays a single match between the candidate AI and the default AI.
+	 * @param physics
+	 * @param candidate
+	 * @param candidateOnLeft Which side the candidate plays on; sides are
+	 * alternated to cancel out any bias.
+	 * @param seed
+	 * @return
+	 */
+	private MatchResult playMatch(Physics physics, AISettings candidate,
+			boolean candidateOnLeft, long seed) {
+
+		int candidateId = candidateOnLeft ? 0 : 1;
+		AISettings[] ai = new AISettings[2];
+		ai[candidateId] = candidate;
+		ai[1 - candidateId] = AISettings.DEFAULT;
+
+		GameState game = new GameState(null, balls, physics, ai, seed);
+		int candidateScore = 0;
+		int opponentScore = 0;
+
+		for (int tick = 0; tick < MAX_TICKS; tick++){
+			game.tick();
+			candidateScore = game.getPlayer(candidateId).getScore();
+			opponentScore = game.getPlayer(1 - candidateId).getScore();
+			if (candidateScore >= targetScore ||
+					opponentScore >= targetScore){
+				break;
+			}
+		}
+
+		MatchResult result = new MatchResult();
+		result.outcome = Integer.signum(candidateScore - opponentScore);
+		result.rallies = game.getRallies();
+		result.hits = game.getRallyHits();
+		return result;
+	}
+
+	/**
+	 * Restricts each parameter to its allowed range.
+	 * @param genome
+	 * @return
+	 */
+	private static double[] clamp(double[] genome) {
+		for (int i = 0; i < genome.length; i++){
+			genome[i] = Math.max(PARAM_MIN[i],
+					Math.min(PARAM_MAX[i], genome[i]));
+		}
+		return genome;
+	}
+
+	/**
+	 * Gets a normally-distributed random number.
+	 * @return
+	 */
+	private double nextGaussian() {
+		// Box-Muller transform
+		double u = 1 - random.nextDouble();
+		double v = random.nextDouble();
+		return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+	}
+
+	/**
+	 * Lists the raw parameters of a Candidate.
+	 * @param candidate
+	 * @return
+	 */
+	private static String describe(Candidate candidate) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < PARAM_NAMES.length; i++){
+			if (i > 0) sb.append(", ");
+			sb.append(PARAM_NAMES[i]).append('=');
+			sb.append(String.format("%.3f", candidate.genome[i]));
+		}
+		return sb.toString();
+	}
+
+}